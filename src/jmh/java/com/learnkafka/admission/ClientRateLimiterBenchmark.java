@@ -0,0 +1,89 @@
+package com.learnkafka.admission;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a {@link ClientRateLimiter} check on the request path, which has to stay well under a microsecond.
+ * {@code sameClient} has every thread hit one bucket, the worst case for CAS contention, {@code ownClient} gives
+ * each thread its own bucket and {@code manyClients} spreads the threads over 10,000 buckets.
+ * {@code overLimit} measures the rejection path of a client that is permanently out of tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class ClientRateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private ClientRateLimiter clientRateLimiter;
+
+    private String[] clientIds;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+
+    @State(Scope.Thread)
+    public static class ThreadClient {
+
+        String clientId;
+
+        @Setup
+        public void setUp(ClientRateLimiterBenchmark benchmark) {
+            clientId = "client-thread-" + benchmark.threadCounter.incrementAndGet();
+        }
+
+    }
+
+
+    @Setup
+    public void setUp() {
+        clientRateLimiter = new ClientRateLimiter(new RateLimit(1e12, 1e15, 1), TimeUnit.MINUTES.toMillis(5), Integer.MAX_VALUE);
+        clientRateLimiter.setClientLimit("over-limit", new RateLimit(1e-3, 0, 1));
+        clientIds = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clientIds[i] = "client-" + i;
+            clientRateLimiter.tryAcquire(clientIds[i], 1, 1024);
+        }
+        clientRateLimiter.tryAcquire("over-limit", 1, 1024);
+    }
+
+
+    @Benchmark
+    public long sameClient() {
+        return clientRateLimiter.tryAcquire("client-0", 1, 1024);
+    }
+
+    @Benchmark
+    public long ownClient(ThreadClient threadClient) {
+        return clientRateLimiter.tryAcquire(threadClient.clientId, 1, 1024);
+    }
+
+    @Benchmark
+    public long manyClients() {
+        return clientRateLimiter.tryAcquire(clientIds[ThreadLocalRandom.current().nextInt(CLIENTS)], 1, 1024);
+    }
+
+    @Benchmark
+    public long overLimit() {
+        return clientRateLimiter.tryAcquire("over-limit", 1, 1024);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.learnkafka.id;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks that {@link LibraryEventIdGenerator} does not become a contention point when many request threads
+ * create NEW events at once. {@code atomicCounter} is the lower bound of a shared counter and
+ * {@code synchronizedGenerator} a locking generator with the same layout. Override the thread count with
+ * {@code -t}, for example {@code -Djmh.args="LibraryEventIdGeneratorBenchmark -t 64"}. The generator gets a fresh
+ * layout of 21 sequence bits and 255 seconds of borrowing per iteration, so it measures the CAS rather than running
+ * out of ids.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class LibraryEventIdGeneratorBenchmark {
+
+    private LibraryEventIdGenerator libraryEventIdGenerator;
+
+    private final AtomicInteger atomicCounter = new AtomicInteger();
+
+    private long lastTimeAndSequence;
+
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        libraryEventIdGenerator = new LibraryEventIdGenerator(0, 0, 21, System.currentTimeMillis() / 1000 - 1, 255, System::currentTimeMillis);
+    }
+
+
+    @Benchmark
+    public int libraryEventIdGenerator() {
+        return libraryEventIdGenerator.nextId();
+    }
+
+    @Benchmark
+    public int atomicCounter() {
+        return atomicCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public synchronized int synchronizedGenerator() {
+        long now = (System.currentTimeMillis() / 1000) << 8;
+        lastTimeAndSequence = Math.max(lastTimeAndSequence + 1, now);
+        return (int) ((((lastTimeAndSequence >>> 8) & ((1L << 20) - 1)) << 11) | (1 << 8) | (lastTimeAndSequence & 0xFF));
+    }
+
+}
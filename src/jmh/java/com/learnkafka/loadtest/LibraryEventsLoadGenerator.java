@@ -0,0 +1,270 @@
+package com.learnkafka.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.learnkafka.LibraryEventsProducerApplication;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+
+/**
+ * Open-loop load generator for the {@code LibraryEventsController} endpoints. It starts an embedded Kafka broker
+ * and the application on a random port, then fires synthetic library events at a fixed rate against every endpoint
+ * in turn, creating events with POST and updating them with PUT, and prints latency percentiles, achieved throughput
+ * and error counts, together with the application startup time and the latency of the first request to each endpoint.
+ * <p>
+ * Latency is measured from the time a request was scheduled to be sent rather than from when a worker picked it
+ * up, so queueing behind slow responses is part of the result (no coordinated omission). Service time, measured
+ * from the actual send, is printed next to it.
+ * <p>
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.mainClass=com.learnkafka.loadtest.LibraryEventsLoadGenerator
+ * -Djmh.args="rate=2000 duration=30"}. Supported arguments, all optional:
+ * <ul>
+ * <li>{@code rate} - requests per second per endpoint, default 1000</li>
+ * <li>{@code concurrency} - HTTP worker threads, default 64</li>
+ * <li>{@code warmup} - warm-up seconds per endpoint, not reported, default 5</li>
+ * <li>{@code producer-warm-up} - {@code true} to enable {@code library-events.warm-up} before traffic, default false</li>
+ * <li>{@code virtual-threads} - {@code true} to handle requests on virtual threads (Java 21+), default false</li>
+ * <li>{@code tomcat-threads} - size of the Tomcat platform thread pool, default 200</li>
+ * <li>{@code group-commit} - {@code true} to enable {@code library-events.group-commit} for synchronous sends, default false</li>
+ * <li>{@code duration} - measured seconds per endpoint, default 20</li>
+ * <li>{@code endpoints} - comma separated subset of {@code synchronous,asynchronous,asynchronous-producerrecord,
+ * synchronous-update,asynchronous-update}</li>
+ * <li>{@code partitions} - partitions of the embedded {@code library-events} topic, default 3</li>
+ * </ul>
+ * To compare virtual and platform threads, run the synchronous endpoint with {@code concurrency} between 1000 and
+ * 10000 once with {@code virtual-threads=true} and once without. Adding {@code -Djmh.jvmArgs=-Djdk.tracePinnedThreads=full}
+ * prints a stack trace whenever a virtual thread blocks while pinned to its carrier.
+ * <p>
+ * To see what group commit buys, run {@code endpoints=synchronous,asynchronous} at a rate the synchronous endpoint
+ * cannot sustain, once with {@code group-commit=true} and once without, and compare throughput and p99.
+ */
+public class LibraryEventsLoadGenerator {
+
+    private static final Map<String, Endpoint> ENDPOINTS = new LinkedHashMap<>();
+
+    static {
+        ENDPOINTS.put("synchronous", new Endpoint(HttpMethod.POST, "/v1/synchronous-libraryevent"));
+        ENDPOINTS.put("asynchronous", new Endpoint(HttpMethod.POST, "/v1/asynchronous-libraryevent"));
+        ENDPOINTS.put("asynchronous-producerrecord", new Endpoint(HttpMethod.POST, "/v1/asynchronous-libraryevent-producerrecord"));
+        ENDPOINTS.put("synchronous-update", new Endpoint(HttpMethod.PUT, "/v1/synchronous-libraryevent"));
+        ENDPOINTS.put("asynchronous-update", new Endpoint(HttpMethod.PUT, "/v1/asynchronous-libraryevent"));
+    }
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private final String baseUrl;
+
+    private final int rate;
+
+    private final ExecutorService workers;
+
+
+    LibraryEventsLoadGenerator(String baseUrl, int rate, int concurrency) {
+        this.baseUrl = baseUrl;
+        this.rate = rate;
+        this.workers = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int rate = Integer.parseInt(options.getOrDefault("rate", "1000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        boolean producerWarmUp = Boolean.parseBoolean(options.getOrDefault("producer-warm-up", "false"));
+        boolean virtualThreads = Boolean.parseBoolean(options.getOrDefault("virtual-threads", "false"));
+        int tomcatThreads = Integer.parseInt(options.getOrDefault("tomcat-threads", "200"));
+        boolean groupCommit = Boolean.parseBoolean(options.getOrDefault("group-commit", "false"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "20"));
+        int partitions = Integer.parseInt(options.getOrDefault("partitions", "3"));
+        String[] endpoints = options.getOrDefault("endpoints", String.join(",", ENDPOINTS.keySet())).split(",");
+
+        // HttpURLConnection keeps at most 5 idle connections per host by default
+        System.setProperty("http.maxConnections", String.valueOf(concurrency));
+
+        EmbeddedKafkaBroker embeddedKafkaBroker = new EmbeddedKafkaBroker(1, true, partitions, "library-events");
+        embeddedKafkaBroker.afterPropertiesSet();
+
+        long startupNanos = System.nanoTime();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryEventsProducerApplication.class)
+                .properties("server.port=0",
+                        "spring.kafka.producer.bootstrap-servers=" + embeddedKafkaBroker.getBrokersAsString(),
+                        "spring.kafka.admin.properties.bootstrap.servers=" + embeddedKafkaBroker.getBrokersAsString(),
+                        "library-events.admission.enabled=false",
+                        "library-events.warm-up.enabled=" + producerWarmUp,
+                        "library-events.virtual-threads.enabled=" + virtualThreads,
+                        "library-events.group-commit.enabled=" + groupCommit,
+                        "server.tomcat.threads.max=" + tomcatThreads,
+                        "server.tomcat.max-connections=" + Math.max(8192, concurrency * 2),
+                        "server.tomcat.accept-count=" + Math.max(100, concurrency),
+                        "logging.level.com.learnkafka=WARN")
+                .run();
+        startupNanos = System.nanoTime() - startupNanos;
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        LibraryEventsLoadGenerator loadGenerator = new LibraryEventsLoadGenerator("http://localhost:" + port, rate, concurrency);
+        try {
+            List<String> reports = new ArrayList<>();
+            for (String endpoint : endpoints) {
+                Endpoint target = ENDPOINTS.get(endpoint.trim());
+                if (target == null) {
+                    throw new IllegalArgumentException("Unknown endpoint " + endpoint + ", expected one of " + ENDPOINTS.keySet());
+                }
+                Result warmUpResult = loadGenerator.run(target, warmupSeconds);
+                reports.add(loadGenerator.run(target, durationSeconds).report(endpoint.trim(), warmUpResult.firstResponseMicros));
+            }
+            System.out.printf("%nrate=%d/s concurrency=%d duration=%ds partitions=%d producer-warm-up=%s virtual-threads=%s tomcat-threads=%d "
+                    + "group-commit=%s startup=%d ms%n", rate, concurrency, durationSeconds, partitions, producerWarmUp, virtualThreads, tomcatThreads,
+                    groupCommit, TimeUnit.NANOSECONDS.toMillis(startupNanos));
+            reports.forEach(System.out::println);
+        } finally {
+            loadGenerator.workers.shutdownNow();
+            context.close();
+            embeddedKafkaBroker.destroy();
+        }
+    }
+
+
+    Result run(Endpoint endpoint, int durationSeconds) throws InterruptedException {
+        Result result = new Result();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = (long) rate * durationSeconds;
+        long startNanos = System.nanoTime();
+
+        for (long i = 0; i < requests; i++) {
+            long intendedNanos = startNanos + i * intervalNanos;
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            workers.execute(() -> send(endpoint, intendedNanos, result));
+        }
+        while (result.completed.get() < requests) {
+            Thread.sleep(10);
+        }
+
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    private void send(Endpoint endpoint, long intendedNanos, Result result) {
+        long sentNanos = System.nanoTime();
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(baseUrl + endpoint.path, endpoint.method,
+                    createRequest(endpoint.method == HttpMethod.PUT), String.class);
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                result.errors.incrementAndGet();
+            }
+        } catch (RestClientException e) {
+            result.errors.incrementAndGet();
+        }
+        long endNanos = System.nanoTime();
+        result.firstResponseMicros.compareAndSet(-1, TimeUnit.NANOSECONDS.toMicros(endNanos - intendedNanos));
+        result.responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - intendedNanos));
+        result.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - sentNanos));
+        result.completed.incrementAndGet();
+    }
+
+    private HttpEntity<LibraryEvent> createRequest(boolean update) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                // updates must name the event; any id will do, the producer does not look it up
+                .libraryEventId(update ? random.nextInt(1, 1_000_000) : null)
+                .book(Book.builder()
+                        .bookId(random.nextInt(1_000_000))
+                        .bookName("Kafka Using Spring Boot, volume " + random.nextInt(100))
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(libraryEvent, headers);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            options.put(arg.substring(0, separator).replaceFirst("^--", ""), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+
+    static class Endpoint {
+
+        final HttpMethod method;
+
+        final String path;
+
+        Endpoint(HttpMethod method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+    }
+
+    static class Result {
+
+        final Histogram responseTime = new ConcurrentHistogram(3);
+
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+
+        final AtomicLong completed = new AtomicLong();
+
+        final AtomicLong errors = new AtomicLong();
+
+        final AtomicLong firstResponseMicros = new AtomicLong(-1);
+
+        long elapsedNanos;
+
+
+        String report(String endpoint, AtomicLong firstRequestMicros) {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("%-28s throughput=%.0f/s errors=%d first response=%.2f ms%n", endpoint, completed.get() / seconds,
+                    errors.get(), firstRequestMicros.get() / 1000.0)
+                    + percentiles("  response time (ms)", responseTime)
+                    + percentiles("  service time (ms) ", serviceTime);
+        }
+
+        private static String percentiles(String label, Histogram histogram) {
+            return String.format("%s p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n", label,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+
+    }
+
+}
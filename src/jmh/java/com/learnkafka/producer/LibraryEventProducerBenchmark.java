@@ -0,0 +1,130 @@
+package com.learnkafka.producer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.metrics.LibraryEventMetrics;
+import com.learnkafka.serializer.LibraryEventSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Hot path of {@link LibraryEventProducer} against an auto-completing {@code MockProducer}: serialization,
+ * record and header construction and the success callback, without any network I/O.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryEventProducerBenchmark {
+
+    private static final int CLEAR_SENT_RECORDS_EVERY = 10_000;
+
+    private NonClosingMockProducer<Integer, byte[]> mockProducer;
+
+    private LibraryEventProducer libraryEventProducer;
+
+    private LibraryEvent libraryEvent;
+
+    private byte[] value;
+
+    private int sends;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mockProducer = new NonClosingMockProducer<>(new IntegerSerializer(), new ByteArraySerializer());
+
+        ProducerFactory<Integer, byte[]> producerFactory = () -> mockProducer;
+        KafkaTemplate<Integer, byte[]> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setDefaultTopic("library-events");
+        kafkaTemplate.setMicrometerEnabled(false);
+
+        libraryEventProducer = new LibraryEventProducer();
+        ReflectionTestUtils.setField(libraryEventProducer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventMetrics", new LibraryEventMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventSerializer", new LibraryEventSerializer(new ObjectMapper()));
+
+        libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder()
+                        .bookId(456)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+        value = libraryEventProducer.serialize(libraryEvent);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearSentRecords() {
+        mockProducer.clear();
+    }
+
+
+    @Benchmark
+    public void sendAsynchronusLibraryEvent() {
+        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent);
+        clearSentRecordsPeriodically();
+    }
+
+    @Benchmark
+    public void sendAsynchronusLibraryEventPreSerialized() {
+        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value);
+        clearSentRecordsPeriodically();
+    }
+
+    @Benchmark
+    public ListenableFuture<SendResult<Integer, byte[]>> sendAsynchronusLibraryEventUsingProducerRecord() {
+        ListenableFuture<SendResult<Integer, byte[]>> listenableFuture = libraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent);
+        clearSentRecordsPeriodically();
+        return listenableFuture;
+    }
+
+    @Benchmark
+    public SendResult<Integer, byte[]> sendLibraryEventAwaitingAck() throws Exception {
+        SendResult<Integer, byte[]> sendResult = libraryEventProducer.sendLibraryEventAwaitingAck(libraryEvent, value).get();
+        clearSentRecordsPeriodically();
+        return sendResult;
+    }
+
+    @Benchmark
+    public ProducerRecord<Integer, byte[]> buildProducerRecord() {
+        return libraryEventProducer.buildProducerRecord(libraryEvent.getLibraryEventId(), value, "library-events");
+    }
+
+
+    private void clearSentRecordsPeriodically() {
+        if (++sends % CLEAR_SENT_RECORDS_EVERY == 0) {
+            mockProducer.clear();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.learnkafka.producer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serializer.LibraryEventSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Send throughput of {@link LibraryEventProducerPool} against an embedded broker for growing pool sizes.
+ * Sends are not awaited, so once the accumulators are full {@code send()} blocks on {@code buffer.memory}
+ * and the score is the rate the producers actually drain to the broker.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class LibraryEventProducerPoolBenchmark {
+
+    @Param({ "1", "2", "4", "8" })
+    public int poolSize;
+
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    private LibraryEventProducerPool libraryEventProducerPool;
+
+    private byte[] value;
+
+
+    @Setup
+    public void setUp() {
+        embeddedKafkaBroker = new EmbeddedKafkaBroker(1, false, 16, "library-events");
+        embeddedKafkaBroker.afterPropertiesSet();
+
+        Map<String, Object> producerProperties = new HashMap<>();
+        producerProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafkaBroker.getBrokersAsString());
+        producerProperties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, IntegerSerializer.class);
+        producerProperties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        producerProperties.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerProperties.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        libraryEventProducerPool = new LibraryEventProducerPool(producerProperties, "library-events", poolSize, new SimpleMeterRegistry());
+
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder()
+                        .bookId(456)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+        value = new LibraryEventSerializer(new ObjectMapper()).serialize("library-events", libraryEvent);
+    }
+
+    @TearDown
+    public void tearDown() {
+        libraryEventProducerPool.destroy();
+        embeddedKafkaBroker.destroy();
+    }
+
+
+    @Benchmark
+    public ListenableFuture<SendResult<Integer, byte[]>> send() {
+        Integer key = ThreadLocalRandom.current().nextInt(100_000);
+        KafkaTemplate<Integer, byte[]> kafkaTemplate = libraryEventProducerPool.kafkaTemplate(key);
+
+        return kafkaTemplate.send(kafkaTemplate.getDefaultTopic(), key, value);
+    }
+
+}
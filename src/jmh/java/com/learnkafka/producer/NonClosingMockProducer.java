@@ -0,0 +1,26 @@
+package com.learnkafka.producer;
+
+import java.time.Duration;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * {@link MockProducer} that survives {@code KafkaTemplate} closing it after every send, the way the
+ * close-safe producers handed out by {@code DefaultKafkaProducerFactory} do.
+ */
+public class NonClosingMockProducer<K, V> extends MockProducer<K, V> {
+
+    public NonClosingMockProducer(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        super(true, keySerializer, valueSerializer);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void close(Duration timeout) {
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.learnkafka.producer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives a skewed library event workload through a partitioner and reports the partition skew of every iteration
+ * (busiest partition bytes divided by the mean) as the {@code skew} secondary result. The workload is 30% NEW events without a key, 20% updates of one
+ * hot {@code libraryEventId} and the rest spread over 10 000 ids. {@code onNewBatch} is called every
+ * {@value #RECORDS_PER_BATCH} records so the sticky partitioner moves the way it does under a real producer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PartitionerSkewBenchmark {
+
+    private static final String TOPIC = "library-events";
+
+    private static final int PARTITIONS = 6;
+
+    private static final int RECORDS_PER_BATCH = 16;
+
+    private static final Integer HOT_KEY = 42;
+
+    @Param({ "default", "load-aware" })
+    public String partitionerType;
+
+    private Partitioner partitioner;
+
+    private Cluster cluster;
+
+    private Random random;
+
+    private IntegerSerializer integerSerializer;
+
+    private byte[] value;
+
+    private long records;
+
+
+    @Setup
+    public void setUp() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            partitions.add(new PartitionInfo(TOPIC, partition, node, new Node[] { node }, new Node[] { node }));
+        }
+        cluster = new Cluster("cluster", Collections.singletonList(node), partitions, Collections.emptySet(), Collections.emptySet());
+
+        if ("default".equals(partitionerType)) {
+            partitioner = new DefaultPartitioner();
+        } else {
+            partitioner = new LoadAwarePartitioner();
+            partitioner.configure(Collections.singletonMap(LoadAwarePartitioner.HOT_KEYS_CONFIG, HOT_KEY.toString()));
+        }
+
+        random = new Random(42);
+        integerSerializer = new IntegerSerializer();
+        value = new byte[200];
+    }
+
+    @TearDown
+    public void tearDown() {
+        partitioner.close();
+    }
+
+
+    @Benchmark
+    public int partition(PartitionLoad partitionLoad) {
+        int draw = random.nextInt(10);
+        Integer key = draw < 3 ? null : draw < 5 ? HOT_KEY : Integer.valueOf(random.nextInt(10_000));
+        byte[] keyBytes = integerSerializer.serialize(TOPIC, key);
+
+        int partition = partitioner.partition(TOPIC, key, keyBytes, null, value, cluster);
+        partitionLoad.bytesPerPartition[partition] += value.length;
+        if (++records % RECORDS_PER_BATCH == 0) {
+            partitioner.onNewBatch(TOPIC, cluster, partition);
+        }
+        return partition;
+    }
+
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PartitionLoad {
+
+        private final long[] bytesPerPartition = new long[PARTITIONS];
+
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            Arrays.fill(bytesPerPartition, 0);
+        }
+
+        public double skew() {
+            long total = 0;
+            long max = 0;
+            for (long bytes : bytesPerPartition) {
+                total += bytes;
+                max = Math.max(max, bytes);
+            }
+            return total == 0 ? 1.0 : max / ((double) total / PARTITIONS);
+        }
+
+    }
+
+}
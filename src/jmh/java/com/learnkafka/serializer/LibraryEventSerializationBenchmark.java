@@ -0,0 +1,72 @@
+package com.learnkafka.serializer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+
+/**
+ * Compares the former {@code writeValueAsString} + {@code StringSerializer} value path with
+ * {@link LibraryEventSerializer}. Run with {@code -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryEventSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private StringSerializer stringSerializer;
+
+    private LibraryEventSerializer libraryEventSerializer;
+
+    private LibraryEvent libraryEvent;
+
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        stringSerializer = new StringSerializer();
+        libraryEventSerializer = new LibraryEventSerializer(objectMapper);
+
+        libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder()
+                        .bookId(456)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+    }
+
+
+    @Benchmark
+    public byte[] writeValueAsStringThenStringSerializer() throws JsonProcessingException {
+        return stringSerializer.serialize("library-events", objectMapper.writeValueAsString(libraryEvent));
+    }
+
+    @Benchmark
+    public byte[] libraryEventSerializer() {
+        return libraryEventSerializer.serialize("library-events", libraryEvent);
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.learnkafka.validation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.LibraryEvent;
+
+/**
+ * Compares reading a request body with databind followed by Bean Validation, the {@code @Valid @RequestBody} path,
+ * with {@link LibraryEventReader}. Run with {@code -prof gc} to get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryEventReadBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private ValidatorFactory validatorFactory;
+
+    private Validator validator;
+
+    private LibraryEventReader libraryEventReader;
+
+    private byte[] body;
+
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        libraryEventReader = new LibraryEventReader(objectMapper.getFactory());
+
+        body = ("{\"libraryEventId\":123,\"libraryEventType\":\"UPDATE\",\"book\":{\"bookId\":456,"
+                + "\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Aleksandar Grahovac\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+
+    @Benchmark
+    public Set<ConstraintViolation<LibraryEvent>> databindAndBeanValidation() throws IOException {
+        return validator.validate(objectMapper.readValue(body, LibraryEvent.class));
+    }
+
+    @Benchmark
+    public LibraryEvent libraryEventReader() throws IOException {
+        return libraryEventReader.read(body);
+    }
+
+}
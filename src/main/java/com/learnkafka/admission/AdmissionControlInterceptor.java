@@ -0,0 +1,59 @@
+package com.learnkafka.admission;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Admits a single-event request only if its {@link InFlightBudget} has room for one library event, throwing an
+ * {@link AdmissionRejectedException} otherwise, which the controller advice answers with {@code 429 Too Many Requests}
+ * like every other admission rejection. The budget is released when the request completes, which for the
+ * {@code DeferredResult} endpoints is after the Kafka acknowledgement.
+ */
+@Slf4j
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private final InFlightBudget inFlightBudget;
+
+    private final long defaultRequestBytes;
+
+    private final String permitAttribute;
+
+
+    public AdmissionControlInterceptor(InFlightBudget inFlightBudget, long defaultRequestBytes) {
+        this.inFlightBudget = inFlightBudget;
+        this.defaultRequestBytes = defaultRequestBytes;
+        this.permitAttribute = AdmissionControlInterceptor.class.getName() + "." + inFlightBudget.getName();
+    }
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        long requestBytes = request.getContentLengthLong() >= 0 ? request.getContentLengthLong() : defaultRequestBytes;
+        if (!inFlightBudget.tryAcquire(1, requestBytes)) {
+            log.debug("Rejecting {} {}, {} budget exhausted", request.getMethod(), request.getRequestURI(), inFlightBudget.getName());
+            throw new AdmissionRejectedException(inFlightBudget.getName());
+        }
+
+        request.setAttribute(permitAttribute, requestBytes);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object requestBytes = request.getAttribute(permitAttribute);
+        if (requestBytes != null) {
+            request.removeAttribute(permitAttribute);
+            inFlightBudget.release(1, (Long) requestBytes);
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.learnkafka.admission;
+
+/**
+ * Thrown when an {@link InFlightBudget} has no room for a send, answered with {@code 429 Too Many Requests}.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AdmissionRejectedException(String budgetName) {
+        super("The " + budgetName + " in-flight budget is exhausted");
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.learnkafka.admission;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Charges every request to its client's bucket in the {@link ClientRateLimiter}, one event plus the request bytes,
+ * answering {@code 429 Too Many Requests} with a {@code Retry-After} header when the client is over its limit.
+ * <p>
+ * The client is the first of {@code clientHeaders} naming a client that has a limit of its own, falling back to the
+ * remote address. Header values are not authenticated, so an unknown one is not trusted: otherwise a client could
+ * get a fresh bucket by sending a new value with every request. The resolved client is stored in the
+ * {@link #CLIENT_ID_ATTRIBUTE} request attribute. Endpoints that carry many events per request register the
+ * interceptor with {@code chargeRequest} off and charge their events one by one instead.
+ */
+@Slf4j
+public class ClientRateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String CLIENT_ID_ATTRIBUTE = "com.learnkafka.admission.ClientRateLimitInterceptor.clientId";
+
+    private final ClientRateLimiter clientRateLimiter;
+
+    private final List<String> clientHeaders;
+
+    private final long defaultRequestBytes;
+
+    private final boolean chargeRequest;
+
+
+    public ClientRateLimitInterceptor(ClientRateLimiter clientRateLimiter, List<String> clientHeaders, long defaultRequestBytes) {
+        this(clientRateLimiter, clientHeaders, defaultRequestBytes, true);
+    }
+
+    public ClientRateLimitInterceptor(ClientRateLimiter clientRateLimiter, List<String> clientHeaders, long defaultRequestBytes,
+            boolean chargeRequest) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.clientHeaders = clientHeaders;
+        this.defaultRequestBytes = defaultRequestBytes;
+        this.chargeRequest = chargeRequest;
+    }
+
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        String clientId = clientId(request);
+        request.setAttribute(CLIENT_ID_ATTRIBUTE, clientId);
+        if (!chargeRequest) {
+            return true;
+        }
+
+        long requestBytes = request.getContentLengthLong() >= 0 ? request.getContentLengthLong() : defaultRequestBytes;
+        long waitNanos = clientRateLimiter.tryAcquire(clientId, 1, requestBytes);
+        if (waitNanos > 0) {
+            log.debug("Rejecting {} {}, client {} is over its rate limit", request.getMethod(), request.getRequestURI(), clientId);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds(waitNanos));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Client rate limit exceeded, please retry later");
+            return false;
+        }
+        return true;
+    }
+
+
+    public static String retryAfterSeconds(long waitNanos) {
+        return String.valueOf(Math.max(1, (waitNanos + 999_999_999) / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+
+    private String clientId(HttpServletRequest request) {
+        for (String clientHeader : clientHeaders) {
+            String clientId = request.getHeader(clientHeader);
+            if (StringUtils.hasText(clientId) && clientRateLimiter.hasClientLimit(clientId)) {
+                return clientId;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+}
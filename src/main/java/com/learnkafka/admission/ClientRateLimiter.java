@@ -0,0 +1,205 @@
+package com.learnkafka.admission;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Per-client token buckets over events and bytes. Buckets live in a {@link ConcurrentHashMap}, so lookups of
+ * different clients do not contend, and each bucket is a pair of GCRA "theoretical arrival times" advanced with a
+ * single CAS, so a check never locks. A client whose bucket is full is still admitted once with a request larger
+ * than its burst, so oversized requests are throttled instead of being rejected forever.
+ * <p>
+ * Limits are looked up per client with a fallback to the default limit and can be changed at runtime; buckets pick
+ * the new limit up immediately. Buckets that have been idle for {@code idleTimeoutMs} are full again and are evicted
+ * by {@link #evictIdleBuckets()}. At most {@code maxBuckets} clients get a bucket of their own; clients beyond that
+ * share one overflow bucket until idle buckets are evicted, so the map stays bounded however many ids are made up.
+ * Requests whose client could not be resolved share the {@link #ANONYMOUS_CLIENT_ID} bucket.
+ */
+public class ClientRateLimiter implements MeterBinder {
+
+    public static final String ANONYMOUS_CLIENT_ID = "anonymous";
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, RateLimit> clientLimits = new ConcurrentHashMap<>();
+
+    private volatile RateLimit defaultLimit;
+
+    private final TokenBucket overflowBucket;
+
+    private final long idleTimeoutNanos;
+
+    private final int maxBuckets;
+
+    private final LongSupplier nanoClock;
+
+    private final LongAdder rejections = new LongAdder();
+
+
+    public ClientRateLimiter(RateLimit defaultLimit, long idleTimeoutMs, int maxBuckets) {
+        this(defaultLimit, idleTimeoutMs, maxBuckets, System::nanoTime);
+    }
+
+    ClientRateLimiter(RateLimit defaultLimit, long idleTimeoutMs, int maxBuckets, LongSupplier nanoClock) {
+        this.defaultLimit = defaultLimit;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.maxBuckets = maxBuckets;
+        this.nanoClock = nanoClock;
+        this.overflowBucket = new TokenBucket(defaultLimit, nanoClock.getAsLong());
+    }
+
+
+    /**
+     * Takes {@code events} and {@code bytes} from the client's bucket. Returns 0 when the request is admitted,
+     * otherwise the nanoseconds until it would be.
+     */
+    public long tryAcquire(String clientId, long events, long bytes) {
+        if (clientId == null) {
+            clientId = ANONYMOUS_CLIENT_ID;
+        }
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            bucket = buckets.size() < maxBuckets
+                    ? buckets.computeIfAbsent(clientId, id -> new TokenBucket(limitFor(id), nanoClock.getAsLong()))
+                    : overflowBucket;
+        }
+
+        long waitNanos = bucket.tryAcquire(nanoClock.getAsLong(), events, bytes);
+        if (waitNanos > 0) {
+            rejections.increment();
+        }
+        return waitNanos;
+    }
+
+    public void setDefaultLimit(RateLimit rateLimit) {
+        defaultLimit = rateLimit;
+        applyLimits();
+    }
+
+    public void setClientLimit(String clientId, RateLimit rateLimit) {
+        clientLimits.put(clientId, rateLimit);
+        applyLimits();
+    }
+
+    public void removeClientLimit(String clientId) {
+        clientLimits.remove(clientId);
+        applyLimits();
+    }
+
+    /**
+     * Whether the client has a limit of its own, set through {@link RateLimitsEndpoint}.
+     */
+    public boolean hasClientLimit(String clientId) {
+        return clientLimits.containsKey(clientId);
+    }
+
+    public RateLimit getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public Map<String, RateLimit> getClientLimits() {
+        return Collections.unmodifiableMap(clientLimits);
+    }
+
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    public void evictIdleBuckets() {
+        long now = nanoClock.getAsLong();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isIdle(now, idleTimeoutNanos));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("library.events.ratelimit.buckets", buckets, Map::size)
+                .description("Clients with a rate limit bucket")
+                .register(meterRegistry);
+        FunctionCounter.builder("library.events.ratelimit.rejections", rejections, LongAdder::sum)
+                .description("Requests rejected with 429 because the client exceeded its rate limit")
+                .register(meterRegistry);
+    }
+
+
+    private RateLimit limitFor(String clientId) {
+        return clientLimits.getOrDefault(clientId, defaultLimit);
+    }
+
+    private void applyLimits() {
+        buckets.forEach((clientId, bucket) -> bucket.rateLimit = limitFor(clientId));
+        overflowBucket.rateLimit = defaultLimit;
+    }
+
+
+    static final class TokenBucket {
+
+        private volatile RateLimit rateLimit;
+
+        private final AtomicLong eventsArrival;
+
+        private final AtomicLong bytesArrival;
+
+        private TokenBucket(RateLimit rateLimit, long now) {
+            this.rateLimit = rateLimit;
+            this.eventsArrival = new AtomicLong(now);
+            this.bytesArrival = new AtomicLong(now);
+        }
+
+        private long tryAcquire(long now, long events, long bytes) {
+            RateLimit limit = rateLimit;
+            long burstNanos = (long) (limit.getBurstSeconds() * 1_000_000_000d);
+
+            long eventsWait = take(eventsArrival, now, events, limit.getEventsPerSecond(), burstNanos);
+            if (eventsWait > 0) {
+                return eventsWait;
+            }
+            long bytesWait = take(bytesArrival, now, bytes, limit.getBytesPerSecond(), burstNanos);
+            if (bytesWait > 0) {
+                eventsArrival.addAndGet(-cost(events, limit.getEventsPerSecond()));
+            }
+            return bytesWait;
+        }
+
+        private boolean isIdle(long now, long idleTimeoutNanos) {
+            return now - eventsArrival.get() > idleTimeoutNanos && now - bytesArrival.get() > idleTimeoutNanos;
+        }
+
+        /**
+         * GCRA: the arrival time moves {@code cost} ahead of {@code max(arrival, now)} and the request fits as long as
+         * it stays within {@code burstNanos} of now.
+         */
+        private static long take(AtomicLong arrival, long now, long units, double perSecond, long burstNanos) {
+            if (perSecond <= 0 || units <= 0) {
+                return 0;
+            }
+            long cost = cost(units, perSecond);
+            while (true) {
+                long current = arrival.get();
+                long next = Math.max(current, now) + cost;
+                if (next - now > burstNanos && current > now) {
+                    return Math.min(next - now - burstNanos, current - now);
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private static long cost(long units, double perSecond) {
+            return perSecond <= 0 ? 0 : (long) (units * 1_000_000_000d / perSecond);
+        }
+
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.learnkafka.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Lock-free budget of library events and their bytes that may be in flight at the same time. Every caller charges
+ * one unit per library event, whether it arrived alone or in a group. A single group larger than the budget is still
+ * admitted when nothing else is in flight, so oversized requests are throttled instead of being rejected forever.
+ */
+public class InFlightBudget implements MeterBinder {
+
+    private final String name;
+
+    private final long maxEvents;
+
+    private final long maxBytes;
+
+    private final AtomicLong inFlightEvents = new AtomicLong();
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    private final LongAdder rejections = new LongAdder();
+
+
+    public InFlightBudget(String name, long maxEvents, long maxBytes) {
+        this.name = name;
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+    }
+
+
+    public boolean tryAcquire(long events, long bytes) {
+        if (!tryAdd(inFlightEvents, events, maxEvents)) {
+            rejections.increment();
+            return false;
+        }
+        if (!tryAdd(inFlightBytes, bytes, maxBytes)) {
+            inFlightEvents.addAndGet(-events);
+            rejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Like {@link #tryAcquire(long, long)}, returning the release as an action that has an effect only the first
+     * time it runs, or {@code null} when the budget is exhausted. Meant for releases that happen on another thread,
+     * for example in the callback of a Kafka send, where more than one path may end up running it.
+     */
+    public Runnable tryAcquirePermit(long events, long bytes) {
+        if (!tryAcquire(events, bytes)) {
+            return null;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release(events, bytes);
+            }
+        };
+    }
+
+    public void release(long events, long bytes) {
+        inFlightBytes.addAndGet(-bytes);
+        inFlightEvents.addAndGet(-events);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getInFlightEvents() {
+        return inFlightEvents.get();
+    }
+
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        Gauge.builder("library.events.admission.inflight.events", inFlightEvents, AtomicLong::get)
+                .description("Library events admitted and not yet completed")
+                .tag("budget", name)
+                .register(meterRegistry);
+        Gauge.builder("library.events.admission.inflight.bytes", inFlightBytes, AtomicLong::get)
+                .description("Library event bytes admitted and not yet completed")
+                .tag("budget", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("library.events.admission.rejections", rejections, LongAdder::sum)
+                .description("Requests rejected with 429 because the budget was exhausted")
+                .tag("budget", name)
+                .register(meterRegistry);
+    }
+
+
+    private static boolean tryAdd(AtomicLong counter, long delta, long limit) {
+        long current;
+        do {
+            current = counter.get();
+            if (current > 0 && current + delta > limit) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + delta));
+        return true;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.learnkafka.admission;
+
+import lombok.Value;
+
+/**
+ * Sustained events and bytes per second a client may send, and how many seconds worth of either it may burst.
+ * A rate of zero or less is unlimited.
+ */
+@Value
+public class RateLimit {
+
+    double eventsPerSecond;
+
+    double bytesPerSecond;
+
+    double burstSeconds;
+
+}
@@ -0,0 +1,62 @@
+package com.learnkafka.admission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@code /actuator/ratelimits}: shows the client rate limits and changes them at runtime. A write without a client
+ * selector changes the default limit; one with a selector overrides the limit of that client until it is deleted.
+ * The operations are not authenticated, so the endpoint is only reachable on the management port.
+ */
+@Endpoint(id = "ratelimits")
+public class RateLimitsEndpoint {
+
+    private final ClientRateLimiter clientRateLimiter;
+
+
+    public RateLimitsEndpoint(ClientRateLimiter clientRateLimiter) {
+        this.clientRateLimiter = clientRateLimiter;
+    }
+
+
+    @ReadOperation
+    public Map<String, Object> rateLimits() {
+        Map<String, Object> rateLimits = new LinkedHashMap<>();
+        rateLimits.put("default", clientRateLimiter.getDefaultLimit());
+        rateLimits.put("clients", clientRateLimiter.getClientLimits());
+        rateLimits.put("buckets", clientRateLimiter.getBucketCount());
+        return rateLimits;
+    }
+
+    @WriteOperation
+    public RateLimit setDefaultLimit(double eventsPerSecond, double bytesPerSecond, @Nullable Double burstSeconds) {
+        RateLimit rateLimit = new RateLimit(eventsPerSecond, bytesPerSecond, burstSeconds(burstSeconds));
+        clientRateLimiter.setDefaultLimit(rateLimit);
+        return rateLimit;
+    }
+
+    @WriteOperation
+    public RateLimit setClientLimit(@Selector String clientId, double eventsPerSecond, double bytesPerSecond, @Nullable Double burstSeconds) {
+        RateLimit rateLimit = new RateLimit(eventsPerSecond, bytesPerSecond, burstSeconds(burstSeconds));
+        clientRateLimiter.setClientLimit(clientId, rateLimit);
+        return rateLimit;
+    }
+
+    @DeleteOperation
+    public void removeClientLimit(@Selector String clientId) {
+        clientRateLimiter.removeClientLimit(clientId);
+    }
+
+
+    private double burstSeconds(Double burstSeconds) {
+        return burstSeconds != null ? burstSeconds : clientRateLimiter.getDefaultLimit().getBurstSeconds();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.learnkafka.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.learnkafka.admission.AdmissionControlInterceptor;
+import com.learnkafka.admission.InFlightBudget;
+
+/**
+ * Both budgets count library events. The synchronous budget is charged one event per request by an
+ * {@link AdmissionControlInterceptor} on the single-event endpoint and released when the {@code DeferredResult}
+ * completes, that is on the Kafka acknowledgement; the transactional endpoint blocks until the commit and charges it
+ * per event of the group. The asynchronous endpoints answer before the acknowledgement, so the controllers charge the
+ * asynchronous budget per library event and serialized size, or request size when serialization happens on the
+ * dispatcher lane, and the producer releases it from the send callback. Rejections from either budget are answered
+ * by the controller advice.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "library-events.admission", name = "enabled", havingValue = "true")
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    public static final String SYNCHRONOUS_BUDGET = "synchronousInFlightBudget";
+
+    public static final String ASYNCHRONOUS_BUDGET = "asynchronousInFlightBudget";
+
+    @Value("${library-events.admission.synchronous.max-events:200}")
+    private long synchronousMaxEvents;
+
+    @Value("${library-events.admission.synchronous.max-bytes:8388608}")
+    private long synchronousMaxBytes;
+
+    @Value("${library-events.admission.asynchronous.max-events:10000}")
+    private long asynchronousMaxEvents;
+
+    @Value("${library-events.admission.asynchronous.max-bytes:33554432}")
+    private long asynchronousMaxBytes;
+
+    @Value("${library-events.admission.default-request-bytes:1024}")
+    private long defaultRequestBytes;
+
+
+    @Bean(SYNCHRONOUS_BUDGET)
+    public InFlightBudget synchronousInFlightBudget() {
+        return new InFlightBudget("synchronous", synchronousMaxEvents, synchronousMaxBytes);
+    }
+
+    @Bean(ASYNCHRONOUS_BUDGET)
+    public InFlightBudget asynchronousInFlightBudget() {
+        return new InFlightBudget("asynchronous", asynchronousMaxEvents, asynchronousMaxBytes);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(synchronousInFlightBudget(), defaultRequestBytes))
+                .addPathPatterns("/v1/synchronous-libraryevent");
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.learnkafka.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -18,4 +20,13 @@ public class AutoCreateConfig {
                 .build();
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "library-events.retry", name = "enabled", havingValue = "true")
+    public NewTopic libraryEventsDeadLetter(@Value("${library-events.retry.dead-letter-topic:library-events.DLT}") String deadLetterTopic) {
+        return TopicBuilder.name(deadLetterTopic)
+                .partitions(3)
+                .replicas(3)
+                .build();
+    }
+
 }
@@ -0,0 +1,38 @@
+package com.learnkafka.config;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.validation.LibraryEventHttpMessageConverter;
+import com.learnkafka.validation.LibraryEventReader;
+
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class LibraryEventReaderConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+
+    public LibraryEventReaderConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+
+    @Bean
+    public LibraryEventReader libraryEventReader() {
+        return new LibraryEventReader(objectMapper.getFactory());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new LibraryEventHttpMessageConverter(libraryEventReader()));
+    }
+
+}
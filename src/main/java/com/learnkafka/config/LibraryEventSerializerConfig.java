@@ -0,0 +1,21 @@
+package com.learnkafka.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.serializer.LibraryEventSerializer;
+
+/**
+ * Builds the Kafka value serializer from the application {@link ObjectMapper}, so records are written with the same
+ * Jackson settings as the HTTP responses.
+ */
+@Configuration
+public class LibraryEventSerializerConfig {
+
+    @Bean
+    public LibraryEventSerializer libraryEventSerializer(ObjectMapper objectMapper) {
+        return new LibraryEventSerializer(objectMapper);
+    }
+
+}
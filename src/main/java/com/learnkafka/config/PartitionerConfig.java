@@ -0,0 +1,52 @@
+package com.learnkafka.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.learnkafka.producer.LoadAwarePartitioner;
+
+/**
+ * Installs the {@link LoadAwarePartitioner} on every producer factory that applies the
+ * {@link DefaultKafkaProducerFactoryCustomizer}s. It gives up per-key ordering for the configured hot keys, so it is
+ * opt-in; without it the Kafka default partitioner is used.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "library-events.partitioner", name = "enabled", havingValue = "true")
+public class PartitionerConfig {
+
+    @Value("${library-events.partitioner.hot-keys:}")
+    private String hotKeys;
+
+    @Value("${library-events.partitioner.hot-key-partitions:2}")
+    private int hotKeyPartitions;
+
+    @Value("${library-events.partitioner.window-ms:1000}")
+    private long windowMs;
+
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer loadAwarePartitionerCustomizer() {
+        return producerFactory -> producerFactory.updateConfigs(producerConfigs());
+    }
+
+    /**
+     * The producer properties selecting and configuring the partitioner, for producers that are not built from a
+     * {@code DefaultKafkaProducerFactory}.
+     */
+    public Map<String, Object> producerConfigs() {
+        Map<String, Object> producerConfigs = new HashMap<>();
+        producerConfigs.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, LoadAwarePartitioner.class);
+        producerConfigs.put(LoadAwarePartitioner.HOT_KEYS_CONFIG, hotKeys);
+        producerConfigs.put(LoadAwarePartitioner.HOT_KEY_PARTITIONS_CONFIG, hotKeyPartitions);
+        producerConfigs.put(LoadAwarePartitioner.WINDOW_MS_CONFIG, windowMs);
+        return producerConfigs;
+    }
+
+}
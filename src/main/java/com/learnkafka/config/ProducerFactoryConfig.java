@@ -0,0 +1,30 @@
+package com.learnkafka.config;
+
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import com.learnkafka.producer.LiveProducers;
+
+/**
+ * Boot applies the {@link DefaultKafkaProducerFactoryCustomizer}s to the default producer factory only. The producer
+ * pool, the priority lanes and the transactional producer build their own factories and apply the same customizers,
+ * so their producers are tracked by {@link LiveProducers} and get the partitioner and the Micrometer client metrics
+ * as well.
+ */
+@Configuration
+public class ProducerFactoryConfig {
+
+    @Bean
+    public LiveProducers liveProducers() {
+        return new LiveProducers();
+    }
+
+    @Bean
+    @SuppressWarnings("unchecked")
+    public DefaultKafkaProducerFactoryCustomizer liveProducersCustomizer(LiveProducers liveProducers) {
+        return producerFactory -> ((DefaultKafkaProducerFactory<Object, Object>) producerFactory).addListener(liveProducers);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.learnkafka.config;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.learnkafka.admission.ClientRateLimitInterceptor;
+import com.learnkafka.admission.ClientRateLimiter;
+import com.learnkafka.admission.RateLimit;
+import com.learnkafka.admission.RateLimitsEndpoint;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "library-events.rate-limit", name = "enabled", havingValue = "true")
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    @Value("${library-events.rate-limit.events-per-second:500}")
+    private double eventsPerSecond;
+
+    @Value("${library-events.rate-limit.bytes-per-second:1048576}")
+    private double bytesPerSecond;
+
+    @Value("${library-events.rate-limit.burst-seconds:2}")
+    private double burstSeconds;
+
+    @Value("${library-events.rate-limit.client-headers:X-Api-Key,X-Client-Source}")
+    private List<String> clientHeaders;
+
+    @Value("${library-events.rate-limit.idle-timeout-ms:300000}")
+    private long idleTimeoutMs;
+
+    @Value("${library-events.rate-limit.max-buckets:10000}")
+    private int maxBuckets;
+
+    @Value("${library-events.admission.default-request-bytes:1024}")
+    private long defaultRequestBytes;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ScheduledExecutorService evictor;
+
+
+    public RateLimitConfig(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+
+    @Bean
+    public ClientRateLimiter clientRateLimiter() {
+        ClientRateLimiter clientRateLimiter = new ClientRateLimiter(new RateLimit(eventsPerSecond, bytesPerSecond, burstSeconds), idleTimeoutMs,
+                maxBuckets);
+        meterRegistry.ifAvailable(clientRateLimiter::bindTo);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-events-rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(clientRateLimiter::evictIdleBuckets, idleTimeoutMs, idleTimeoutMs, TimeUnit.MILLISECONDS);
+        return clientRateLimiter;
+    }
+
+    @Bean
+    public RateLimitsEndpoint rateLimitsEndpoint(ClientRateLimiter clientRateLimiter) {
+        return new RateLimitsEndpoint(clientRateLimiter);
+    }
+
+    /**
+     * The bulk and transactional endpoints carry many events per request, so their controllers charge every event
+     * to the client themselves and the interceptor only resolves the client there.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ClientRateLimitInterceptor(clientRateLimiter(), clientHeaders, defaultRequestBytes))
+                .addPathPatterns("/v1/synchronous-libraryevent", "/v1/asynchronous-libraryevent", "/v1/asynchronous-libraryevent-producerrecord")
+                .order(-1);
+        registry.addInterceptor(new ClientRateLimitInterceptor(clientRateLimiter(), clientHeaders, defaultRequestBytes, false))
+                .addPathPatterns("/v1/libraryevents/bulk", "/v1/libraryevents/transactional")
+                .order(-1);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+    }
+
+}
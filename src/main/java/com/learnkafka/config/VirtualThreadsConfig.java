@@ -0,0 +1,63 @@
+package com.learnkafka.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Experimental: runs Tomcat request processing, and with it the blocking producer calls made by the controllers, on
+ * virtual threads instead of the platform thread pool. The project is built for Java 17 and Spring Boot 2.6, neither
+ * of which supports virtual threads, so the executor is looked up reflectively and the mode needs a Java 21 runtime;
+ * on an older one the startup fails.
+ * <p>
+ * A virtual thread blocking inside a {@code synchronized} block pins its carrier thread. Places on the request path
+ * that do, found by reading the bytecode of the versions in use:
+ * <ul>
+ * <li>Tomcat 9 {@code NioSocketWrapper} blocking reads and writes wait on a monitor, so a slow client pins a carrier
+ * for as long as its request body or response takes. This is the main reason the mode stays experimental.</li>
+ * <li>{@code KafkaProducer.send()} waits for missing topic metadata in the {@code synchronized}
+ * {@code ProducerMetadata.awaitUpdate}, for up to {@code max.block.ms}. Enable {@code library-events.warm-up} so the
+ * metadata is fetched before requests arrive.</li>
+ * <li>{@code RecordAccumulator.append} holds a per-partition monitor only while appending to a batch; waiting for
+ * buffer memory happens in {@code BufferPool} under a {@code ReentrantLock} and does not pin.</li>
+ * </ul>
+ * The record serializer keeps no {@code ThreadLocal} state and {@link com.learnkafka.spool.LibraryEventSpool} uses a
+ * {@code ReentrantLock}. Run with {@code -Djdk.tracePinnedThreads=short} to log the stack of every pinned wait.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "library-events.virtual-threads", name = "enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadRequestExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadRequestExecutor) {
+        log.warn("Handling requests on virtual threads, an experimental mode: blocking Tomcat I/O and Kafka metadata waits pin carrier threads");
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadRequestExecutor);
+    }
+
+
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running on " + System.getProperty("java.version"), e);
+        }
+    }
+
+}
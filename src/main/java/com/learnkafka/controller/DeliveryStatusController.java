@@ -0,0 +1,75 @@
+package com.learnkafka.controller;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.learnkafka.domain.DeliveryStatus;
+import com.learnkafka.domain.DeliveryStatusResult;
+import com.learnkafka.status.DeliveryStatusStore;
+
+/**
+ * Looks up the outcome of asynchronous sends by the tracking id returned in the
+ * {@value #TRACKING_ID_HEADER} header of the asynchronous endpoints. Unknown and evicted ids are
+ * {@link DeliveryStatus#UNKNOWN}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "library-events.delivery-status", name = "enabled", havingValue = "true")
+public class DeliveryStatusController {
+
+    public static final String TRACKING_ID_HEADER = "Library-Event-Tracking-Id";
+
+    public static final String STATUS_PATH = "/v1/libraryevent/status";
+
+    @Value("${library-events.delivery-status.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Autowired
+    private DeliveryStatusStore deliveryStatusStore;
+
+
+    @GetMapping(value = STATUS_PATH + "/{trackingId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<DeliveryStatusResult> getDeliveryStatus(@PathVariable String trackingId) {
+        DeliveryStatusResult deliveryStatusResult = lookUp(trackingId);
+
+        HttpStatus httpStatus = deliveryStatusResult.getStatus() == DeliveryStatus.UNKNOWN ? HttpStatus.NOT_FOUND : HttpStatus.OK;
+        return ResponseEntity.status(httpStatus).body(deliveryStatusResult);
+    }
+
+    @GetMapping(value = STATUS_PATH, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getDeliveryStatuses(@RequestParam("ids") List<String> trackingIds) {
+        if (trackingIds.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass at most " + maxBatchSize + " tracking ids");
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(trackingIds.stream()
+                .map(this::lookUp)
+                .collect(Collectors.toList()));
+    }
+
+
+    private DeliveryStatusResult lookUp(String trackingId) {
+        DeliveryStatusResult deliveryStatusResult = deliveryStatusStore.get(trackingId);
+        if (deliveryStatusResult == null) {
+            return DeliveryStatusResult.builder()
+                    .trackingId(trackingId)
+                    .status(DeliveryStatus.UNKNOWN)
+                    .build();
+        }
+        return deliveryStatusResult;
+    }
+
+}
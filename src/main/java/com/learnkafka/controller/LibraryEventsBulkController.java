@@ -0,0 +1,171 @@
+package com.learnkafka.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.kafka.common.KafkaException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.learnkafka.admission.ClientRateLimitInterceptor;
+import com.learnkafka.admission.ClientRateLimiter;
+import com.learnkafka.admission.InFlightBudget;
+import com.learnkafka.config.AdmissionControlConfig;
+import com.learnkafka.domain.BulkItemResult;
+import com.learnkafka.domain.BulkItemStatus;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.id.LibraryEventIdExhaustedException;
+import com.learnkafka.id.LibraryEventIdGenerator;
+import com.learnkafka.producer.LibraryEventProducer;
+import com.learnkafka.validation.LibraryEventReader;
+import com.learnkafka.validation.LibraryEventValidationException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Accepts many library events in one request, either as a JSON array or as newline delimited JSON.
+ * The body is read incrementally with {@link LibraryEventReader} and every event is validated and sent as soon
+ * as it is parsed, so the request is never buffered as a whole. With admission control enabled every event is charged
+ * to the asynchronous budget on its own, and events that do not fit are rejected individually. The same goes for the
+ * client's rate limit. A send that fails, including one refused by a full retry queue or priority lane, fails only its
+ * own item, so the response always reports every item that was read.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@Slf4j
+public class LibraryEventsBulkController {
+
+    @Autowired
+    private LibraryEventProducer libraryEventProducer;
+
+    @Autowired
+    private LibraryEventReader libraryEventReader;
+
+    @Autowired(required = false)
+    private LibraryEventIdGenerator libraryEventIdGenerator;
+
+    @Autowired(required = false)
+    @Qualifier(AdmissionControlConfig.ASYNCHRONOUS_BUDGET)
+    private InFlightBudget asynchronousInFlightBudget;
+
+    @Autowired(required = false)
+    private ClientRateLimiter clientRateLimiter;
+
+
+    @PostMapping(value = "/v1/libraryevents/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult>> postBulkLibraryEvents(InputStream body,
+            @RequestAttribute(name = ClientRateLimitInterceptor.CLIENT_ID_ATTRIBUTE, required = false) String clientId) throws IOException {
+        return ResponseEntity.status(HttpStatus.OK).body(processBulkLibraryEvents(body, LibraryEventType.NEW, clientId));
+    }
+
+    @PutMapping(value = "/v1/libraryevents/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult>> putBulkLibraryEvents(InputStream body,
+            @RequestAttribute(name = ClientRateLimitInterceptor.CLIENT_ID_ATTRIBUTE, required = false) String clientId) throws IOException {
+        return ResponseEntity.status(HttpStatus.OK).body(processBulkLibraryEvents(body, LibraryEventType.UPDATE, clientId));
+    }
+
+
+    private List<BulkItemResult> processBulkLibraryEvents(InputStream body, LibraryEventType libraryEventType, String clientId)
+            throws IOException {
+        List<BulkItemResult> results = new ArrayList<>();
+        int index = 0;
+
+        try (JsonParser parser = libraryEventReader.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            boolean jsonArray = token == JsonToken.START_ARRAY;
+            if (jsonArray) {
+                token = parser.nextToken();
+            }
+            while (token != null && !(jsonArray && token == JsonToken.END_ARRAY)) {
+                results.add(processBulkItem(index, parser, libraryEventType, clientId));
+                index++;
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            log.info("Malformed bulk request at item {}: {}", index, e.getOriginalMessage());
+            results.add(buildResult(index, null, BulkItemStatus.REJECTED, e.getOriginalMessage()));
+        }
+
+        return results;
+    }
+
+    private BulkItemResult processBulkItem(int index, JsonParser parser, LibraryEventType libraryEventType, String clientId)
+            throws IOException {
+        LibraryEvent libraryEvent;
+        try {
+            libraryEvent = libraryEventReader.readValue(parser);
+        } catch (LibraryEventValidationException e) {
+            return buildResult(index, e.getLibraryEvent().getLibraryEventId(), BulkItemStatus.REJECTED, e.getMessage());
+        }
+
+        if (libraryEvent == null) {
+            return buildResult(index, null, BulkItemStatus.REJECTED, "libraryEvent-must not be null");
+        }
+
+        if (libraryEventType == LibraryEventType.UPDATE && libraryEvent.getLibraryEventId() == null) {
+            return buildResult(index, null, BulkItemStatus.REJECTED, "Please pass the LibraryEventId");
+        }
+
+        if (libraryEventIdGenerator != null && libraryEventType == LibraryEventType.NEW && libraryEvent.getLibraryEventId() != null
+                && LibraryEventIdGenerator.isGenerated(libraryEvent.getLibraryEventId())) {
+            return buildResult(index, libraryEvent.getLibraryEventId(), BulkItemStatus.REJECTED, LibraryEventIdGenerator.GENERATED_RANGE_ERROR);
+        }
+
+        libraryEvent.setLibraryEventType(libraryEventType);
+        if (libraryEventIdGenerator != null && libraryEvent.getLibraryEventId() == null) {
+            try {
+                libraryEvent.setLibraryEventId(libraryEventIdGenerator.nextId());
+            } catch (LibraryEventIdExhaustedException e) {
+                return buildResult(index, null, BulkItemStatus.REJECTED, e.getMessage());
+            }
+        }
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        if (clientRateLimiter != null && clientRateLimiter.tryAcquire(clientId, 1, value.length) > 0) {
+            return buildResult(index, libraryEvent.getLibraryEventId(), BulkItemStatus.REJECTED, "Client rate limit exceeded, please retry later");
+        }
+        Runnable onCompletion = null;
+        if (asynchronousInFlightBudget != null) {
+            onCompletion = asynchronousInFlightBudget.tryAcquirePermit(1, value.length);
+            if (onCompletion == null) {
+                return buildResult(index, libraryEvent.getLibraryEventId(), BulkItemStatus.REJECTED,
+                        "Too many library events in flight, please retry later");
+            }
+        }
+        try {
+            libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value, null, onCompletion);
+        } catch (KafkaException | RejectedExecutionException e) {
+            log.error("Error sending bulk item {}: {}", index, e.getMessage());
+            return buildResult(index, libraryEvent.getLibraryEventId(), BulkItemStatus.FAILED, e.getMessage());
+        }
+
+        return buildResult(index, libraryEvent.getLibraryEventId(), BulkItemStatus.ACCEPTED, null);
+    }
+
+    private BulkItemResult buildResult(int index, Integer libraryEventId, BulkItemStatus status, String error) {
+        return BulkItemResult.builder()
+                .index(index)
+                .libraryEventId(libraryEventId)
+                .status(status)
+                .error(error)
+                .build();
+    }
+
+}
@@ -1,11 +1,15 @@
 package com.learnkafka.controller;
 
-import java.util.concurrent.ExecutionException;
+import java.net.URI;
 import java.util.concurrent.TimeoutException;
 
-import javax.validation.Valid;
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -13,68 +17,232 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.learnkafka.admission.AdmissionRejectedException;
+import com.learnkafka.admission.InFlightBudget;
+import com.learnkafka.config.AdmissionControlConfig;
 import com.learnkafka.domain.LibraryEvent;
 import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.id.LibraryEventIdGenerator;
 import com.learnkafka.producer.LibraryEventProducer;
-
+import com.learnkafka.producer.StripedLibraryEventDispatcher;
+import com.learnkafka.status.DeliveryStatusStore;
+import com.learnkafka.validation.LibraryEventValidationException;
+
+/**
+ * Library event endpoints. Request bodies are read and validated by
+ * {@link com.learnkafka.validation.LibraryEventHttpMessageConverter} rather than {@code @Valid}.
+ */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class LibraryEventsController {
 
+    private static final long SEND_TIMEOUT_MS = 1000;
+
+    @Value("${library-events.admission.default-request-bytes:1024}")
+    private long defaultRequestBytes;
+
     @Autowired
     private LibraryEventProducer libraryEventProducer;
 
+    @Autowired(required = false)
+    private StripedLibraryEventDispatcher stripedLibraryEventDispatcher;
+
+    @Autowired(required = false)
+    private LibraryEventIdGenerator libraryEventIdGenerator;
+
+    @Autowired(required = false)
+    private DeliveryStatusStore deliveryStatusStore;
+
+    @Autowired(required = false)
+    @Qualifier(AdmissionControlConfig.ASYNCHRONOUS_BUDGET)
+    private InFlightBudget asynchronousInFlightBudget;
+
 
     @PostMapping(value = "/v1/synchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<LibraryEvent> postSynchronousLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent)
-            throws JsonProcessingException, ExecutionException, InterruptedException, TimeoutException {
+    public DeferredResult<ResponseEntity<?>> postSynchronousLibraryEvent(@RequestBody LibraryEvent libraryEvent) {
         libraryEvent.setLibraryEventType(LibraryEventType.NEW);
-        libraryEventProducer.sendSynchronousLibraryEventUsingTimeout(libraryEvent);
+        assignLibraryEventId(libraryEvent);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent);
+        return sendAwaitingAck(libraryEvent);
     }
 
     @PostMapping(value = "/v1/asynchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<LibraryEvent> postAsynchronusLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent) throws JsonProcessingException {
+    public ResponseEntity<?> postAsynchronusLibraryEvent(@RequestBody LibraryEvent libraryEvent, HttpServletRequest request) {
         libraryEvent.setLibraryEventType(LibraryEventType.NEW);
-        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent);
+        assignLibraryEventId(libraryEvent);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent);
+        return sendAsynchronously(libraryEvent, request, libraryEventProducer::sendAsynchronusLibraryEvent);
     }
 
     @PostMapping(value = "/v1/asynchronous-libraryevent-producerrecord", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<LibraryEvent> postAsynchronusLibraryEventWithProducerRecord(@Valid @RequestBody LibraryEvent libraryEvent)
-            throws JsonProcessingException {
+    public ResponseEntity<?> postAsynchronusLibraryEventWithProducerRecord(@RequestBody LibraryEvent libraryEvent, HttpServletRequest request) {
         libraryEvent.setLibraryEventType(LibraryEventType.NEW);
-        libraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent);
+        assignLibraryEventId(libraryEvent);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent);
+        return sendAsynchronously(libraryEvent, request, libraryEventProducer::sendAsynchronusLibraryEventUsingProducerRecord);
     }
 
     @PutMapping(value = "/v1/synchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> putSynchronousLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent)
-            throws JsonProcessingException, ExecutionException, InterruptedException, TimeoutException {
+    public DeferredResult<ResponseEntity<?>> putSynchronousLibraryEvent(@RequestBody LibraryEvent libraryEvent) {
         if (libraryEvent.getLibraryEventId() == null) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId");
+            DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>();
+            deferredResult.setResult(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId"));
+            return deferredResult;
         }
 
         libraryEvent.setLibraryEventType(LibraryEventType.UPDATE);
-        libraryEventProducer.sendSynchronousLibraryEventUsingTimeout(libraryEvent);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent);
+        return sendAwaitingAck(libraryEvent);
     }
 
     @PutMapping(value = "/v1/asynchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> putAsynchronusLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent) throws JsonProcessingException {
+    public ResponseEntity<?> putAsynchronusLibraryEvent(@RequestBody LibraryEvent libraryEvent, HttpServletRequest request) {
         if (libraryEvent.getLibraryEventId() == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId");
         }
 
         libraryEvent.setLibraryEventType(LibraryEventType.UPDATE);
-        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent);
+        return sendAsynchronously(libraryEvent, request, libraryEventProducer::sendAsynchronusLibraryEvent);
+    }
+
+
+    private void assignLibraryEventId(LibraryEvent libraryEvent) {
+        if (libraryEventIdGenerator == null) {
+            return;
+        }
+        if (libraryEvent.getLibraryEventId() == null) {
+            libraryEvent.setLibraryEventId(libraryEventIdGenerator.nextId());
+        } else if (LibraryEventIdGenerator.isGenerated(libraryEvent.getLibraryEventId())) {
+            throw new LibraryEventValidationException(LibraryEventIdGenerator.GENERATED_RANGE_ERROR, libraryEvent);
+        }
+    }
+
+    private String trackDelivery(LibraryEvent libraryEvent) {
+        return deliveryStatusStore != null ? deliveryStatusStore.track(libraryEvent.getLibraryEventId()) : null;
+    }
+
+    /**
+     * Charges the event to the asynchronous budget, if admission control is enabled, and hands the sender the release,
+     * so the budget is held until Kafka acknowledges the event rather than until the response is written.
+     * <p>
+     * Without the dispatcher the event is serialized here and the same bytes are sent and written as the response.
+     * With the dispatcher, serialization moves to the dispatcher lane along with the send, the budget is charged the
+     * request size instead, and the response is written from the parsed event.
+     * <p>
+     * A send that is rejected, or fails before it reaches the producer, marks its tracking id failed.
+     */
+    private ResponseEntity<?> sendAsynchronously(LibraryEvent libraryEvent, HttpServletRequest request, AsynchronousSender sender) {
+        String trackingId = trackDelivery(libraryEvent);
+        try {
+            return sendAsynchronously(libraryEvent, request, sender, trackingId);
+        } catch (RuntimeException e) {
+            failDelivery(trackingId, e);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<?> sendAsynchronously(LibraryEvent libraryEvent, HttpServletRequest request, AsynchronousSender sender,
+            String trackingId) {
+        if (stripedLibraryEventDispatcher == null) {
+            byte[] value = libraryEventProducer.serialize(libraryEvent);
+            Runnable onCompletion = admit(value.length);
+            try {
+                sender.send(libraryEvent, value, trackingId, onCompletion);
+            } catch (RuntimeException e) {
+                release(onCompletion);
+                throw e;
+            }
+            return created(value, trackingId);
+        }
+
+        Runnable onCompletion = admit(request.getContentLengthLong() >= 0 ? request.getContentLengthLong() : defaultRequestBytes);
+        try {
+            stripedLibraryEventDispatcher.dispatch(libraryEvent, event -> {
+                byte[] value;
+                try {
+                    value = libraryEventProducer.serialize(event);
+                } catch (RuntimeException e) {
+                    release(onCompletion);
+                    failDelivery(trackingId, e);
+                    throw e;
+                }
+                sender.send(event, value, trackingId, onCompletion);
+            });
+        } catch (RuntimeException e) {
+            release(onCompletion);
+            throw e;
+        }
+        return created(libraryEvent, trackingId);
+    }
+
+    private void failDelivery(String trackingId, Throwable ex) {
+        if (deliveryStatusStore != null) {
+            deliveryStatusStore.failed(trackingId, ex);
+        }
+    }
+
+    private Runnable admit(long bytes) {
+        if (asynchronousInFlightBudget == null) {
+            return null;
+        }
+        Runnable permit = asynchronousInFlightBudget.tryAcquirePermit(1, bytes);
+        if (permit == null) {
+            throw new AdmissionRejectedException(asynchronousInFlightBudget.getName());
+        }
+        return permit;
+    }
+
+    private void release(Runnable onCompletion) {
+        if (onCompletion != null) {
+            onCompletion.run();
+        }
+    }
+
+    private DeferredResult<ResponseEntity<?>> sendAwaitingAck(LibraryEvent libraryEvent) {
+        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(SEND_TIMEOUT_MS);
+        deferredResult.onTimeout(() -> deferredResult.setErrorResult(
+                new TimeoutException("No acknowledgement from Kafka within " + SEND_TIMEOUT_MS + " ms")));
+
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        libraryEventProducer.sendLibraryEventAwaitingAck(libraryEvent, value, SEND_TIMEOUT_MS).addCallback(
+                result -> deferredResult.setResult(created(value)),
+                deferredResult::setErrorResult);
+
+        return deferredResult;
+    }
+
+    /**
+     * Writes the bytes that were sent to Kafka as the response body, so the event is serialized only once.
+     */
+    private ResponseEntity<byte[]> created(byte[] value) {
+        return created(value, null);
+    }
+
+    /**
+     * Adds the tracking id of an asynchronous send, if any, so the client can poll
+     * {@link DeliveryStatusController} for the acknowledgement.
+     */
+    private <T> ResponseEntity<T> created(T body, String trackingId) {
+        ResponseEntity.BodyBuilder bodyBuilder = ResponseEntity.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON);
+        if (trackingId != null) {
+            bodyBuilder.header(DeliveryStatusController.TRACKING_ID_HEADER, trackingId)
+                    .location(URI.create(DeliveryStatusController.STATUS_PATH + "/" + trackingId));
+        }
+        return bodyBuilder.body(body);
+    }
+
+
+    /**
+     * One of the asynchronous send methods of {@link LibraryEventProducer} taking a serialized value.
+     */
+    @FunctionalInterface
+    private interface AsynchronousSender {
+
+        void send(LibraryEvent libraryEvent, byte[] value, String trackingId, Runnable onCompletion);
+
     }
 
 }
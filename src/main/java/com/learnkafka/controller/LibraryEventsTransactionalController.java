@@ -0,0 +1,139 @@
+package com.learnkafka.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.learnkafka.admission.ClientRateLimitInterceptor;
+import com.learnkafka.admission.ClientRateLimiter;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.id.LibraryEventIdGenerator;
+import com.learnkafka.producer.TransactionalLibraryEventProducer;
+import com.learnkafka.validation.LibraryEventReader;
+import com.learnkafka.validation.LibraryEventValidationException;
+
+/**
+ * Accepts a group of related library events, for example a NEW event followed by UPDATEs of the same
+ * {@code libraryEventId}, and commits them to Kafka atomically. The whole group is read and validated by
+ * {@link LibraryEventReader} before anything is sent. Events without a {@code libraryEventType} are NEW when they
+ * have no id and UPDATE otherwise. The client's rate limit is charged one event per item of the group.
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "library-events.transactions", name = "enabled", havingValue = "true")
+public class LibraryEventsTransactionalController {
+
+    @Autowired
+    private TransactionalLibraryEventProducer transactionalLibraryEventProducer;
+
+    @Autowired
+    private LibraryEventReader libraryEventReader;
+
+    @Autowired(required = false)
+    private LibraryEventIdGenerator libraryEventIdGenerator;
+
+    @Autowired(required = false)
+    private ClientRateLimiter clientRateLimiter;
+
+
+    @PostMapping(value = "/v1/libraryevents/transactional", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> postTransactionalLibraryEvents(InputStream body, HttpServletRequest request,
+            @RequestAttribute(name = ClientRateLimitInterceptor.CLIENT_ID_ATTRIBUTE, required = false) String clientId)
+            throws IOException, ExecutionException, InterruptedException {
+
+        List<LibraryEvent> libraryEvents = new ArrayList<>();
+        String errorMessage = null;
+        try (JsonParser parser = libraryEventReader.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass a JSON array of LibraryEvents");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String itemErrorMessage = readItem(parser, libraryEvents);
+                if (errorMessage == null && itemErrorMessage != null) {
+                    errorMessage = "libraryEvents[" + (libraryEvents.size() - 1) + "]: " + itemErrorMessage;
+                }
+            }
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("JSON parse error: " + e.getOriginalMessage());
+        }
+
+        if (libraryEvents.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass at least one LibraryEvent");
+        }
+
+        if (clientRateLimiter != null) {
+            long waitNanos = clientRateLimiter.tryAcquire(clientId, libraryEvents.size(), Math.max(0, request.getContentLengthLong()));
+            if (waitNanos > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, ClientRateLimitInterceptor.retryAfterSeconds(waitNanos))
+                        .body("Client rate limit exceeded, please retry later");
+            }
+        }
+
+        if (errorMessage != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorMessage);
+        }
+
+        if (libraryEventIdGenerator != null) {
+            libraryEvents.stream()
+                    .filter(libraryEvent -> libraryEvent.getLibraryEventId() == null)
+                    .forEach(libraryEvent -> libraryEvent.setLibraryEventId(libraryEventIdGenerator.nextId()));
+        }
+
+        transactionalLibraryEventProducer.sendLibraryEventsInTransaction(libraryEvents);
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(libraryEvents);
+    }
+
+
+    /**
+     * Reads the library event at the current token into {@code libraryEvents}, {@code null} when it is invalid, and
+     * returns the validation error, if any. The event is consumed either way, so the rest of the group is still read.
+     */
+    private String readItem(JsonParser parser, List<LibraryEvent> libraryEvents) throws IOException {
+        LibraryEvent libraryEvent;
+        try {
+            libraryEvent = libraryEventReader.readValue(parser);
+        } catch (LibraryEventValidationException e) {
+            libraryEvents.add(null);
+            return e.getMessage();
+        }
+        libraryEvents.add(libraryEvent);
+
+        if (libraryEvent == null) {
+            return "libraryEvent-must not be null";
+        }
+        if (libraryEvent.getLibraryEventType() == null) {
+            libraryEvent.setLibraryEventType(libraryEvent.getLibraryEventId() == null ? LibraryEventType.NEW : LibraryEventType.UPDATE);
+        }
+        if (libraryEvent.getLibraryEventType() == LibraryEventType.UPDATE && libraryEvent.getLibraryEventId() == null) {
+            return "Please pass the LibraryEventId";
+        }
+        if (libraryEventIdGenerator != null && libraryEvent.getLibraryEventType() == LibraryEventType.NEW
+                && libraryEvent.getLibraryEventId() != null && LibraryEventIdGenerator.isGenerated(libraryEvent.getLibraryEventId())) {
+            return LibraryEventIdGenerator.GENERATED_RANGE_ERROR;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.learnkafka.controller;
+
+import java.time.Duration;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.id.LibraryEventIdGenerator;
+import com.learnkafka.producer.ReactiveLibraryEventProducer;
+import com.learnkafka.validation.LibraryEventValidationException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of {@link LibraryEventsController}, serving the same endpoints when the application runs
+ * with the {@code reactive} profile ({@code --spring.profiles.active=reactive}, which adds {@code local} through a profile
+ * group, or {@code local,reactive}).
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveLibraryEventsController {
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(1);
+
+    @Autowired
+    private ReactiveLibraryEventProducer reactiveLibraryEventProducer;
+
+    @Autowired(required = false)
+    private LibraryEventIdGenerator libraryEventIdGenerator;
+
+
+    @PostMapping(value = "/v1/synchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> postSynchronousLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent) {
+        libraryEvent.setLibraryEventType(LibraryEventType.NEW);
+        assignLibraryEventId(libraryEvent);
+
+        return sendAwaitingAck(libraryEvent);
+    }
+
+    @PostMapping(value = "/v1/asynchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<LibraryEvent>> postAsynchronusLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent) {
+        libraryEvent.setLibraryEventType(LibraryEventType.NEW);
+        assignLibraryEventId(libraryEvent);
+
+        return reactiveLibraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent)
+                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent));
+    }
+
+    @PostMapping(value = "/v1/asynchronous-libraryevent-producerrecord", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<LibraryEvent>> postAsynchronusLibraryEventWithProducerRecord(@Valid @RequestBody LibraryEvent libraryEvent) {
+        libraryEvent.setLibraryEventType(LibraryEventType.NEW);
+        assignLibraryEventId(libraryEvent);
+
+        return reactiveLibraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent)
+                .thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent));
+    }
+
+    @PutMapping(value = "/v1/synchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> putSynchronousLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent) {
+        if (libraryEvent.getLibraryEventId() == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId"));
+        }
+
+        libraryEvent.setLibraryEventType(LibraryEventType.UPDATE);
+
+        return sendAwaitingAck(libraryEvent);
+    }
+
+    @PutMapping(value = "/v1/asynchronous-libraryevent", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<?>> putAsynchronusLibraryEvent(@Valid @RequestBody LibraryEvent libraryEvent) {
+        if (libraryEvent.getLibraryEventId() == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId"));
+        }
+
+        libraryEvent.setLibraryEventType(LibraryEventType.UPDATE);
+
+        return reactiveLibraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent)
+                .<ResponseEntity<?>>thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent));
+    }
+
+
+    private void assignLibraryEventId(LibraryEvent libraryEvent) {
+        if (libraryEventIdGenerator == null) {
+            return;
+        }
+        if (libraryEvent.getLibraryEventId() == null) {
+            libraryEvent.setLibraryEventId(libraryEventIdGenerator.nextId());
+        } else if (LibraryEventIdGenerator.isGenerated(libraryEvent.getLibraryEventId())) {
+            throw new LibraryEventValidationException(LibraryEventIdGenerator.GENERATED_RANGE_ERROR, libraryEvent);
+        }
+    }
+
+    private Mono<ResponseEntity<?>> sendAwaitingAck(LibraryEvent libraryEvent) {
+        return reactiveLibraryEventProducer.sendLibraryEventAwaitingAck(libraryEvent)
+                .timeout(SEND_TIMEOUT)
+                .map(result -> ResponseEntity.status(HttpStatus.CREATED).body(libraryEvent));
+    }
+
+}
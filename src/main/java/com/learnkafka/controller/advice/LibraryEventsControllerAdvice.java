@@ -1,14 +1,23 @@
 package com.learnkafka.controller.advice;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import com.learnkafka.admission.AdmissionRejectedException;
+import com.learnkafka.id.LibraryEventIdExhaustedException;
+import com.learnkafka.producer.ProducerUnavailableException;
+import com.learnkafka.validation.LibraryEventValidationException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,9 +25,64 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LibraryEventsControllerAdvice {
 
+    @Value("${library-events.admission.retry-after-seconds:1}")
+    private long admissionRetryAfterSeconds;
+
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleRequestBody(MethodArgumentNotValidException ex) {
-        List<FieldError> fieldErrors = ex.getBindingResult().getFieldErrors();
+        return handleFieldErrors(ex.getBindingResult().getFieldErrors());
+    }
+
+    @ExceptionHandler(LibraryEventValidationException.class)
+    public ResponseEntity<?> handleLibraryEventValidation(LibraryEventValidationException ex) {
+        log.info("errorMessage: {}", ex.getMessage());
+
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<?> handleRejectedExecution(RejectedExecutionException ex) {
+        log.warn("Library event rejected by a full dispatcher, priority lane or group commit queue: {}", ex.getMessage());
+
+        return new ResponseEntity<>("Too many library events queued, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<?> handleAdmissionRejected(AdmissionRejectedException ex) {
+        log.debug("Library event rejected: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionRetryAfterSeconds))
+                .body("Too many library events in flight, please retry later");
+    }
+
+    @ExceptionHandler(LibraryEventIdExhaustedException.class)
+    public ResponseEntity<?> handleLibraryEventIdExhausted(LibraryEventIdExhaustedException ex) {
+        log.warn("Library event rejected: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ProducerUnavailableException.class)
+    public ResponseEntity<?> handleProducerUnavailable(ProducerUnavailableException ex) {
+        log.warn("Library event rejected: {}", ex.getMessage());
+
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfterMs() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Kafka is currently unavailable, please retry later");
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<?> handleReactiveRequestBody(WebExchangeBindException ex) {
+        return handleFieldErrors(ex.getFieldErrors());
+    }
+
+
+    private ResponseEntity<?> handleFieldErrors(List<FieldError> fieldErrors) {
         String errorMessage = fieldErrors.stream()
                 .map(fe -> fe.getField() + "-" + fe.getDefaultMessage())
                 .sorted()
@@ -0,0 +1,22 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class BulkItemResult {
+
+    private int index;
+
+    private Integer libraryEventId;
+
+    private BulkItemStatus status;
+
+    private String error;
+
+}
@@ -0,0 +1,8 @@
+package com.learnkafka.domain;
+
+
+public enum BulkItemStatus {
+    ACCEPTED,
+    REJECTED,
+    FAILED
+}
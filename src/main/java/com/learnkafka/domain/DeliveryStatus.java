@@ -0,0 +1,10 @@
+package com.learnkafka.domain;
+
+
+public enum DeliveryStatus {
+    PENDING,
+    ACKNOWLEDGED,
+    FAILED,
+    SPOOLED,
+    UNKNOWN
+}
@@ -0,0 +1,28 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder(toBuilder = true)
+public class DeliveryStatusResult {
+
+    private String trackingId;
+
+    private Integer libraryEventId;
+
+    private DeliveryStatus status;
+
+    private String topic;
+
+    private Integer partition;
+
+    private Long offset;
+
+    private String error;
+
+}
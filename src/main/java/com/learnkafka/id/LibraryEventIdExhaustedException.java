@@ -0,0 +1,15 @@
+package com.learnkafka.id;
+
+/**
+ * Thrown by {@link LibraryEventIdGenerator} instead of handing out an id that could repeat, either because the node
+ * asks for ids faster than its sequence allows for longer than it may borrow, or because the time field has run out.
+ */
+public class LibraryEventIdExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LibraryEventIdExhaustedException(String message) {
+        super(message);
+    }
+
+}
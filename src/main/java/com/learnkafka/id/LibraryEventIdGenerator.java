@@ -0,0 +1,165 @@
+package com.learnkafka.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns {@code libraryEventId}s to NEW events on the server, so they are produced with a key and their later
+ * UPDATEs land on the same partition. Ids are Snowflake style, packed into the 31 bits of a positive
+ * {@code Integer} key, with the top one of them set on every generated id:
+ * <pre>
+ * | 0 | 1 | time: seconds since epoch (30 - worker-bits - sequence-bits) | worker id (worker-bits) | sequence (sequence-bits) |
+ * </pre>
+ * Clients may still pass their own id for a NEW event, but only below {@link #GENERATED_FLAG}, so the two ranges
+ * never meet; {@link #isGenerated(int)} tells the controllers which ids to turn away.
+ * <p>
+ * The remaining 30 bits are about a billion ids over the whole life of the layout, so throughput and lifetime trade
+ * off directly and worker bits split the budget between nodes. The defaults (1 worker bit, 3 sequence bits) keep a
+ * 26 bit time field that lasts about two years from the epoch, for 2 nodes with 8 ids per second each on average.
+ * NEW events arrive in bursts rather than at that rate, which is what borrowing is for.
+ * <p>
+ * The time and sequence live in one {@link AtomicLong} that is advanced with a CAS, so callers never lock or wait.
+ * When a second runs out of sequence numbers the generator borrows from the following seconds, up to
+ * {@code max-borrow-seconds} ahead of the clock, so with the defaults a node can hand out a burst of about 2,400 ids
+ * at once. Beyond that, and once the time field has run out, it throws {@link LibraryEventIdExhaustedException}
+ * rather than wrap around. A previous run of the node may have borrowed up to the same distance, so a new generator
+ * starts that far ahead of the clock, which only assumes that a restart takes longer than a second; its burst
+ * capacity then builds up over the first {@code max-borrow-seconds}. A clock that moves backwards is ignored, so ids
+ * of one node are strictly increasing.
+ * <p>
+ * {@code worker-id} has no default: every node needs its own, so a generator without one fails the startup.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.id-generator", name = "enabled", havingValue = "true")
+public class LibraryEventIdGenerator {
+
+    /**
+     * Set on every generated id and never on an id a client may pass for a NEW event.
+     */
+    public static final int GENERATED_FLAG = 1 << 30;
+
+    /**
+     * Reported for a NEW event whose client-supplied id lies in the range of generated ids.
+     */
+    public static final String GENERATED_RANGE_ERROR = "libraryEventId-must be less than " + GENERATED_FLAG;
+
+    private static final int ID_BITS = 30;
+
+    private final long epochSeconds;
+
+    private final int workerId;
+
+    private final int workerBits;
+
+    private final int sequenceBits;
+
+    private final long timeMask;
+
+    private final long maxBorrowSeconds;
+
+    private final LongSupplier clock;
+
+    /**
+     * {@code (seconds since epoch << sequenceBits) | sequence} of the last id handed out. Incrementing it carries
+     * an exhausted sequence over into the next second.
+     */
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    /**
+     * Latest second since epoch read from the clock, so a clock that moves backwards does not count as borrowing.
+     */
+    private final AtomicLong latestSecond = new AtomicLong();
+
+
+    @Autowired
+    public LibraryEventIdGenerator(@Value("${library-events.id-generator.worker-id:#{null}}") Integer workerId,
+            @Value("${library-events.id-generator.worker-bits:1}") int workerBits,
+            @Value("${library-events.id-generator.sequence-bits:3}") int sequenceBits,
+            @Value("${library-events.id-generator.epoch:2026-01-01T00:00:00Z}") String epoch,
+            @Value("${library-events.id-generator.max-borrow-seconds:300}") long maxBorrowSeconds) {
+        this(requireWorkerId(workerId), workerBits, sequenceBits, Instant.parse(epoch).getEpochSecond(), maxBorrowSeconds, System::currentTimeMillis);
+    }
+
+    LibraryEventIdGenerator(int workerId, int workerBits, int sequenceBits, long epochSeconds, long maxBorrowSeconds, LongSupplier clock) {
+        if (workerBits < 0 || sequenceBits < 1 || workerBits + sequenceBits > ID_BITS - 8) {
+            throw new IllegalArgumentException("worker-bits + sequence-bits must leave at least 8 of " + ID_BITS + " bits for the time, was "
+                    + workerBits + " + " + sequenceBits);
+        }
+        if (workerId < 0 || workerId >= 1 << workerBits) {
+            throw new IllegalArgumentException("worker-id must be between 0 and " + ((1 << workerBits) - 1) + ", was " + workerId);
+        }
+        if (maxBorrowSeconds < 0) {
+            throw new IllegalArgumentException("max-borrow-seconds must not be negative, was " + maxBorrowSeconds);
+        }
+        this.workerId = workerId;
+        this.workerBits = workerBits;
+        this.sequenceBits = sequenceBits;
+        this.timeMask = (1L << (ID_BITS - workerBits - sequenceBits)) - 1;
+        this.epochSeconds = epochSeconds;
+        this.maxBorrowSeconds = maxBorrowSeconds;
+        this.clock = clock;
+
+        long seconds = clock.getAsLong() / 1000 - epochSeconds;
+        if (seconds < 0 || seconds + maxBorrowSeconds > timeMask) {
+            throw new IllegalArgumentException("The " + Long.numberOfTrailingZeros(timeMask + 1) + " bit time field covers " + (timeMask + 1)
+                    + " seconds from the epoch, which is " + seconds + " seconds away plus " + maxBorrowSeconds
+                    + " max-borrow-seconds; move the epoch or widen the time field");
+        }
+        latestSecond.set(seconds);
+        lastTimeAndSequence.set(((seconds + maxBorrowSeconds) << sequenceBits) - 1);
+    }
+
+
+    /**
+     * Whether {@code id} lies in the range of generated ids, which clients may not use for their own NEW events.
+     */
+    public static boolean isGenerated(int id) {
+        return (id & GENERATED_FLAG) != 0;
+    }
+
+
+    public int nextId() {
+        long second = latestSecond.accumulateAndGet(clock.getAsLong() / 1000 - epochSeconds, Math::max);
+        long now = second << sequenceBits;
+        long limit = Math.min(second + maxBorrowSeconds, timeMask);
+
+        long last;
+        long timeAndSequence;
+        do {
+            last = lastTimeAndSequence.get();
+            timeAndSequence = Math.max(last + 1, now);
+            if (timeAndSequence >>> sequenceBits > limit) {
+                throw exhausted(second);
+            }
+        } while (!lastTimeAndSequence.compareAndSet(last, timeAndSequence));
+
+        long time = timeAndSequence >>> sequenceBits;
+        long sequence = timeAndSequence & ((1L << sequenceBits) - 1);
+        return (int) (GENERATED_FLAG | (time << (workerBits + sequenceBits)) | ((long) workerId << sequenceBits) | sequence);
+    }
+
+
+    private static int requireWorkerId(Integer workerId) {
+        if (workerId == null) {
+            throw new IllegalStateException("library-events.id-generator.worker-id must be set to a value unique to this node "
+                    + "when the id generator is enabled");
+        }
+        return workerId;
+    }
+
+
+    private LibraryEventIdExhaustedException exhausted(long second) {
+        if (second >= timeMask) {
+            return new LibraryEventIdExhaustedException("The time field of library event ids has run out, move the epoch or widen the time field");
+        }
+        return new LibraryEventIdExhaustedException("More than " + (1 << sequenceBits) + " library event ids per second for over "
+                + maxBorrowSeconds + " seconds, please retry later");
+    }
+
+}
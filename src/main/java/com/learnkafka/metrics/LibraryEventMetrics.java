@@ -0,0 +1,124 @@
+package com.learnkafka.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import com.learnkafka.domain.LibraryEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+
+/**
+ * Send metrics for {@link com.learnkafka.producer.LibraryEventProducer}: acknowledgement latency per endpoint
+ * and {@link com.learnkafka.domain.LibraryEventType}, serialized payload sizes, sends in flight and the
+ * distribution of records over the partitions of the topic. Meters are registered once per tag set and cached,
+ * so recording a send does not go through the registry.
+ */
+@Component
+public class LibraryEventMetrics {
+
+    private static final String OUTCOME_SUCCESS = "success";
+
+    private static final String OUTCOME_FAILURE = "failure";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, AtomicInteger> inFlightSends = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<SendTags, Timer> sendTimers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<SendTags, DistributionSummary> payloadSizes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<TopicPartition, Counter> partitionRecords = new ConcurrentHashMap<>();
+
+
+    public LibraryEventMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+
+    public Timer.Sample startSend(String endpoint) {
+        inFlightSends(endpoint).incrementAndGet();
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordSuccess(Timer.Sample sample, String endpoint, LibraryEvent libraryEvent, RecordMetadata recordMetadata) {
+        inFlightSends(endpoint).decrementAndGet();
+        SendTags sendTags = new SendTags(endpoint, libraryEventType(libraryEvent), OUTCOME_SUCCESS, "none");
+
+        sample.stop(sendTimer(sendTags));
+        payloadSize(sendTags).record(recordMetadata.serializedValueSize());
+        partitionRecords(new TopicPartition(recordMetadata.topic(), recordMetadata.partition())).increment();
+    }
+
+    public void recordFailure(Timer.Sample sample, String endpoint, LibraryEvent libraryEvent, Throwable ex) {
+        inFlightSends(endpoint).decrementAndGet();
+
+        sample.stop(sendTimer(new SendTags(endpoint, libraryEventType(libraryEvent), OUTCOME_FAILURE, ex.getClass().getSimpleName())));
+    }
+
+
+    private Timer sendTimer(SendTags sendTags) {
+        return sendTimers.computeIfAbsent(sendTags, tags -> Timer.builder("library.events.send")
+                .description("Time from handing a library event to the producer until Kafka acknowledges it")
+                .tags("endpoint", tags.getEndpoint(), "type", tags.getType(), "outcome", tags.getOutcome(), "exception", tags.getException())
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary payloadSize(SendTags sendTags) {
+        return payloadSizes.computeIfAbsent(sendTags, tags -> DistributionSummary.builder("library.events.payload.size")
+                .description("Serialized size of library event values")
+                .baseUnit("bytes")
+                .tags("endpoint", tags.getEndpoint(), "type", tags.getType())
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private Counter partitionRecords(TopicPartition topicPartition) {
+        return partitionRecords.computeIfAbsent(topicPartition, key -> Counter.builder("library.events.partition.records")
+                .description("Library events acknowledged per partition")
+                .tags("topic", key.topic(), "partition", String.valueOf(key.partition()))
+                .register(meterRegistry));
+    }
+
+    private AtomicInteger inFlightSends(String endpoint) {
+        return inFlightSends.computeIfAbsent(endpoint, key -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder("library.events.send.inflight", counter, AtomicInteger::get)
+                    .description("Library events handed to the producer and not yet acknowledged")
+                    .tag("endpoint", key)
+                    .register(meterRegistry);
+            return counter;
+        });
+    }
+
+    private String libraryEventType(LibraryEvent libraryEvent) {
+        return libraryEvent.getLibraryEventType() == null ? "none" : libraryEvent.getLibraryEventType().name();
+    }
+
+
+    @Value
+    private static class SendTags {
+
+        String endpoint;
+
+        String type;
+
+        String outcome;
+
+        String exception;
+
+    }
+
+}
@@ -0,0 +1,406 @@
+package com.learnkafka.producer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Group commit for synchronous sends. Instead of every request thread handing its record to the producer on its own,
+ * concurrent synchronous sends are queued and a single committer thread hands them over together, back to back, so
+ * the producer can put the records of one partition into the same batch. Each caller's future completes with the
+ * acknowledgement of its own record.
+ * <p>
+ * The batches go through a producer of their own, built from the application's producer factory. With
+ * {@code linger.ms=0} the sender thread may drain a partition after its first record and split the group over several
+ * produce requests, so this producer lingers at least {@code linger-ms}; {@code kafka.producer.records.per.request.avg}
+ * shows how many records a request carries. The other producers keep their {@code linger.ms}, and the
+ * {@link ProducerAutoTuner} does not touch this one. Its {@code max.block.ms} is capped at {@code max-block-ms}, so a
+ * full buffer or missing metadata fails one send quickly instead of stalling the committer and every synchronous send
+ * queued behind it.
+ * <p>
+ * A send submitted with a timeout that is still queued when the timeout passes is dropped rather than sent, as its
+ * caller has already answered the request.
+ * <p>
+ * At most {@code maxInFlightBatches} batches wait for their acknowledgement at a time; sends arriving meanwhile pile
+ * up and make the next batch larger, so the batch size follows the load. The committer waits at most
+ * {@code maxAckWaitMs} for a permit, so a slow partition delays the next batch by that much instead of holding every
+ * later synchronous send until its acknowledgement. On top of that the committer may wait a short window for more
+ * sends after the first one of a batch. The window doubles while waiting gathers more sends and halves while it does
+ * not, so it stays at zero, adding no latency, when synchronous sends arrive one at a time.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.group-commit", name = "enabled", havingValue = "true")
+@Slf4j
+public class GroupCommitCoordinator {
+
+    @Value("${library-events.group-commit.max-batch-size:256}")
+    private int maxBatchSize;
+
+    @Value("${library-events.group-commit.min-window-us:50}")
+    private long minWindowUs;
+
+    @Value("${library-events.group-commit.max-window-us:2000}")
+    private long maxWindowUs;
+
+    @Value("${library-events.group-commit.max-in-flight-batches:2}")
+    private int maxInFlightBatches;
+
+    @Value("${library-events.group-commit.max-ack-wait-ms:10}")
+    private long maxAckWaitMs;
+
+    @Value("${library-events.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${library-events.group-commit.linger-ms:1}")
+    private long lingerMs;
+
+    @Value("${library-events.group-commit.max-block-ms:100}")
+    private long maxBlockMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DefaultKafkaProducerFactory<Integer, byte[]> producerFactory;
+
+    @Autowired
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    private DefaultKafkaProducerFactory<Integer, byte[]> groupCommitProducerFactory;
+
+    private KafkaTemplate<Integer, byte[]> groupCommitKafkaTemplate;
+
+    private BlockingQueue<PendingSend> pendingSends;
+
+    private Semaphore inFlightBatches;
+
+    private long minWindowNanos;
+
+    private long maxWindowNanos;
+
+    private volatile long windowNanos;
+
+    private volatile boolean running;
+
+    private Thread committer;
+
+    private DistributionSummary batchSizes;
+
+    private Timer queueTimer;
+
+    private Counter ackWaitTimeouts;
+
+    private Counter expiredSends;
+
+
+    public GroupCommitCoordinator() {
+    }
+
+    GroupCommitCoordinator(int maxBatchSize, long minWindowUs, long maxWindowUs, int maxInFlightBatches, int queueCapacity,
+            MeterRegistry meterRegistry) {
+        this(maxBatchSize, minWindowUs, maxWindowUs, maxInFlightBatches, TimeUnit.SECONDS.toMillis(1), queueCapacity, meterRegistry);
+    }
+
+    GroupCommitCoordinator(int maxBatchSize, long minWindowUs, long maxWindowUs, int maxInFlightBatches, long maxAckWaitMs, int queueCapacity,
+            MeterRegistry meterRegistry) {
+        this.maxBatchSize = maxBatchSize;
+        this.minWindowUs = minWindowUs;
+        this.maxWindowUs = maxWindowUs;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxAckWaitMs = maxAckWaitMs;
+        this.queueCapacity = queueCapacity;
+        this.meterRegistry = meterRegistry;
+    }
+
+
+    @PostConstruct
+    public void start() {
+        if (producerFactory != null) {
+            createProducer();
+        }
+        pendingSends = new LinkedBlockingQueue<>(queueCapacity);
+        inFlightBatches = new Semaphore(maxInFlightBatches);
+        minWindowNanos = TimeUnit.MICROSECONDS.toNanos(minWindowUs);
+        maxWindowNanos = TimeUnit.MICROSECONDS.toNanos(maxWindowUs);
+
+        batchSizes = DistributionSummary.builder("library.events.group.commit.batch.size")
+                .description("Synchronous sends handed to the producer together")
+                .register(meterRegistry);
+        queueTimer = Timer.builder("library.events.group.commit.queue")
+                .description("Time synchronous sends wait for their group commit")
+                .register(meterRegistry);
+        ackWaitTimeouts = Counter.builder("library.events.group.commit.ack.wait.timeouts")
+                .description("Batches committed without waiting any longer for an earlier batch to be acknowledged")
+                .register(meterRegistry);
+        expiredSends = Counter.builder("library.events.group.commit.expired")
+                .description("Synchronous sends dropped because their caller stopped waiting before they were committed")
+                .register(meterRegistry);
+        TimeGauge.builder("library.events.group.commit.window", this, TimeUnit.NANOSECONDS, GroupCommitCoordinator::getWindowNanos)
+                .description("Current window the committer waits for more synchronous sends")
+                .register(meterRegistry);
+        Gauge.builder("library.events.group.commit.pending", pendingSends, BlockingQueue::size)
+                .description("Synchronous sends waiting for their group commit")
+                .register(meterRegistry);
+
+        running = true;
+        committer = new Thread(this::commitLoop, "library-events-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        committer.interrupt();
+        committer.join(TimeUnit.SECONDS.toMillis(5));
+
+        PendingSend pendingSend;
+        while ((pendingSend = pendingSends.poll()) != null) {
+            pendingSend.future.setException(new RejectedExecutionException("Group commit coordinator is shut down"));
+        }
+        if (groupCommitProducerFactory != null) {
+            groupCommitProducerFactory.destroy();
+        }
+    }
+
+
+    /**
+     * Queues the record for the next group commit, which sends it with {@code sender}. The returned future completes
+     * with the result of that send, or with the exception {@code sender} threw.
+     *
+     * @throws RejectedExecutionException when too many synchronous sends are already waiting
+     */
+    public ListenableFuture<SendResult<Integer, byte[]>> submit(ProducerRecord<Integer, byte[]> producerRecord,
+            Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender) {
+        return submit(producerRecord, Long.MAX_VALUE, sender);
+    }
+
+    /**
+     * Like {@link #submit(ProducerRecord, Function)}, but the record is dropped and the future fails with a
+     * {@link TimeoutException} if it is still queued {@code timeoutMs} after submitting.
+     */
+    public ListenableFuture<SendResult<Integer, byte[]>> submit(ProducerRecord<Integer, byte[]> producerRecord, long timeoutMs,
+            Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender) {
+        PendingSend pendingSend = new PendingSend(producerRecord, sender, System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        if (!running || !pendingSends.offer(pendingSend)) {
+            throw new RejectedExecutionException("Too many synchronous library events waiting for a group commit");
+        }
+        return pendingSend.future;
+    }
+
+    /**
+     * The producer the batches are handed to, for the {@code sender} passed to {@link #submit}.
+     */
+    public KafkaTemplate<Integer, byte[]> kafkaTemplate() {
+        return groupCommitKafkaTemplate;
+    }
+
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+
+    private void createProducer() {
+        Map<String, Object> overrides = new HashMap<>();
+        Object configuredLingerMs = producerFactory.getConfigurationProperties().get(ProducerConfig.LINGER_MS_CONFIG);
+        if (configuredLingerMs == null || Long.parseLong(configuredLingerMs.toString()) < lingerMs) {
+            overrides.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        }
+        Object configuredMaxBlockMs = producerFactory.getConfigurationProperties().get(ProducerConfig.MAX_BLOCK_MS_CONFIG);
+        if (configuredMaxBlockMs == null || Long.parseLong(configuredMaxBlockMs.toString()) > maxBlockMs) {
+            overrides.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        }
+        Object clientId = producerFactory.getConfigurationProperties().get(ProducerConfig.CLIENT_ID_CONFIG);
+        if (clientId != null) {
+            overrides.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-group-commit");
+        }
+
+        // keeps the serializers, listeners and post processors of the application's factory
+        groupCommitProducerFactory = (DefaultKafkaProducerFactory<Integer, byte[]>) producerFactory.copyWithConfigurationOverride(overrides);
+        groupCommitKafkaTemplate = new KafkaTemplate<>(groupCommitProducerFactory);
+        groupCommitKafkaTemplate.setDefaultTopic(kafkaTemplate.getDefaultTopic());
+    }
+
+
+    private void commitLoop() {
+        List<PendingSend> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                commitNextBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Group commit of {} synchronous library events failed: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void commitNextBatch(List<PendingSend> batch) throws InterruptedException {
+        boolean permit = inFlightBatches.tryAcquire(maxAckWaitMs, TimeUnit.MILLISECONDS);
+        try {
+            batch.add(pendingSends.take());
+            if (!permit) {
+                permit = inFlightBatches.tryAcquire();
+            }
+            pendingSends.drainTo(batch, maxBatchSize - 1);
+            int queued = batch.size();
+
+            long window = windowNanos;
+            if (window > 0 && batch.size() < maxBatchSize) {
+                long deadline = System.nanoTime() + window;
+                long remaining;
+                while (batch.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                    PendingSend pendingSend = pendingSends.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (pendingSend == null) {
+                        break;
+                    }
+                    batch.add(pendingSend);
+                    pendingSends.drainTo(batch, maxBatchSize - batch.size());
+                }
+            }
+            adaptWindow(queued, batch.size());
+        } catch (InterruptedException e) {
+            if (permit) {
+                inFlightBatches.release();
+            }
+            batch.forEach(pendingSend -> pendingSend.future.setException(e));
+            throw e;
+        }
+
+        if (!permit) {
+            ackWaitTimeouts.increment();
+        }
+        commit(batch, permit);
+    }
+
+    /**
+     * Doubles the window while waiting gathers more sends and halves it, down to zero, while it does not. A full batch
+     * did not need the window. The window is only opened again when sends were already queued, that is when
+     * synchronous sends overlap.
+     */
+    void adaptWindow(int queued, int batchSize) {
+        long window = windowNanos;
+        if (batchSize >= maxBatchSize || batchSize == queued) {
+            window = window / 2 < minWindowNanos ? 0 : window / 2;
+            if (window == 0 && queued > 1 && queued < maxBatchSize) {
+                window = minWindowNanos;
+            }
+        } else {
+            window = Math.min(maxWindowNanos, Math.max(minWindowNanos, window * 2));
+        }
+        windowNanos = window;
+    }
+
+    /**
+     * Hands the batch to the producer. A batch committed after the committer gave up waiting for a permit holds none,
+     * so its acknowledgement releases nothing.
+     */
+    private void commit(List<PendingSend> batch, boolean permit) {
+        batchSizes.record(batch.size());
+        AtomicInteger unacknowledged = permit ? new AtomicInteger(batch.size()) : null;
+        long now = System.nanoTime();
+
+        for (PendingSend pendingSend : batch) {
+            if (now - pendingSend.submittedNanos >= pendingSend.timeoutNanos) {
+                expiredSends.increment();
+                pendingSend.future.setException(new TimeoutException("Synchronous library event expired after waiting "
+                        + TimeUnit.NANOSECONDS.toMillis(now - pendingSend.submittedNanos) + " ms for its group commit"));
+                acknowledge(unacknowledged);
+                continue;
+            }
+            queueTimer.record(now - pendingSend.submittedNanos, TimeUnit.NANOSECONDS);
+
+            ListenableFuture<SendResult<Integer, byte[]>> listenableFuture;
+            try {
+                listenableFuture = pendingSend.sender.apply(pendingSend.producerRecord);
+            } catch (RuntimeException e) {
+                pendingSend.future.setException(e);
+                acknowledge(unacknowledged);
+                continue;
+            }
+
+            listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, byte[]>>() {
+
+                @Override
+                public void onSuccess(SendResult<Integer, byte[]> result) {
+                    acknowledge(unacknowledged);
+                    pendingSend.future.set(result);
+                }
+
+                @Override
+                public void onFailure(Throwable ex) {
+                    acknowledge(unacknowledged);
+                    pendingSend.future.setException(ex);
+                }
+
+            });
+        }
+    }
+
+    private void acknowledge(AtomicInteger unacknowledged) {
+        if (unacknowledged != null && unacknowledged.decrementAndGet() == 0) {
+            inFlightBatches.release();
+        }
+    }
+
+
+    static final class PendingSend {
+
+        private final ProducerRecord<Integer, byte[]> producerRecord;
+
+        private final Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender;
+
+        private final long submittedNanos;
+
+        private final long timeoutNanos;
+
+        private final SettableListenableFuture<SendResult<Integer, byte[]>> future = new SettableListenableFuture<>();
+
+        private PendingSend(ProducerRecord<Integer, byte[]> producerRecord,
+                Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender, long submittedNanos,
+                long timeoutNanos) {
+            this.producerRecord = producerRecord;
+            this.sender = sender;
+            this.submittedNanos = submittedNanos;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+    }
+
+}
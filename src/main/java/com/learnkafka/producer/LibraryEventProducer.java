@@ -2,11 +2,10 @@ package com.learnkafka.producer;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,10 +15,15 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.metrics.LibraryEventMetrics;
+import com.learnkafka.retry.LibraryEventRetryScheduler;
+import com.learnkafka.serializer.LibraryEventSerializer;
+import com.learnkafka.spool.LibraryEventSpooler;
+import com.learnkafka.status.DeliveryStatusStore;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
@@ -28,79 +32,323 @@ public class LibraryEventProducer {
 
     private static final String TOPIC_NAME = "library-events";
 
+    private static final String ENDPOINT_ASYNCHRONOUS = "asynchronous";
+
+    private static final String ENDPOINT_ASYNCHRONOUS_PRODUCER_RECORD = "asynchronous-producerrecord";
+
+    static final String ENDPOINT_SYNCHRONOUS = "synchronous";
+
+    private static final String ENDPOINT_SPOOL_REPLAY = "spool-replay";
+
     @Autowired
-    private KafkaTemplate<Integer, String> kafkaTemplate;
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private LibraryEventSerializer libraryEventSerializer;
 
+    @Autowired
+    private LibraryEventMetrics libraryEventMetrics;
+
+    @Autowired(required = false)
+    private LibraryEventSpooler libraryEventSpooler;
+
+    @Autowired(required = false)
+    private LibraryEventProducerPool libraryEventProducerPool;
+
+    @Autowired(required = false)
+    private PriorityLaneScheduler priorityLaneScheduler;
+
+    @Autowired(required = false)
+    private DeliveryStatusStore deliveryStatusStore;
+
+    @Autowired(required = false)
+    private LibraryEventRetryScheduler libraryEventRetryScheduler;
+
+    @Autowired(required = false)
+    private ProducerCircuitBreaker producerCircuitBreaker;
+
+    @Autowired(required = false)
+    private GroupCommitCoordinator groupCommitCoordinator;
+
+    @Autowired(required = false)
+    private ProducerAutoTuner producerAutoTuner;
+
+    /**
+     * Serializes the event to the exact bytes that are sent to Kafka, so callers can reuse them, for example
+     * as the HTTP response body, and pass them to one of the send methods taking a serialized value.
+     */
+    public byte[] serialize(LibraryEvent libraryEvent) {
+        return libraryEventSerializer.serialize(TOPIC_NAME, libraryEvent);
+    }
+
+    public void sendAsynchronusLibraryEvent(LibraryEvent libraryEvent) {
+        sendAsynchronusLibraryEvent(libraryEvent, serialize(libraryEvent));
+    }
+
+    public void sendAsynchronusLibraryEvent(LibraryEvent libraryEvent, byte[] value) {
+        sendAsynchronusLibraryEvent(libraryEvent, value, null);
+    }
+
+    /**
+     * Like {@link #sendAsynchronusLibraryEvent(LibraryEvent, byte[])}, recording the outcome in the
+     * {@link DeliveryStatusStore} under the given tracking id, which may be {@code null}.
+     */
+    public void sendAsynchronusLibraryEvent(LibraryEvent libraryEvent, byte[] value, String trackingId) {
+        sendAsynchronusLibraryEvent(libraryEvent, value, trackingId, null);
+    }
+
+    /**
+     * Runs {@code onCompletion}, which may be {@code null}, once Kafka has acknowledged the event, the send has
+     * failed or the event has been spooled, so callers can hold an in-flight budget until then.
+     */
+    public void sendAsynchronusLibraryEvent(LibraryEvent libraryEvent, byte[] value, String trackingId, Runnable onCompletion) {
+        try {
+            runOnCompletion(onCompletion, sendOrSpool(libraryEvent, value, trackingId));
+        } catch (RuntimeException e) {
+            runOnCompletion(onCompletion, null);
+            throw e;
+        }
+    }
+
+    public ListenableFuture<SendResult<Integer, byte[]>> sendAsynchronusLibraryEventUsingProducerRecord(LibraryEvent libraryEvent) {
+        return sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent, serialize(libraryEvent));
+    }
+
+    public ListenableFuture<SendResult<Integer, byte[]>> sendAsynchronusLibraryEventUsingProducerRecord(LibraryEvent libraryEvent, byte[] value) {
+        return sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent, value, null);
+    }
+
+    public ListenableFuture<SendResult<Integer, byte[]>> sendAsynchronusLibraryEventUsingProducerRecord(LibraryEvent libraryEvent, byte[] value,
+            String trackingId) {
+        return sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent, value, trackingId, null);
+    }
+
+    public ListenableFuture<SendResult<Integer, byte[]>> sendAsynchronusLibraryEventUsingProducerRecord(LibraryEvent libraryEvent, byte[] value,
+            String trackingId, Runnable onCompletion) {
 
-    public void sendAsynchronusLibraryEvent(LibraryEvent libraryEvent) throws JsonProcessingException {
-        
         Integer key = libraryEvent.getLibraryEventId();
-        String value = objectMapper.writeValueAsString(libraryEvent);
-        
-        ListenableFuture<SendResult<Integer, String>> listenableFuture = kafkaTemplate.sendDefault(key, value);
-        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, String>>() {
+
+        ProducerRecord<Integer, byte[]> producerRecord = buildProducerRecord(key, value, TOPIC_NAME);
+
+        ListenableFuture<SendResult<Integer, byte[]>> listenableFuture;
+        try {
+            listenableFuture = send(ENDPOINT_ASYNCHRONOUS_PRODUCER_RECORD, libraryEvent, producerRecord);
+        } catch (RuntimeException e) {
+            recordFailed(trackingId, e);
+            runOnCompletion(onCompletion, null);
+            throw e;
+        }
+        recordDeliveryStatus(trackingId, listenableFuture);
+        runOnCompletion(onCompletion, listenableFuture);
+        return listenableFuture;
+    }
+
+    public ListenableFuture<SendResult<Integer, byte[]>> sendLibraryEventAwaitingAck(LibraryEvent libraryEvent) {
+        return sendLibraryEventAwaitingAck(libraryEvent, serialize(libraryEvent));
+    }
+
+    public ListenableFuture<SendResult<Integer, byte[]>> sendLibraryEventAwaitingAck(LibraryEvent libraryEvent, byte[] value) {
+        return sendLibraryEventAwaitingAck(libraryEvent, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * For callers that stop waiting after {@code timeoutMs}: with the {@link GroupCommitCoordinator} enabled, a send
+     * that is still queued for its group commit by then is dropped instead of sent.
+     */
+    public ListenableFuture<SendResult<Integer, byte[]>> sendLibraryEventAwaitingAck(LibraryEvent libraryEvent, byte[] value, long timeoutMs) {
+
+        Integer key = libraryEvent.getLibraryEventId();
+
+        ProducerRecord<Integer, byte[]> producerRecord = new ProducerRecord<>(kafkaTemplate.getDefaultTopic(), key, value);
+
+        if (groupCommitCoordinator != null) {
+            return groupCommitCoordinator.submit(producerRecord, timeoutMs, record -> attempt(ENDPOINT_SYNCHRONOUS, libraryEvent, record));
+        }
+        return send(ENDPOINT_SYNCHRONOUS, libraryEvent, producerRecord);
+    }
+
+    /**
+     * Sends a record replayed by the {@link LibraryEventSpooler} through the circuit breaker and the pooled producer or
+     * priority lane a live asynchronous send would use. It bypasses the retry scheduler and a failed replay is not
+     * spooled again, the record stays in the spool until the spooler commits it.
+     */
+    public ListenableFuture<SendResult<Integer, byte[]>> replay(LibraryEventType libraryEventType, ProducerRecord<Integer, byte[]> producerRecord) {
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(producerRecord.key())
+                .libraryEventType(libraryEventType)
+                .build();
+        return attempt(ENDPOINT_SPOOL_REPLAY, libraryEvent, producerRecord);
+    }
+
+    /**
+     * Returns the future of the send, or {@code null} when the event went to the spool instead.
+     */
+    private ListenableFuture<SendResult<Integer, byte[]>> sendOrSpool(LibraryEvent libraryEvent, byte[] value, String trackingId) {
+
+        ProducerRecord<Integer, byte[]> producerRecord = new ProducerRecord<>(kafkaTemplate.getDefaultTopic(), libraryEvent.getLibraryEventId(), value);
+
+        if (libraryEventSpooler != null && libraryEventSpooler.hasBacklog()) {
+            libraryEventSpooler.spool(libraryEvent.getLibraryEventType(), producerRecord);
+            recordSpooled(trackingId);
+            return null;
+        }
+
+        try {
+            ListenableFuture<SendResult<Integer, byte[]>> listenableFuture = send(ENDPOINT_ASYNCHRONOUS, libraryEvent, producerRecord);
+            recordDeliveryStatus(trackingId, listenableFuture);
+            return listenableFuture;
+        } catch (KafkaException e) {
+            if (libraryEventSpooler == null || e instanceof SerializationException) {
+                recordFailed(trackingId, e);
+                throw e;
+            }
+            log.error("Error handing the message to the producer, spooling it, exception is {}", e.getMessage());
+            libraryEventSpooler.spool(libraryEvent.getLibraryEventType(), producerRecord);
+            recordSpooled(trackingId);
+            return null;
+        }
+    }
+
+    /**
+     * Asynchronous sends go through the {@link LibraryEventRetryScheduler} when it is enabled, so the returned future
+     * reflects the final outcome after retries. Each attempt is measured separately.
+     */
+    private ListenableFuture<SendResult<Integer, byte[]>> send(String endpoint, LibraryEvent libraryEvent, ProducerRecord<Integer, byte[]> producerRecord) {
+        if (libraryEventRetryScheduler != null && !ENDPOINT_SYNCHRONOUS.equals(endpoint)) {
+            return libraryEventRetryScheduler.send(producerRecord, record -> attempt(endpoint, libraryEvent, record));
+        }
+        return attempt(endpoint, libraryEvent, producerRecord);
+    }
+
+    private ListenableFuture<SendResult<Integer, byte[]>> attempt(String endpoint, LibraryEvent libraryEvent, ProducerRecord<Integer, byte[]> producerRecord) {
+        Integer key = producerRecord.key();
+        ProducerCircuitBreaker.Phase permit = producerCircuitBreaker != null ? producerCircuitBreaker.acquirePermission() : null;
+        Timer.Sample sample = libraryEventMetrics.startSend(endpoint);
+
+        ListenableFuture<SendResult<Integer, byte[]>> listenableFuture;
+        try {
+            listenableFuture = priorityLaneScheduler != null
+                    ? priorityLaneScheduler.submit(libraryEvent.getLibraryEventType(), producerRecord)
+                    : kafkaTemplate(endpoint, key).send(producerRecord);
+        } catch (RuntimeException e) {
+            libraryEventMetrics.recordFailure(sample, endpoint, libraryEvent, e);
+            reportFailure(permit, e);
+            throw e;
+        }
+
+        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, byte[]>>() {
 
             @Override
-            public void onSuccess(SendResult<Integer, String> result) {
-                handleSuccess(key, value, result);
+            public void onSuccess(SendResult<Integer, byte[]> result) {
+                handleSuccess(key, libraryEvent, result);
+                libraryEventMetrics.recordSuccess(sample, endpoint, libraryEvent, result.getRecordMetadata());
+                if (producerCircuitBreaker != null) {
+                    producerCircuitBreaker.onSuccess(permit);
+                }
             }
 
             @Override
             public void onFailure(Throwable ex) {
-                handleFailure(key, value, ex);
+                handleFailure(key, libraryEvent, ex);
+                libraryEventMetrics.recordFailure(sample, endpoint, libraryEvent, ex);
+                reportFailure(permit, ex);
+                if (spoolsFailedSends(endpoint)) {
+                    libraryEventSpooler.spool(libraryEvent.getLibraryEventType(), producerRecord);
+                }
             }
 
         });
-    }
-
-    public ListenableFuture<SendResult<Integer, String>> sendAsynchronusLibraryEventUsingProducerRecord(LibraryEvent libraryEvent) throws JsonProcessingException {
 
-        Integer key = libraryEvent.getLibraryEventId();
-        String value = objectMapper.writeValueAsString(libraryEvent);
+        return listenableFuture;
+    }
 
-        ProducerRecord<Integer, String> producerRecord = buildProducerRecord(key, value, TOPIC_NAME);
+    /**
+     * Only timeouts and broker errors count against the circuit breaker; other failures give the permission back.
+     */
+    private void reportFailure(ProducerCircuitBreaker.Phase permit, Throwable ex) {
+        if (producerCircuitBreaker == null) {
+            return;
+        }
+        if (ProducerCircuitBreaker.indicatesUnavailability(ex)) {
+            producerCircuitBreaker.onFailure(permit, ex);
+        } else {
+            producerCircuitBreaker.release(permit);
+        }
+    }
 
-        ListenableFuture<SendResult<Integer, String>> listenableFuture = kafkaTemplate.send(producerRecord);
-        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, String>>() {
+    /**
+     * Asynchronous sends that fail are spooled by {@link #attempt} when the spooler is enabled, so the tracked status
+     * is {@code SPOOLED} rather than {@code FAILED} in that case.
+     */
+    private void recordDeliveryStatus(String trackingId, ListenableFuture<SendResult<Integer, byte[]>> listenableFuture) {
+        if (deliveryStatusStore == null || trackingId == null) {
+            return;
+        }
+        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, byte[]>>() {
 
             @Override
-            public void onSuccess(SendResult<Integer, String> result) {
-                handleSuccess(key, value, result);
+            public void onSuccess(SendResult<Integer, byte[]> result) {
+                deliveryStatusStore.acknowledged(trackingId, result.getRecordMetadata());
             }
 
             @Override
             public void onFailure(Throwable ex) {
-                handleFailure(key, value, ex);
+                if (spoolsFailedSends(ENDPOINT_ASYNCHRONOUS)) {
+                    deliveryStatusStore.spooled(trackingId);
+                } else {
+                    deliveryStatusStore.failed(trackingId, ex);
+                }
             }
-        });
 
-        return listenableFuture;
+        });
     }
 
-    public SendResult<Integer, String> sendSynchronousLibraryEventUsingTimeout(LibraryEvent libraryEvent) throws JsonProcessingException, ExecutionException, InterruptedException, TimeoutException {
+    private void runOnCompletion(Runnable onCompletion, ListenableFuture<SendResult<Integer, byte[]>> listenableFuture) {
+        if (onCompletion == null) {
+            return;
+        }
+        if (listenableFuture == null) {
+            onCompletion.run();
+            return;
+        }
+        listenableFuture.addCallback(result -> onCompletion.run(), ex -> onCompletion.run());
+    }
 
-        Integer key = libraryEvent.getLibraryEventId();
-        String value = objectMapper.writeValueAsString(libraryEvent);
+    private void recordSpooled(String trackingId) {
+        if (deliveryStatusStore != null) {
+            deliveryStatusStore.spooled(trackingId);
+        }
+    }
 
-        SendResult<Integer, String> sendResult = null;
-        try {
-            sendResult = kafkaTemplate.sendDefault(key, value).get(1, TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("InterruptedException/ExecutionException in sendLibraryEventSynchronous method: {}", e.getMessage());
-            throw e;
-        } catch (Exception e) {
-            log.error("Exception in sendLibraryEventSynchronous method: {}", e.getMessage());
-            throw e;
+    private void recordFailed(String trackingId, Throwable ex) {
+        if (deliveryStatusStore != null) {
+            deliveryStatusStore.failed(trackingId, ex);
         }
+    }
 
-        return sendResult;
+    /**
+     * Failed asynchronous sends are spooled, unless the retry scheduler takes care of them. Failed replays stay in
+     * the spool.
+     */
+    private boolean spoolsFailedSends(String endpoint) {
+        return libraryEventSpooler != null && libraryEventRetryScheduler == null
+                && (ENDPOINT_ASYNCHRONOUS.equals(endpoint) || ENDPOINT_ASYNCHRONOUS_PRODUCER_RECORD.equals(endpoint));
     }
 
+    /**
+     * Synchronous sends under group commit go through the coordinator's own producer.
+     */
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate(String endpoint, Integer key) {
+        if (groupCommitCoordinator != null && ENDPOINT_SYNCHRONOUS.equals(endpoint)) {
+            return groupCommitCoordinator.kafkaTemplate();
+        }
+        if (libraryEventProducerPool != null) {
+            return libraryEventProducerPool.kafkaTemplate(key);
+        }
+        return producerAutoTuner != null ? producerAutoTuner.kafkaTemplate() : kafkaTemplate;
+    }
 
-    private void handleFailure(Integer key, String value, Throwable ex) {
+    private void handleFailure(Integer key, LibraryEvent value, Throwable ex) {
         log.error("Error sending the message,eception is {}", ex.getMessage());
         try {
             throw ex;
@@ -109,12 +357,14 @@ public class LibraryEventProducer {
         }
     }
 
-    private void handleSuccess(Integer key, String value, SendResult<Integer, String> result) {
-        log.info("Message sent successfully for the key: {}, the value is {}, partition is {} ",
-                key, value, result.getRecordMetadata().partition());
+    private void handleSuccess(Integer key, LibraryEvent value, SendResult<Integer, byte[]> result) {
+        if (log.isDebugEnabled()) {
+            log.debug("Message sent successfully for the key: {}, partition is {}, offset is {}",
+                    key, result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+        }
     }
 
-    private ProducerRecord<Integer, String> buildProducerRecord(Integer key, String value, String topicName) {
+    ProducerRecord<Integer, byte[]> buildProducerRecord(Integer key, byte[] value, String topicName) {
         List<Header> recordHeaders = Arrays.asList(new RecordHeader("event-source", "scanner".getBytes()));
         
         return new ProducerRecord<>(topicName, null, key, value, recordHeaders);
@@ -0,0 +1,142 @@
+package com.learnkafka.producer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A fixed set of independent Kafka producers, each with its own sender thread and record accumulator, for
+ * hosts where a single producer I/O thread is the bottleneck. Records are assigned to a producer by
+ * {@code libraryEventId}, so all records of one id go through the same producer and keep their order.
+ * Records without an id are spread round robin.
+ * <p>
+ * The configured {@code buffer.memory} is the budget for the pool together with the default producer, which still
+ * serves retries, the spool and the warm-up; it is split evenly between them, and the default producer factory is
+ * reconfigured to its share.
+ * <p>
+ * The pool applies the {@link DefaultKafkaProducerFactoryCustomizer}s to its factories, so its producers are tracked by
+ * {@link LiveProducers} and, with Boot's Kafka metrics auto-configuration, bind their client metrics to Micrometer.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.producer-pool", name = "enabled", havingValue = "true")
+public class LibraryEventProducerPool {
+
+    private static final long DEFAULT_BUFFER_MEMORY = 32 * 1024 * 1024L;
+
+    private final DefaultKafkaProducerFactory<Integer, byte[]>[] producerFactories;
+
+    private final KafkaTemplate<Integer, byte[]>[] kafkaTemplates;
+
+    private final AtomicInteger nextProducerForNullKey = new AtomicInteger();
+
+    private final LiveProducers liveProducers;
+
+    private final List<String> clientIdPrefixes = new ArrayList<>();
+
+
+    @Autowired
+    public LibraryEventProducerPool(@Value("${library-events.producer-pool.size:0}") int size, KafkaProperties kafkaProperties,
+            DefaultKafkaProducerFactory<Integer, byte[]> defaultProducerFactory,
+            ObjectProvider<DefaultKafkaProducerFactoryCustomizer> producerFactoryCustomizers, LiveProducers liveProducers,
+            MeterRegistry meterRegistry) {
+        this(kafkaProperties.buildProducerProperties(), kafkaProperties.getTemplate().getDefaultTopic(),
+                size > 0 ? size : Math.max(1, Runtime.getRuntime().availableProcessors() / 4), defaultProducerFactory,
+                producerFactoryCustomizers.orderedStream().collect(Collectors.toList()), liveProducers, meterRegistry);
+    }
+
+    LibraryEventProducerPool(Map<String, Object> producerProperties, String defaultTopic, int size, MeterRegistry meterRegistry) {
+        this(producerProperties, defaultTopic, size, null, Collections.emptyList(), new LiveProducers(), meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    LibraryEventProducerPool(Map<String, Object> producerProperties, String defaultTopic, int size,
+            DefaultKafkaProducerFactory<Integer, byte[]> defaultProducerFactory,
+            List<DefaultKafkaProducerFactoryCustomizer> producerFactoryCustomizers, LiveProducers liveProducers,
+            MeterRegistry meterRegistry) {
+        Object bufferMemory = producerProperties.get(ProducerConfig.BUFFER_MEMORY_CONFIG);
+        long totalBufferMemory = bufferMemory != null ? Long.parseLong(bufferMemory.toString()) : DEFAULT_BUFFER_MEMORY;
+        long bufferMemoryPerProducer = totalBufferMemory / (size + 1);
+        String clientId = (String) producerProperties.getOrDefault(ProducerConfig.CLIENT_ID_CONFIG, "library-events-producer");
+        this.liveProducers = liveProducers;
+
+        if (defaultProducerFactory != null) {
+            defaultProducerFactory.updateConfigs(Collections.singletonMap(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemoryPerProducer));
+        }
+
+        producerFactories = new DefaultKafkaProducerFactory[size];
+        kafkaTemplates = new KafkaTemplate[size];
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> shardProperties = new HashMap<>(producerProperties);
+            shardProperties.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemoryPerProducer);
+            shardProperties.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-" + i);
+            // the factory appends "-<n>" to the configured client.id of every producer it creates
+            clientIdPrefixes.add(clientId + "-" + i + "-");
+
+            producerFactories[i] = new DefaultKafkaProducerFactory<>(shardProperties);
+            for (DefaultKafkaProducerFactoryCustomizer producerFactoryCustomizer : producerFactoryCustomizers) {
+                producerFactoryCustomizer.customize(producerFactories[i]);
+            }
+            kafkaTemplates[i] = new KafkaTemplate<>(producerFactories[i]);
+            kafkaTemplates[i].setDefaultTopic(defaultTopic);
+        }
+
+        Gauge.builder("library.events.producer.pool.size", kafkaTemplates, templates -> templates.length)
+                .description("Kafka producers in the library event producer pool")
+                .register(meterRegistry);
+        Gauge.builder("library.events.producer.pool.buffer.total", () -> bufferMemoryPerProducer * size)
+                .description("buffer.memory shared by all producers of the pool")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("library.events.producer.pool.buffer.available", this, LibraryEventProducerPool::getAvailableBufferMemory)
+                .description("Unused record accumulator memory summed over the open producers of the pool")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+
+    public KafkaTemplate<Integer, byte[]> kafkaTemplate(Integer key) {
+        int hash = key != null ? key.hashCode() : nextProducerForNullKey.getAndIncrement();
+        return kafkaTemplates[Math.floorMod(hash, kafkaTemplates.length)];
+    }
+
+    public int getSize() {
+        return kafkaTemplates.length;
+    }
+
+    /**
+     * Reads the producers that are already open rather than {@link KafkaTemplate#metrics()}, which would create them;
+     * {@code NaN} until the first of them is.
+     */
+    public double getAvailableBufferMemory() {
+        return liveProducers.sum("buffer-available-bytes",
+                clientId -> clientId != null && clientIdPrefixes.stream().anyMatch(clientId::startsWith));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (DefaultKafkaProducerFactory<Integer, byte[]> producerFactory : producerFactories) {
+            producerFactory.destroy();
+        }
+    }
+
+}
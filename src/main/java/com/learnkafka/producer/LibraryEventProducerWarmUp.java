@@ -0,0 +1,152 @@
+package com.learnkafka.producer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.validation.LibraryEventReader;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warms the send path up before the application reports itself ready. Spring Boot only switches readiness to
+ * {@code ACCEPTING_TRAFFIC} after all {@link ApplicationRunner}s have finished, so no request reaches a cold producer.
+ * <ol>
+ * <li>Creates the Kafka producer and fetches the partition metadata of the topic, which connects it to the cluster.
+ * Connections to the partition leaders are still opened by the first real send to each of them.</li>
+ * <li>Runs {@code iterations} synthetic events through request parsing, serialization, record construction and
+ * {@code KafkaTemplate.send()} against a dry-run {@link MockProducer}, so that Jackson writers are built and
+ * the hot paths are compiled. Nothing is sent to Kafka and no send metrics are recorded.</li>
+ * </ol>
+ * The time spent is recorded in the {@code library.events.warmup} timer, by step.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.warm-up", name = "enabled", havingValue = "true")
+@Slf4j
+public class LibraryEventProducerWarmUp implements ApplicationRunner {
+
+    @Value("${library-events.warm-up.iterations:10000}")
+    private int iterations;
+
+    @Autowired
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    @Autowired
+    private LibraryEventProducer libraryEventProducer;
+
+    @Autowired(required = false)
+    private LibraryEventReader libraryEventReader;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer metadataTimer;
+
+    private Timer dryRunTimer;
+
+
+    @PostConstruct
+    public void init() {
+        metadataTimer = stepTimer("metadata");
+        dryRunTimer = stepTimer("dry-run");
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long startNanos = System.nanoTime();
+        fetchMetadata();
+        long metadataNanos = System.nanoTime();
+        runDryRunSends();
+        long endNanos = System.nanoTime();
+
+        metadataTimer.record(metadataNanos - startNanos, TimeUnit.NANOSECONDS);
+        dryRunTimer.record(endNanos - metadataNanos, TimeUnit.NANOSECONDS);
+        log.info("Producer warm-up finished in {} ms (metadata {} ms, {} dry-run sends {} ms)",
+                TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos), TimeUnit.NANOSECONDS.toMillis(metadataNanos - startNanos),
+                iterations, TimeUnit.NANOSECONDS.toMillis(endNanos - metadataNanos));
+    }
+
+
+    private void fetchMetadata() {
+        String topic = kafkaTemplate.getDefaultTopic();
+        try {
+            List<PartitionInfo> partitions = kafkaTemplate.partitionsFor(topic);
+            log.info("Fetched metadata for {} partitions of {}", partitions.size(), topic);
+        } catch (KafkaException e) {
+            log.warn("Could not fetch the metadata of {} during warm-up, continuing without it: {}", topic, e.getMessage());
+        }
+    }
+
+    private void runDryRunSends() throws Exception {
+        // KafkaTemplate closes the producer after every send, which a MockProducer does not survive
+        MockProducer<Integer, byte[]> dryRunProducer = new MockProducer<Integer, byte[]>(true, new IntegerSerializer(), new ByteArraySerializer()) {
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+
+        };
+        ProducerFactory<Integer, byte[]> dryRunProducerFactory = () -> dryRunProducer;
+        KafkaTemplate<Integer, byte[]> dryRunKafkaTemplate = new KafkaTemplate<>(dryRunProducerFactory);
+        dryRunKafkaTemplate.setMicrometerEnabled(false);
+
+        String topic = kafkaTemplate.getDefaultTopic();
+        for (int i = 0; i < iterations; i++) {
+            LibraryEvent libraryEvent = createSyntheticLibraryEvent(i);
+            byte[] value = libraryEventProducer.serialize(libraryEvent);
+            if (libraryEventReader != null) {
+                libraryEventReader.read(value);
+            }
+            dryRunKafkaTemplate.send(libraryEventProducer.buildProducerRecord(libraryEvent.getLibraryEventId(), value, topic));
+            if (i % 1000 == 999) {
+                dryRunProducer.clear();
+            }
+        }
+        dryRunProducer.clear();
+    }
+
+    private LibraryEvent createSyntheticLibraryEvent(int i) {
+        return LibraryEvent.builder()
+                .libraryEventId(i % 2 == 0 ? null : i)
+                .libraryEventType(i % 2 == 0 ? LibraryEventType.NEW : LibraryEventType.UPDATE)
+                .book(Book.builder()
+                        .bookId(i)
+                        .bookName("Warm-up book " + i)
+                        .bookAuthor("Warm-up author")
+                        .build())
+                .build();
+    }
+
+    private Timer stepTimer(String step) {
+        return Timer.builder("library.events.warmup")
+                .description("Time spent warming up the producer before accepting traffic")
+                .tag("step", step)
+                .register(meterRegistry);
+    }
+
+}
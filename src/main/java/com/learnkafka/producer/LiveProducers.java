@@ -0,0 +1,65 @@
+package com.learnkafka.producer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+/**
+ * Keeps track of the Kafka producers that are currently open, in the default producer factory and in the factories
+ * of the producer pool and the priority lanes, so their client metrics can be read without
+ * {@link KafkaTemplate#metrics()}, which creates a producer as a side effect. Registered on every factory through a
+ * {@code DefaultKafkaProducerFactoryCustomizer}.
+ */
+public class LiveProducers implements ProducerFactory.Listener<Object, Object> {
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    private static final String CLIENT_ID_TAG = "client-id";
+
+    private final Map<String, Producer<Object, Object>> producers = new ConcurrentHashMap<>();
+
+
+    @Override
+    public void producerAdded(String id, Producer<Object, Object> producer) {
+        producers.put(id, producer);
+    }
+
+    @Override
+    public void producerRemoved(String id, Producer<Object, Object> producer) {
+        producers.remove(id, producer);
+    }
+
+
+    /**
+     * Sums a {@code producer-metrics} metric over all open producers, or returns {@code NaN} when no producer is open.
+     */
+    public double sum(String metricName) {
+        return sum(metricName, clientId -> true);
+    }
+
+    /**
+     * Sums a {@code producer-metrics} metric over the open producers whose {@code client.id} matches, or returns
+     * {@code NaN} when none of them is open.
+     */
+    public double sum(String metricName, Predicate<String> clientIdFilter) {
+        double sum = Double.NaN;
+        for (Producer<Object, Object> producer : producers.values()) {
+            for (Map.Entry<MetricName, ? extends Metric> metric : producer.metrics().entrySet()) {
+                MetricName name = metric.getKey();
+                if (metricName.equals(name.name()) && PRODUCER_METRICS_GROUP.equals(name.group())
+                        && clientIdFilter.test(name.tags().get(CLIENT_ID_TAG))) {
+                    double value = ((Number) metric.getValue().metricValue()).doubleValue();
+                    sum = Double.isNaN(sum) ? value : sum + value;
+                }
+            }
+        }
+        return sum;
+    }
+
+}
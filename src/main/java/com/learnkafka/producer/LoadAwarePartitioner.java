@@ -0,0 +1,187 @@
+package com.learnkafka.producer;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Partitioner for the {@code library-events} topic that keeps track of the bytes sent to every partition over
+ * a short sliding window.
+ * <ul>
+ * <li>Keyed records are hashed exactly like the Kafka default partitioner, so per-key ordering is unchanged.</li>
+ * <li>Records without a key (NEW events) go to the least loaded available partition.</li>
+ * <li>Keys listed in {@code library-events.partitioner.hot-keys} are salted over
+ * {@code library-events.partitioner.hot-key-partitions} consecutive partitions, picking the least loaded one.
+ * This gives up per-key ordering for those keys in exchange for spreading their load.</li>
+ * </ul>
+ */
+public class LoadAwarePartitioner implements Partitioner {
+
+    public static final String HOT_KEYS_CONFIG = "library-events.partitioner.hot-keys";
+
+    public static final String HOT_KEY_PARTITIONS_CONFIG = "library-events.partitioner.hot-key-partitions";
+
+    public static final String WINDOW_MS_CONFIG = "library-events.partitioner.window-ms";
+
+    private static final int WINDOW_BUCKETS = 10;
+
+    private final ConcurrentMap<String, PartitionLoad> partitionLoads = new ConcurrentHashMap<>();
+
+    private Set<Integer> hotKeys = new HashSet<>();
+
+    private int hotKeyPartitions = 2;
+
+    private long bucketMs = 100;
+
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configuredHotKeys = configs.get(HOT_KEYS_CONFIG);
+        if (configuredHotKeys != null) {
+            Set<Integer> keys = new HashSet<>();
+            for (String hotKey : configuredHotKeys.toString().split(",")) {
+                if (!hotKey.trim().isEmpty()) {
+                    keys.add(Integer.valueOf(hotKey.trim()));
+                }
+            }
+            hotKeys = keys;
+        }
+        if (configs.get(HOT_KEY_PARTITIONS_CONFIG) != null) {
+            hotKeyPartitions = Integer.parseInt(configs.get(HOT_KEY_PARTITIONS_CONFIG).toString());
+        }
+        if (configs.get(WINDOW_MS_CONFIG) != null) {
+            bucketMs = Math.max(1, Long.parseLong(configs.get(WINDOW_MS_CONFIG).toString()) / WINDOW_BUCKETS);
+        }
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        List<PartitionInfo> partitions = cluster.partitionsForTopic(topic);
+        int numPartitions = partitions.size();
+        PartitionLoad partitionLoad = partitionLoad(topic, numPartitions);
+        long now = System.currentTimeMillis();
+
+        int partition;
+        if (keyBytes == null) {
+            List<PartitionInfo> availablePartitions = cluster.availablePartitionsForTopic(topic);
+            partition = partitionLoad.leastLoaded(availablePartitions.isEmpty() ? partitions : availablePartitions, now);
+        } else if (hotKeys.contains(key)) {
+            partition = partitionLoad.leastLoaded(hash(keyBytes, numPartitions), Math.min(hotKeyPartitions, numPartitions), now);
+        } else {
+            partition = hash(keyBytes, numPartitions);
+        }
+
+        partitionLoad.record(partition, valueBytes == null ? 1 : valueBytes.length, now);
+        return partition;
+    }
+
+    @Override
+    public void close() {
+        partitionLoads.clear();
+    }
+
+    long load(String topic, int partition) {
+        PartitionLoad partitionLoad = partitionLoads.get(topic);
+        return partitionLoad == null ? 0 : partitionLoad.load(partition, System.currentTimeMillis());
+    }
+
+
+    private PartitionLoad partitionLoad(String topic, int numPartitions) {
+        PartitionLoad partitionLoad = partitionLoads.get(topic);
+        if (partitionLoad == null || partitionLoad.numPartitions != numPartitions) {
+            partitionLoad = new PartitionLoad(numPartitions, bucketMs);
+            partitionLoads.put(topic, partitionLoad);
+        }
+        return partitionLoad;
+    }
+
+    private static int hash(byte[] keyBytes, int numPartitions) {
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    }
+
+
+    /**
+     * Bytes per partition over {@link #WINDOW_BUCKETS} time buckets. A bucket is recycled lazily when the clock
+     * moves into it again; increments racing with a recycle may be lost, which is fine for a load estimate.
+     */
+    private static class PartitionLoad {
+
+        private final int numPartitions;
+
+        private final long bucketMs;
+
+        private final AtomicLongArray bucketEpochs = new AtomicLongArray(WINDOW_BUCKETS);
+
+        private final AtomicLongArray bytes;
+
+
+        PartitionLoad(int numPartitions, long bucketMs) {
+            this.numPartitions = numPartitions;
+            this.bucketMs = bucketMs;
+            this.bytes = new AtomicLongArray(WINDOW_BUCKETS * numPartitions);
+        }
+
+
+        void record(int partition, long recordBytes, long now) {
+            long epoch = now / bucketMs;
+            int bucket = (int) (epoch % WINDOW_BUCKETS);
+            long bucketEpoch = bucketEpochs.get(bucket);
+            if (bucketEpoch != epoch && bucketEpochs.compareAndSet(bucket, bucketEpoch, epoch)) {
+                for (int i = 0; i < numPartitions; i++) {
+                    bytes.set(bucket * numPartitions + i, 0);
+                }
+            }
+            bytes.addAndGet(bucket * numPartitions + partition, recordBytes);
+        }
+
+        long load(int partition, long now) {
+            long currentEpoch = now / bucketMs;
+            long load = 0;
+            for (int bucket = 0; bucket < WINDOW_BUCKETS; bucket++) {
+                if (currentEpoch - bucketEpochs.get(bucket) < WINDOW_BUCKETS) {
+                    load += bytes.get(bucket * numPartitions + partition);
+                }
+            }
+            return load;
+        }
+
+        int leastLoaded(Collection<PartitionInfo> candidates, long now) {
+            int leastLoadedPartition = -1;
+            long leastLoad = Long.MAX_VALUE;
+            for (PartitionInfo candidate : candidates) {
+                long load = load(candidate.partition(), now);
+                if (load < leastLoad) {
+                    leastLoad = load;
+                    leastLoadedPartition = candidate.partition();
+                }
+            }
+            return leastLoadedPartition;
+        }
+
+        int leastLoaded(int firstPartition, int count, long now) {
+            int leastLoadedPartition = firstPartition;
+            long leastLoad = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int partition = (firstPartition + i) % numPartitions;
+                long load = load(partition, now);
+                if (load < leastLoad) {
+                    leastLoad = load;
+                    leastLoadedPartition = partition;
+                }
+            }
+            return leastLoadedPartition;
+        }
+
+    }
+
+}
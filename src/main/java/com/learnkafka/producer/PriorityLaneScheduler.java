@@ -0,0 +1,413 @@
+package com.learnkafka.producer;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.learnkafka.domain.LibraryEventType;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Separates {@link LibraryEventType#NEW} and {@link LibraryEventType#UPDATE} traffic into lanes, so a burst of
+ * UPDATEs cannot starve NEW registrations. Every lane has its own Kafka producer with its share of
+ * {@code buffer.memory}, optionally its own topic, a bounded queue and a cap on unacknowledged sends.
+ * <p>
+ * A single scheduler thread hands queued records to the lane producers with smooth weighted round robin, skipping
+ * lanes that are empty, at their in-flight cap or whose producer has less {@code buffer-available-bytes} left than a
+ * new batch needs, so {@code send()} never waits up to {@code max.block.ms} for buffer space. A lane that is backed up
+ * therefore never blocks the others, and while all lanes are busy each one gets sends in proportion to its
+ * {@code weight}. A lane topic missing from the metadata still blocks the first send; the warm-up fetches it. A full
+ * lane queue rejects the record with a {@link RejectedExecutionException}. Events without a type go through the NEW
+ * lane.
+ * <p>
+ * Lanes only reorder records of different keys. A record whose key still has a send queued or unacknowledged in one
+ * lane joins that lane, keeping the topic of its own, so the NEW of a library event and the UPDATEs that follow it
+ * before it is acknowledged go through one queue and one producer in the order they were submitted.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.priority-lanes", name = "enabled", havingValue = "true")
+@Slf4j
+public class PriorityLaneScheduler {
+
+    private static final long DEFAULT_BUFFER_MEMORY = 32 * 1024 * 1024L;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int DEFAULT_BATCH_SIZE = 16384;
+
+    /** Upper bound of the record batch and record headers Kafka adds around the key and value. */
+    private static final int RECORD_OVERHEAD_BYTES = 128;
+
+    private static final long BUFFER_METRIC_LOOKUP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<LibraryEventType, Lane> lanes = new EnumMap<>(LibraryEventType.class);
+
+    private final Lane[] schedulingOrder;
+
+    private final Map<LibraryEventType, DefaultKafkaProducerFactory<Integer, byte[]>> producerFactories = new EnumMap<>(LibraryEventType.class);
+
+    /** Keys with sends queued or in flight, and the lane they are pinned to until the last one completes. */
+    private final Map<Integer, KeyPin> keyPins = new ConcurrentHashMap<>();
+
+    private final Thread schedulerThread;
+
+    private volatile boolean running = true;
+
+
+    @Autowired
+    public PriorityLaneScheduler(@Value("${library-events.priority-lanes.queue-capacity:10000}") int queueCapacity, Environment environment,
+            KafkaProperties kafkaProperties, ObjectProvider<DefaultKafkaProducerFactoryCustomizer> producerFactoryCustomizers,
+            MeterRegistry meterRegistry) {
+        this(laneSettings(environment), createKafkaTemplates(kafkaProperties, laneSettings(environment),
+                producerFactoryCustomizers.orderedStream().collect(Collectors.toList())), queueCapacity, meterRegistry);
+        start();
+    }
+
+    @SuppressWarnings("unchecked")
+    PriorityLaneScheduler(Map<LibraryEventType, PriorityLaneSettings> laneSettings, Map<LibraryEventType, KafkaTemplate<Integer, byte[]>> kafkaTemplates,
+            int queueCapacity, MeterRegistry meterRegistry) {
+        for (LibraryEventType libraryEventType : LibraryEventType.values()) {
+            KafkaTemplate<Integer, byte[]> kafkaTemplate = kafkaTemplates.get(libraryEventType);
+            if (kafkaTemplate.getProducerFactory() instanceof DefaultKafkaProducerFactory) {
+                producerFactories.put(libraryEventType, (DefaultKafkaProducerFactory<Integer, byte[]>) kafkaTemplate.getProducerFactory());
+            }
+            lanes.put(libraryEventType, new Lane(libraryEventType, laneSettings.get(libraryEventType), kafkaTemplate, queueCapacity, meterRegistry));
+        }
+        schedulingOrder = lanes.values().toArray(new Lane[0]);
+
+        schedulerThread = new Thread(this::schedule, "library-events-priority-lane-scheduler");
+        schedulerThread.setDaemon(true);
+    }
+
+
+    public ListenableFuture<SendResult<Integer, byte[]>> submit(LibraryEventType libraryEventType, ProducerRecord<Integer, byte[]> producerRecord) {
+        Lane lane = lanes.get(libraryEventType != null ? libraryEventType : LibraryEventType.NEW);
+        PendingSend pendingSend = new PendingSend(lane.route(producerRecord));
+        Lane pinnedLane = pin(producerRecord.key(), lane);
+
+        if (!running || !pinnedLane.queue.offer(pendingSend)) {
+            unpin(producerRecord.key());
+            throw new RejectedExecutionException("Priority lane " + pinnedLane.name + " is full");
+        }
+        LockSupport.unpark(schedulerThread);
+
+        return pendingSend.future;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(schedulerThread);
+        schedulerThread.join(TimeUnit.SECONDS.toMillis(5));
+
+        for (Lane lane : schedulingOrder) {
+            PendingSend pendingSend;
+            while ((pendingSend = lane.queue.poll()) != null) {
+                unpin(pendingSend.producerRecord.key());
+                pendingSend.future.setException(new RejectedExecutionException("Priority lane " + lane.name + " is shut down"));
+            }
+        }
+        producerFactories.values().forEach(DefaultKafkaProducerFactory::destroy);
+    }
+
+
+    void start() {
+        schedulerThread.start();
+    }
+
+    private void schedule() {
+        while (running) {
+            Lane lane = nextLane();
+            if (lane == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                lane.send(lane.queue.poll());
+            }
+        }
+    }
+
+    /**
+     * Smooth weighted round robin over the lanes that have work and room for another send.
+     */
+    private Lane nextLane() {
+        Lane selected = null;
+        int totalWeight = 0;
+        for (Lane lane : schedulingOrder) {
+            PendingSend next = lane.queue.peek();
+            if (next == null || lane.inFlight.get() >= lane.maxInFlight || !lane.hasBufferFor(next.producerRecord)) {
+                continue;
+            }
+            lane.currentWeight += lane.weight;
+            totalWeight += lane.weight;
+            if (selected == null || lane.currentWeight > selected.currentWeight) {
+                selected = lane;
+            }
+        }
+        if (selected != null) {
+            selected.currentWeight -= totalWeight;
+        }
+        return selected;
+    }
+
+    /**
+     * Counts another pending send for {@code key} and returns the lane it is pinned to, {@code lane} if it has none.
+     */
+    private Lane pin(Integer key, Lane lane) {
+        if (key == null) {
+            return lane;
+        }
+        return keyPins.compute(key, (k, keyPin) -> {
+            if (keyPin == null) {
+                return new KeyPin(lane);
+            }
+            keyPin.pending++;
+            return keyPin;
+        }).lane;
+    }
+
+    private void unpin(Integer key) {
+        if (key != null) {
+            keyPins.computeIfPresent(key, (k, keyPin) -> --keyPin.pending == 0 ? null : keyPin);
+        }
+    }
+
+    private static int batchSize(KafkaTemplate<Integer, byte[]> kafkaTemplate) {
+        if (kafkaTemplate.getProducerFactory() instanceof DefaultKafkaProducerFactory) {
+            Object batchSize = kafkaTemplate.getProducerFactory().getConfigurationProperties().get(ProducerConfig.BATCH_SIZE_CONFIG);
+            if (batchSize != null) {
+                return Integer.parseInt(batchSize.toString());
+            }
+        }
+        return DEFAULT_BATCH_SIZE;
+    }
+
+    private static Map<LibraryEventType, PriorityLaneSettings> laneSettings(Environment environment) {
+        Map<LibraryEventType, PriorityLaneSettings> laneSettings = new EnumMap<>(LibraryEventType.class);
+        for (LibraryEventType libraryEventType : LibraryEventType.values()) {
+            laneSettings.put(libraryEventType, PriorityLaneSettings.from(environment, libraryEventType));
+        }
+        return laneSettings;
+    }
+
+    private static Map<LibraryEventType, KafkaTemplate<Integer, byte[]>> createKafkaTemplates(KafkaProperties kafkaProperties,
+            Map<LibraryEventType, PriorityLaneSettings> laneSettings, List<DefaultKafkaProducerFactoryCustomizer> producerFactoryCustomizers) {
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties();
+        Object bufferMemory = producerProperties.get(ProducerConfig.BUFFER_MEMORY_CONFIG);
+        long totalBufferMemory = bufferMemory != null ? Long.parseLong(bufferMemory.toString()) : DEFAULT_BUFFER_MEMORY;
+        String clientId = (String) producerProperties.getOrDefault(ProducerConfig.CLIENT_ID_CONFIG, "library-events-producer");
+
+        Map<LibraryEventType, KafkaTemplate<Integer, byte[]>> kafkaTemplates = new EnumMap<>(LibraryEventType.class);
+        laneSettings.forEach((libraryEventType, settings) -> {
+            Map<String, Object> laneProperties = new HashMap<>(producerProperties);
+            laneProperties.put(ProducerConfig.BUFFER_MEMORY_CONFIG, (long) (totalBufferMemory * settings.getBufferShare()));
+            laneProperties.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-" + libraryEventType.name().toLowerCase(Locale.ROOT));
+
+            DefaultKafkaProducerFactory<Integer, byte[]> producerFactory = new DefaultKafkaProducerFactory<>(laneProperties);
+            producerFactoryCustomizers.forEach(producerFactoryCustomizer -> producerFactoryCustomizer.customize(producerFactory));
+            KafkaTemplate<Integer, byte[]> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+            kafkaTemplate.setDefaultTopic(kafkaProperties.getTemplate().getDefaultTopic());
+            kafkaTemplates.put(libraryEventType, kafkaTemplate);
+        });
+        return kafkaTemplates;
+    }
+
+
+    /**
+     * Only read and written inside {@link ConcurrentHashMap#compute} for its key.
+     */
+    private static final class KeyPin {
+
+        private final Lane lane;
+
+        private int pending = 1;
+
+        private KeyPin(Lane lane) {
+            this.lane = lane;
+        }
+
+    }
+
+    private static final class PendingSend {
+
+        private final ProducerRecord<Integer, byte[]> producerRecord;
+
+        private final SettableListenableFuture<SendResult<Integer, byte[]>> future = new SettableListenableFuture<>();
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private PendingSend(ProducerRecord<Integer, byte[]> producerRecord) {
+            this.producerRecord = producerRecord;
+        }
+
+    }
+
+    private final class Lane {
+
+        private final String name;
+
+        private final int weight;
+
+        private final int maxInFlight;
+
+        private final String topic;
+
+        private final KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+        private final BlockingQueue<PendingSend> queue;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final Timer waitTimer;
+
+        private final Timer latencyTimer;
+
+        private final int batchSize;
+
+        /** Only touched by the scheduler thread. */
+        private int currentWeight;
+
+        /** Only touched by the scheduler thread. */
+        private Metric bufferAvailableBytes;
+
+        /** Only touched by the scheduler thread. */
+        private long bufferMetricLookupNanos;
+
+        private Lane(LibraryEventType libraryEventType, PriorityLaneSettings settings, KafkaTemplate<Integer, byte[]> kafkaTemplate,
+                int queueCapacity, MeterRegistry meterRegistry) {
+            this.name = libraryEventType.name();
+            this.weight = settings.getWeight();
+            this.maxInFlight = settings.getMaxInFlight();
+            this.topic = settings.getTopic();
+            this.kafkaTemplate = kafkaTemplate;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.batchSize = batchSize(kafkaTemplate);
+            this.bufferMetricLookupNanos = System.nanoTime() - BUFFER_METRIC_LOOKUP_INTERVAL_NANOS;
+
+            Gauge.builder("library.events.priority.lane.queue.depth", queue, BlockingQueue::size)
+                    .description("Library events waiting in a priority lane")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("library.events.priority.lane.inflight", inFlight, AtomicInteger::get)
+                    .description("Library events handed to the lane producer and not yet acknowledged")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            waitTimer = Timer.builder("library.events.priority.lane.wait")
+                    .description("Time a library event waits in its priority lane before it is handed to the producer")
+                    .tag("lane", name)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            latencyTimer = Timer.builder("library.events.priority.lane.latency")
+                    .description("Time from submitting a library event to its lane until Kafka acknowledges it")
+                    .tag("lane", name)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        private ProducerRecord<Integer, byte[]> route(ProducerRecord<Integer, byte[]> producerRecord) {
+            if (topic.isEmpty() || topic.equals(producerRecord.topic())) {
+                return producerRecord;
+            }
+            return new ProducerRecord<>(topic, producerRecord.partition(), producerRecord.timestamp(), producerRecord.key(),
+                    producerRecord.value(), producerRecord.headers());
+        }
+
+        /**
+         * Whether the producer can take the record without blocking: the record may open a new batch, which takes
+         * {@code batch.size} or the record size, whichever is larger, from {@code buffer.memory}.
+         */
+        private boolean hasBufferFor(ProducerRecord<Integer, byte[]> producerRecord) {
+            Metric metric = bufferAvailableBytes();
+            if (metric == null) {
+                return true;
+            }
+            int recordSize = (producerRecord.value() != null ? producerRecord.value().length : 0) + RECORD_OVERHEAD_BYTES;
+            return ((Number) metric.metricValue()).doubleValue() >= Math.max(batchSize, recordSize);
+        }
+
+        /**
+         * Looks the metric up again now and then, so a producer the factory replaced after a fatal error is picked up.
+         */
+        private Metric bufferAvailableBytes() {
+            long now = System.nanoTime();
+            if (now - bufferMetricLookupNanos >= BUFFER_METRIC_LOOKUP_INTERVAL_NANOS) {
+                bufferMetricLookupNanos = now;
+                bufferAvailableBytes = null;
+                for (Map.Entry<MetricName, ? extends Metric> metric : kafkaTemplate.metrics().entrySet()) {
+                    if ("buffer-available-bytes".equals(metric.getKey().name()) && "producer-metrics".equals(metric.getKey().group())) {
+                        bufferAvailableBytes = metric.getValue();
+                    }
+                }
+            }
+            return bufferAvailableBytes;
+        }
+
+        private void send(PendingSend pendingSend) {
+            waitTimer.record(System.nanoTime() - pendingSend.enqueuedNanos, TimeUnit.NANOSECONDS);
+            inFlight.incrementAndGet();
+
+            ListenableFuture<SendResult<Integer, byte[]>> listenableFuture;
+            try {
+                listenableFuture = kafkaTemplate.send(pendingSend.producerRecord);
+            } catch (RuntimeException e) {
+                log.error("Error handing the message for the key: {} to the {} lane producer, exception is {}",
+                        pendingSend.producerRecord.key(), name, e.getMessage());
+                inFlight.decrementAndGet();
+                unpin(pendingSend.producerRecord.key());
+                pendingSend.future.setException(e);
+                return;
+            }
+
+            listenableFuture.addCallback(result -> {
+                complete(pendingSend);
+                pendingSend.future.set(result);
+            }, ex -> {
+                complete(pendingSend);
+                pendingSend.future.setException(ex);
+            });
+        }
+
+        private void complete(PendingSend pendingSend) {
+            inFlight.decrementAndGet();
+            unpin(pendingSend.producerRecord.key());
+            latencyTimer.record(System.nanoTime() - pendingSend.enqueuedNanos, TimeUnit.NANOSECONDS);
+            LockSupport.unpark(schedulerThread);
+        }
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.learnkafka.producer;
+
+import java.util.Locale;
+
+import org.springframework.core.env.Environment;
+
+import com.learnkafka.domain.LibraryEventType;
+
+import lombok.Value;
+
+/**
+ * Settings of one {@link PriorityLaneScheduler} lane, read from {@code library-events.priority-lanes.<type>.*}.
+ */
+@Value
+class PriorityLaneSettings {
+
+    int weight;
+
+    double bufferShare;
+
+    int maxInFlight;
+
+    String topic;
+
+
+    static PriorityLaneSettings from(Environment environment, LibraryEventType libraryEventType) {
+        String prefix = "library-events.priority-lanes." + libraryEventType.name().toLowerCase(Locale.ROOT) + ".";
+        return new PriorityLaneSettings(
+                environment.getProperty(prefix + "weight", Integer.class, libraryEventType == LibraryEventType.NEW ? 4 : 1),
+                environment.getProperty(prefix + "buffer-share", Double.class, 1.0 / LibraryEventType.values().length),
+                environment.getProperty(prefix + "max-in-flight", Integer.class, 5000),
+                environment.getProperty(prefix + "topic", ""));
+    }
+
+}
@@ -0,0 +1,285 @@
+package com.learnkafka.producer;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically adjusts {@code linger.ms}, {@code batch.size} and {@code compression.type} of the application's
+ * producer factory to keep the p99 of {@code library.events.send} under a target while filling batches as much
+ * as that allows (see {@link ProducerTuningPolicy}). Tuning is skipped while the send rate is below
+ * {@code min-send-rate}, where batch statistics are meaningless.
+ * <p>
+ * A change is applied by swapping in a new producer rather than closing the live one under concurrent sends: the tuner
+ * builds a producer factory with the new settings from the application's factory and {@link LibraryEventProducer}
+ * sends through {@link #kafkaTemplate()} from then on. The previous producer is flushed and only closed on the next
+ * run, once sends that picked it up just before the swap are done with it. The application's own producer is left
+ * open for the other components that use it. Producers are replaced at most once per {@code min-reconfigure-interval-ms}.
+ * <p>
+ * Only the shared producer of the default factory is tuned. The latency and rate would otherwise include the
+ * producers of {@link LibraryEventProducerPool} and {@link PriorityLaneScheduler}, so the tuner stays idle while
+ * either is enabled; sends of {@link TransactionalLibraryEventProducer} are left out of the latency and rate, and so
+ * are synchronous sends while {@link GroupCommitCoordinator} hands them to its own producer, whose {@code linger.ms}
+ * floor the tuner therefore never lowers.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.auto-tuner", name = "enabled", havingValue = "true")
+@Slf4j
+public class ProducerAutoTuner {
+
+    @Value("${library-events.auto-tuner.interval-ms:30000}")
+    private long intervalMs;
+
+    @Value("${library-events.auto-tuner.target-p99-ms:50}")
+    private double targetP99Ms;
+
+    @Value("${library-events.auto-tuner.min-send-rate:10}")
+    private double minSendRate;
+
+    @Value("${library-events.auto-tuner.min-linger-ms:0}")
+    private int minLingerMs;
+
+    @Value("${library-events.auto-tuner.max-linger-ms:50}")
+    private int maxLingerMs;
+
+    @Value("${library-events.auto-tuner.min-batch-size:16384}")
+    private int minBatchSize;
+
+    @Value("${library-events.auto-tuner.max-batch-size:262144}")
+    private int maxBatchSize;
+
+    @Value("${library-events.auto-tuner.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${library-events.auto-tuner.compression-min-batch-bytes:4096}")
+    private int compressionMinBatchBytes;
+
+    @Value("${library-events.auto-tuner.min-reconfigure-interval-ms:300000}")
+    private long minReconfigureIntervalMs;
+
+    @Autowired
+    private DefaultKafkaProducerFactory<Integer, byte[]> producerFactory;
+
+    @Autowired
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private LibraryEventProducerPool libraryEventProducerPool;
+
+    @Autowired(required = false)
+    private PriorityLaneScheduler priorityLaneScheduler;
+
+    @Autowired(required = false)
+    private GroupCommitCoordinator groupCommitCoordinator;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private ProducerTuningPolicy producerTuningPolicy;
+
+    private volatile ProducerSettings producerSettings;
+
+    private volatile KafkaTemplate<Integer, byte[]> tunedKafkaTemplate;
+
+    private DefaultKafkaProducerFactory<Integer, byte[]> tunedProducerFactory;
+
+    private DefaultKafkaProducerFactory<Integer, byte[]> retiredProducerFactory;
+
+    private int generation;
+
+    private ScheduledExecutorService tuner;
+
+    private Counter adjustmentCounter;
+
+    private long lastSendCount;
+
+    private long lastReconfiguredMs;
+
+
+    @PostConstruct
+    public void init() {
+        tunedKafkaTemplate = kafkaTemplate;
+        if (libraryEventProducerPool != null || priorityLaneScheduler != null) {
+            log.warn("Producer auto-tuning is disabled: it tunes the default producer only, and the producer pool or "
+                    + "priority lanes are enabled");
+            return;
+        }
+        producerTuningPolicy = new ProducerTuningPolicy(targetP99Ms, minLingerMs, maxLingerMs, minBatchSize, maxBatchSize,
+                compressionType, compressionMinBatchBytes);
+        producerSettings = ProducerSettings.from(producerFactory.getConfigurationProperties());
+
+        Gauge.builder("library.events.tuner.linger", this, tuner -> tuner.producerSettings.getLingerMs())
+                .description("linger.ms chosen by the producer auto-tuner")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("library.events.tuner.batch.size", this, tuner -> tuner.producerSettings.getBatchSize())
+                .description("batch.size chosen by the producer auto-tuner")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("library.events.tuner.compression", this, tuner -> "none".equals(tuner.producerSettings.getCompressionType()) ? 0 : 1)
+                .description("1 when the producer auto-tuner enabled compression")
+                .register(meterRegistry);
+        adjustmentCounter = Counter.builder("library.events.tuner.adjustments")
+                .description("Producer reconfigurations made by the auto-tuner")
+                .register(meterRegistry);
+        lastReconfiguredMs = clock.getAsLong();
+
+        tuner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-events-producer-tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tuner.scheduleWithFixedDelay(this::tune, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (tuner != null) {
+            tuner.shutdownNow();
+        }
+        destroyRetiredProducer();
+        if (tunedProducerFactory != null) {
+            tunedProducerFactory.destroy();
+        }
+    }
+
+
+    /**
+     * The template asynchronous and synchronous sends go through, bound to the producer with the current settings.
+     */
+    public KafkaTemplate<Integer, byte[]> kafkaTemplate() {
+        return tunedKafkaTemplate;
+    }
+
+
+    void tune() {
+        try {
+            destroyRetiredProducer();
+
+            long sendCount = sendCount();
+            double sendRate = (sendCount - lastSendCount) * 1000.0 / intervalMs;
+            lastSendCount = sendCount;
+            if (sendRate < minSendRate || clock.getAsLong() - lastReconfiguredMs < minReconfigureIntervalMs) {
+                return;
+            }
+
+            double p99Ms = sendLatencyP99Ms();
+            double batchSizeAvg = producerMetric("batch-size-avg");
+            ProducerSettings current = producerSettings;
+            ProducerSettings next = producerTuningPolicy.decide(current, p99Ms, batchSizeAvg);
+            if (next.equals(current)) {
+                return;
+            }
+
+            log.info("Reconfiguring the producer from {} to {}: sendRate={}/s, p99={} ms, batch-size-avg={}, record-queue-time-avg={} ms, "
+                    + "request-latency-avg={} ms", current, next, Math.round(sendRate), p99Ms, batchSizeAvg,
+                    producerMetric("record-queue-time-avg"), producerMetric("request-latency-avg"));
+            swapProducer(next);
+            producerSettings = next;
+            lastReconfiguredMs = clock.getAsLong();
+            adjustmentCounter.increment();
+        } catch (RuntimeException e) {
+            log.warn("Producer auto-tuning failed: {}", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Sends already handed to the previous producer complete normally: it is flushed now and closed on the next run.
+     */
+    private void swapProducer(ProducerSettings next) {
+        Map<String, Object> overrides = next.toConfigs();
+        Object clientId = producerFactory.getConfigurationProperties().get(ProducerConfig.CLIENT_ID_CONFIG);
+        generation++;
+        if (clientId != null) {
+            overrides.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-tuned-" + generation);
+        }
+
+        // keeps the serializers, listeners and post processors of the application's factory
+        DefaultKafkaProducerFactory<Integer, byte[]> nextProducerFactory =
+                (DefaultKafkaProducerFactory<Integer, byte[]>) producerFactory.copyWithConfigurationOverride(overrides);
+        KafkaTemplate<Integer, byte[]> nextKafkaTemplate = new KafkaTemplate<>(nextProducerFactory);
+        nextKafkaTemplate.setDefaultTopic(kafkaTemplate.getDefaultTopic());
+
+        KafkaTemplate<Integer, byte[]> previousKafkaTemplate = tunedKafkaTemplate;
+        retiredProducerFactory = tunedProducerFactory;
+        tunedProducerFactory = nextProducerFactory;
+        tunedKafkaTemplate = nextKafkaTemplate;
+        previousKafkaTemplate.flush();
+    }
+
+    private void destroyRetiredProducer() {
+        if (retiredProducerFactory != null) {
+            retiredProducerFactory.destroy();
+            retiredProducerFactory = null;
+        }
+    }
+
+    private long sendCount() {
+        long count = 0;
+        for (Timer timer : meterRegistry.find("library.events.send").timers()) {
+            if (tunedEndpoint(timer)) {
+                count += timer.count();
+            }
+        }
+        return count;
+    }
+
+    private double sendLatencyP99Ms() {
+        double p99Ms = Double.NaN;
+        for (Timer timer : meterRegistry.find("library.events.send").tag("outcome", "success").timers()) {
+            if (!tunedEndpoint(timer)) {
+                continue;
+            }
+            for (ValueAtPercentile valueAtPercentile : timer.takeSnapshot().percentileValues()) {
+                if (valueAtPercentile.percentile() == 0.99) {
+                    double value = valueAtPercentile.value(TimeUnit.MILLISECONDS);
+                    p99Ms = Double.isNaN(p99Ms) ? value : Math.max(p99Ms, value);
+                }
+            }
+        }
+        return p99Ms;
+    }
+
+    private boolean tunedEndpoint(Timer timer) {
+        String endpoint = timer.getId().getTag("endpoint");
+        if (groupCommitCoordinator != null && LibraryEventProducer.ENDPOINT_SYNCHRONOUS.equals(endpoint)) {
+            return false;
+        }
+        return !TransactionalLibraryEventProducer.ENDPOINT_TRANSACTIONAL.equals(endpoint);
+    }
+
+    private double producerMetric(String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : tunedKafkaTemplate.metrics().entrySet()) {
+            if (name.equals(metric.getKey().name()) && "producer-metrics".equals(metric.getKey().group())) {
+                return ((Number) metric.getValue().metricValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+}
@@ -0,0 +1,307 @@
+package com.learnkafka.producer;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.common.errors.RetriableException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fails sends fast while the brokers are unavailable, instead of letting every synchronous request wait for its
+ * timeout and every asynchronous one block in {@code send()} for {@code max.block.ms}.
+ * <ul>
+ * <li>{@code CLOSED}: sends pass. The breaker opens when at least {@code failure-rate-threshold} of the last
+ * {@code window-size} sends failed with a timeout or a retriable broker error, or when sends are in flight while none
+ * of the open producers, default, pooled or per lane, has a broker connection.</li>
+ * <li>{@code OPEN}: sends are rejected with a {@link ProducerUnavailableException}, which the controllers answer with
+ * {@code 503}, and readiness is {@code REFUSING_TRAFFIC} so load balancers move traffic to other pods.</li>
+ * <li>{@code HALF_OPEN}: after {@code open-duration-ms} readiness is restored and up to {@code half-open-probes}
+ * sends are let through as probes. The breaker closes once they all succeed and opens again on any such failure.</li>
+ * </ul>
+ * Failures of the record itself, such as a serialization error, say nothing about the brokers and are neither
+ * counted nor used up as probes.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.circuit-breaker", name = "enabled", havingValue = "true")
+@Slf4j
+public class ProducerCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    @Value("${library-events.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${library-events.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${library-events.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${library-events.circuit-breaker.open-duration-ms:5000}")
+    private long openDurationMs;
+
+    @Value("${library-events.circuit-breaker.half-open-probes:3}")
+    private int halfOpenProbes;
+
+    @Value("${library-events.circuit-breaker.check-interval-ms:250}")
+    private long checkIntervalMs;
+
+    @Autowired
+    private LiveProducers liveProducers;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    LongSupplier clock = System::currentTimeMillis;
+
+    private final AtomicReference<Phase> phase = new AtomicReference<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private ScheduledExecutorService monitor;
+
+    private Counter rejections;
+
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+
+
+    @PostConstruct
+    public void init() {
+        phase.set(new Phase(State.CLOSED, 0, windowSize, 0));
+
+        Gauge.builder("library.events.circuit.state", phase, reference -> reference.get().state.ordinal())
+                .description("Producer circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        rejections = meterRegistry.counter("library.events.circuit.rejections");
+        for (State to : State.values()) {
+            transitions.put(to, meterRegistry.counter("library.events.circuit.transitions", "to", to.name()));
+        }
+
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-events-circuit-breaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(this::check, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        monitor.shutdownNow();
+    }
+
+
+    /**
+     * Called before every send. Throws a {@link ProducerUnavailableException} when the breaker is open, or half open
+     * with all probes taken; otherwise returns the phase the permission was granted in, which the caller must hand
+     * back with the outcome to {@link #onSuccess}, {@link #onFailure} or {@link #release}.
+     */
+    public Phase acquirePermission() {
+        Phase current = phase.get();
+        if (current.state == State.OPEN && clock.getAsLong() >= current.openUntilMs) {
+            transition(current, State.HALF_OPEN);
+            current = phase.get();
+        }
+
+        if (current.state == State.OPEN || (current.state == State.HALF_OPEN && !current.tryTakeProbe())) {
+            rejections.increment();
+            throw new ProducerUnavailableException("Kafka is unavailable, circuit breaker is " + current.state,
+                    Math.max(0, current.openUntilMs - clock.getAsLong()));
+        }
+        inFlight.incrementAndGet();
+        return current;
+    }
+
+    /**
+     * Outcomes only count towards the phase their permission was granted in, so a send admitted while closed that
+     * completes after the breaker opened and went half open is not taken for a probe.
+     */
+    public void onSuccess(Phase permit) {
+        inFlight.decrementAndGet();
+        if (permit != phase.get()) {
+            return;
+        }
+        if (permit.state == State.HALF_OPEN) {
+            if (permit.halfOpenSuccesses.incrementAndGet() >= halfOpenProbes) {
+                transition(permit, State.CLOSED);
+            }
+            return;
+        }
+        recordOutcome(permit, false);
+    }
+
+    /**
+     * Only for failures that say the brokers are unavailable, see {@link #indicatesUnavailability}; any other
+     * failure is reported with {@link #release}.
+     */
+    public void onFailure(Phase permit, Throwable ex) {
+        inFlight.decrementAndGet();
+        if (permit != phase.get()) {
+            return;
+        }
+        if (permit.state == State.HALF_OPEN) {
+            if (transition(permit, State.OPEN)) {
+                log.warn("Probe send failed, opened the circuit breaker again: {}", ex.getMessage());
+            }
+            return;
+        }
+        if (recordOutcome(permit, true) && transition(permit, State.OPEN)) {
+            log.warn("Failure rate above {} over the last {} sends, opened the circuit breaker: {}", failureRateThreshold, windowSize,
+                    ex.getMessage());
+        }
+    }
+
+    /**
+     * Gives the permission back without an outcome, for sends that failed for reasons of their own, such as a record
+     * that cannot be serialized or a full priority lane. A half open breaker gets the probe back.
+     */
+    public void release(Phase permit) {
+        inFlight.decrementAndGet();
+        if (permit.state == State.HALF_OPEN && permit == phase.get()) {
+            permit.halfOpenPermits.incrementAndGet();
+        }
+    }
+
+    public State getState() {
+        return phase.get().state;
+    }
+
+    /**
+     * Whether {@code ex}, or one of its causes, means the brokers could not be reached in time: a timeout, or a
+     * retriable Kafka error such as a network or leader error.
+     */
+    public static boolean indicatesUnavailability(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof TimeoutException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    void check() {
+        try {
+            Phase current = phase.get();
+            if (current.state == State.OPEN && clock.getAsLong() >= current.openUntilMs) {
+                transition(current, State.HALF_OPEN);
+            } else if (current.state == State.CLOSED && inFlight.get() > 0 && liveProducers.sum("connection-count") == 0
+                    && transition(current, State.OPEN)) {
+                log.warn("{} sends in flight and no broker connection, opened the circuit breaker", inFlight.get());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Circuit breaker check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Records one outcome in the ring of the last {@code window-size} sends of a closed phase and returns whether the
+     * failure rate is above the threshold.
+     */
+    private boolean recordOutcome(Phase closed, boolean failed) {
+        long call = closed.calls.getAndIncrement();
+        int previous = closed.outcomes.getAndSet((int) (call % windowSize), failed ? 1 : 0);
+        int currentFailures = closed.failures.addAndGet((failed ? 1 : 0) - previous);
+
+        long recordedCalls = Math.min(call + 1, windowSize);
+        return recordedCalls >= minimumCalls && currentFailures >= failureRateThreshold * recordedCalls;
+    }
+
+    /**
+     * Replaces {@code from} with a fresh phase in state {@code to}. Only the thread whose compare-and-set wins logs,
+     * counts and publishes the readiness change, and it returns {@code true}.
+     */
+    private boolean transition(Phase from, State to) {
+        Phase next = new Phase(to, to == State.OPEN ? clock.getAsLong() + openDurationMs : 0, windowSize, halfOpenProbes);
+        if (!phase.compareAndSet(from, next)) {
+            return false;
+        }
+        log.info("Producer circuit breaker {} -> {}", from.state, to);
+        transitions.get(to).increment();
+
+        if (to == State.OPEN) {
+            AvailabilityChangeEvent.publish(applicationEventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        } else if (from.state == State.OPEN) {
+            AvailabilityChangeEvent.publish(applicationEventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+        return true;
+    }
+
+
+    /**
+     * One stay of the breaker in a state, with the counters that only make sense within it. A transition swaps in a
+     * new phase, so nothing has to be reset while other threads are still reporting outcomes.
+     */
+    public static final class Phase {
+
+        private final State state;
+
+        private final long openUntilMs;
+
+        private final AtomicIntegerArray outcomes;
+
+        private final AtomicLong calls = new AtomicLong();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger halfOpenPermits;
+
+        private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+        private Phase(State state, long openUntilMs, int windowSize, int halfOpenProbes) {
+            this.state = state;
+            this.openUntilMs = openUntilMs;
+            this.outcomes = state == State.CLOSED ? new AtomicIntegerArray(windowSize) : null;
+            this.halfOpenPermits = new AtomicInteger(halfOpenProbes);
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        private boolean tryTakeProbe() {
+            int permits;
+            do {
+                permits = halfOpenPermits.get();
+                if (permits <= 0) {
+                    return false;
+                }
+            } while (!halfOpenPermits.compareAndSet(permits, permits - 1));
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.learnkafka.producer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import lombok.Value;
+
+/**
+ * The producer settings managed by {@link ProducerAutoTuner}.
+ */
+@Value
+class ProducerSettings {
+
+    int lingerMs;
+
+    int batchSize;
+
+    String compressionType;
+
+
+    static ProducerSettings from(Map<String, Object> configs) {
+        return new ProducerSettings(
+                intConfig(configs, ProducerConfig.LINGER_MS_CONFIG, 0),
+                intConfig(configs, ProducerConfig.BATCH_SIZE_CONFIG, 16384),
+                String.valueOf(configs.getOrDefault(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none")));
+    }
+
+    Map<String, Object> toConfigs() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return configs;
+    }
+
+    private static int intConfig(Map<String, Object> configs, String name, int defaultValue) {
+        Object value = configs.get(name);
+        return value != null ? Integer.parseInt(value.toString()) : defaultValue;
+    }
+
+}
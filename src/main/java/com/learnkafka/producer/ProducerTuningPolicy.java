@@ -0,0 +1,78 @@
+package com.learnkafka.producer;
+
+/**
+ * Decides the next {@link ProducerSettings} from the observed send latency and batch sizes. Each decision moves
+ * at most one of {@code linger.ms} and {@code batch.size} by a factor of two, always within the configured bounds:
+ * <ul>
+ * <li>p99 above target: shorten {@code linger.ms}, then shrink {@code batch.size}.</li>
+ * <li>p99 below half the target: grow {@code batch.size} if batches are more than 80% full, otherwise
+ * lengthen {@code linger.ms} if they are less than half full.</li>
+ * </ul>
+ * Compression is switched on once the average batch reaches {@code compressionMinBatchBytes} and off again when
+ * it falls under half of that, so small batches do not pay for it.
+ */
+class ProducerTuningPolicy {
+
+    private static final String NO_COMPRESSION = "none";
+
+    private final double targetP99Ms;
+
+    private final int minLingerMs;
+
+    private final int maxLingerMs;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final String compressionType;
+
+    private final int compressionMinBatchBytes;
+
+
+    ProducerTuningPolicy(double targetP99Ms, int minLingerMs, int maxLingerMs, int minBatchSize, int maxBatchSize,
+            String compressionType, int compressionMinBatchBytes) {
+        this.targetP99Ms = targetP99Ms;
+        this.minLingerMs = minLingerMs;
+        this.maxLingerMs = maxLingerMs;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.compressionType = compressionType;
+        this.compressionMinBatchBytes = compressionMinBatchBytes;
+    }
+
+
+    ProducerSettings decide(ProducerSettings current, double p99Ms, double batchSizeAvg) {
+        if (Double.isNaN(p99Ms) || Double.isNaN(batchSizeAvg)) {
+            return current;
+        }
+
+        int lingerMs = current.getLingerMs();
+        int batchSize = current.getBatchSize();
+        double batchFill = batchSizeAvg / batchSize;
+
+        if (p99Ms > targetP99Ms) {
+            if (lingerMs > minLingerMs) {
+                lingerMs = Math.max(minLingerMs, lingerMs / 2);
+            } else if (batchSize > minBatchSize) {
+                batchSize = Math.max(minBatchSize, batchSize / 2);
+            }
+        } else if (p99Ms < targetP99Ms / 2) {
+            if (batchFill > 0.8 && batchSize < maxBatchSize) {
+                batchSize = Math.min(maxBatchSize, batchSize * 2);
+            } else if (batchFill < 0.5 && lingerMs < maxLingerMs) {
+                lingerMs = Math.min(maxLingerMs, Math.max(1, lingerMs * 2));
+            }
+        }
+
+        String compression = current.getCompressionType();
+        if (batchSizeAvg >= compressionMinBatchBytes) {
+            compression = compressionType;
+        } else if (batchSizeAvg < compressionMinBatchBytes / 2.0) {
+            compression = NO_COMPRESSION;
+        }
+
+        return new ProducerSettings(lingerMs, batchSize, compression);
+    }
+
+}
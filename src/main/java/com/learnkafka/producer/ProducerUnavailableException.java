@@ -0,0 +1,24 @@
+package com.learnkafka.producer;
+
+import org.apache.kafka.common.errors.RetriableException;
+
+/**
+ * Thrown instead of sending while the {@link ProducerCircuitBreaker} is open. It is a {@link RetriableException},
+ * so the spooler and the retry scheduler treat it like any other temporary broker failure.
+ */
+public class ProducerUnavailableException extends RetriableException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMs;
+
+    public ProducerUnavailableException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.learnkafka.producer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+
+import com.learnkafka.config.PartitionerConfig;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.metrics.LibraryEventMetrics;
+import com.learnkafka.serializer.LibraryEventSerializer;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+/**
+ * reactor-kafka counterpart of {@link LibraryEventProducer}, used when the application runs on WebFlux
+ * ({@code reactive} profile). Sends never block the calling thread: a request waiting for its acknowledgement
+ * holds a subscription, not a thread, and the connection is only released once Kafka answers.
+ * <p>
+ * Asynchronous sends answer right away while fewer than {@code maxInFlight} sends are unacknowledged. Beyond that
+ * the returned {@code Mono} only completes with the acknowledgement, so the response, and with it the next request
+ * on that connection, waits for the producer to catch up instead of piling records into its buffer.
+ * <p>
+ * Sends are recorded by {@link LibraryEventMetrics} under the same endpoint names as the servlet producer. The
+ * circuit breaker, admission control, rate limiting, the spool and the retry scheduler are servlet-only and are not
+ * applied on this path; {@code maxInFlight} is its only protection against overload.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@Slf4j
+public class ReactiveLibraryEventProducer {
+
+    private static final String ENDPOINT_ASYNCHRONOUS = "asynchronous";
+
+    private static final String ENDPOINT_ASYNCHRONOUS_PRODUCER_RECORD = "asynchronous-producerrecord";
+
+    private static final String ENDPOINT_SYNCHRONOUS = "synchronous";
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    @Autowired
+    private LibraryEventSerializer libraryEventSerializer;
+
+    @Autowired(required = false)
+    private PartitionerConfig partitionerConfig;
+
+    @Autowired
+    private LibraryEventMetrics libraryEventMetrics;
+
+    @Value("${library-events.reactive.max-in-flight:1024}")
+    private int maxInFlight;
+
+    private KafkaSender<Integer, LibraryEvent> kafkaSender;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private String topicName;
+
+
+    @PostConstruct
+    public void init() {
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties();
+        if (partitionerConfig != null) {
+            producerProperties.putAll(partitionerConfig.producerConfigs());
+        }
+        SenderOptions<Integer, LibraryEvent> senderOptions = SenderOptions.<Integer, LibraryEvent>create(producerProperties)
+                .withValueSerializer(libraryEventSerializer);
+
+        kafkaSender = KafkaSender.create(senderOptions);
+        topicName = kafkaProperties.getTemplate().getDefaultTopic();
+    }
+
+    @PreDestroy
+    public void close() {
+        kafkaSender.close();
+    }
+
+
+    public Mono<Void> sendAsynchronusLibraryEvent(LibraryEvent libraryEvent) {
+        Integer key = libraryEvent.getLibraryEventId();
+
+        return sendWithinCapacity(ENDPOINT_ASYNCHRONOUS, new ProducerRecord<>(topicName, key, libraryEvent));
+    }
+
+    public Mono<Void> sendAsynchronusLibraryEventUsingProducerRecord(LibraryEvent libraryEvent) {
+        Integer key = libraryEvent.getLibraryEventId();
+        List<Header> recordHeaders = Arrays.asList(new RecordHeader("event-source", "scanner".getBytes()));
+
+        return sendWithinCapacity(ENDPOINT_ASYNCHRONOUS_PRODUCER_RECORD, new ProducerRecord<>(topicName, null, key, libraryEvent, recordHeaders));
+    }
+
+    public Mono<SenderResult<Integer>> sendLibraryEventAwaitingAck(LibraryEvent libraryEvent) {
+        Integer key = libraryEvent.getLibraryEventId();
+
+        return send(ENDPOINT_SYNCHRONOUS, new ProducerRecord<>(topicName, key, libraryEvent));
+    }
+
+
+    /**
+     * Completes at once while the in-flight sends are within {@code maxInFlight}, otherwise with the acknowledgement.
+     * Failures are only logged either way, as for the servlet asynchronous endpoints.
+     */
+    private Mono<Void> sendWithinCapacity(String endpoint, ProducerRecord<Integer, LibraryEvent> producerRecord) {
+        return Mono.defer(() -> {
+            Mono<Void> send = send(endpoint, producerRecord)
+                    .doFinally(signal -> inFlight.decrementAndGet())
+                    .onErrorResume(ex -> Mono.empty())
+                    .then();
+            if (inFlight.incrementAndGet() <= maxInFlight) {
+                send.subscribe();
+                return Mono.empty();
+            }
+            return send;
+        });
+    }
+
+    private Mono<SenderResult<Integer>> send(String endpoint, ProducerRecord<Integer, LibraryEvent> producerRecord) {
+        Integer key = producerRecord.key();
+        LibraryEvent libraryEvent = producerRecord.value();
+
+        return Mono.defer(() -> {
+            Timer.Sample sample = libraryEventMetrics.startSend(endpoint);
+            return kafkaSender.send(Mono.just(SenderRecord.create(producerRecord, key)))
+                    .next()
+                    .doOnNext(result -> {
+                        handleSuccess(key, result);
+                        libraryEventMetrics.recordSuccess(sample, endpoint, libraryEvent, result.recordMetadata());
+                    })
+                    .doOnError(ex -> {
+                        handleFailure(key, ex);
+                        libraryEventMetrics.recordFailure(sample, endpoint, libraryEvent, ex);
+                    });
+        });
+    }
+
+    private void handleFailure(Integer key, Throwable ex) {
+        log.error("Error sending the message for the key: {}, exception is {}", key, ex.getMessage());
+    }
+
+    private void handleSuccess(Integer key, SenderResult<Integer> result) {
+        if (log.isDebugEnabled()) {
+            log.debug("Message sent successfully for the key: {}, partition is {}, offset is {}",
+                    key, result.recordMetadata().partition(), result.recordMetadata().offset());
+        }
+    }
+
+}
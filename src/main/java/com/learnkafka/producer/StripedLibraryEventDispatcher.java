@@ -0,0 +1,108 @@
+package com.learnkafka.producer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.learnkafka.domain.LibraryEvent;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves serialization and the producer {@code send()} off the request thread onto a fixed set of
+ * single-threaded lanes. Events are striped by {@code libraryEventId}, so events with the same id are always
+ * handled by the same lane, in submission order. Events without an id are spread round robin.
+ * A full lane queue rejects the event with a {@link java.util.concurrent.RejectedExecutionException}.
+ * Lane threads are daemons and never hold the JVM up; queued events are drained on {@link #shutdown()}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.dispatcher", name = "enabled", havingValue = "true")
+@Slf4j
+public class StripedLibraryEventDispatcher {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    private final AtomicInteger nextLaneForNullKey = new AtomicInteger();
+
+
+    public StripedLibraryEventDispatcher(@Value("${library-events.dispatcher.lanes:0}") int laneCount,
+            @Value("${library-events.dispatcher.queue-capacity:10000}") int queueCapacity, MeterRegistry meterRegistry) {
+        int effectiveLaneCount = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+
+        lanes = new ThreadPoolExecutor[effectiveLaneCount];
+        for (int i = 0; i < effectiveLaneCount; i++) {
+            String threadName = "library-events-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+            String lane = String.valueOf(i);
+            Gauge.builder("library.events.dispatcher.queue.depth", lanes[i], executor -> executor.getQueue().size())
+                    .description("Library events waiting in a dispatcher lane")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            FunctionCounter.builder("library.events.dispatcher.dispatched", lanes[i], ThreadPoolExecutor::getCompletedTaskCount)
+                    .description("Library events handed to the producer by a dispatcher lane")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+        }
+
+        Gauge.builder("library.events.dispatcher.lane.skew", this, StripedLibraryEventDispatcher::getQueueDepthSkew)
+                .description("Deepest lane queue divided by the average lane queue depth, 1 when balanced")
+                .register(meterRegistry);
+    }
+
+
+    public void dispatch(LibraryEvent libraryEvent, Consumer<LibraryEvent> sender) {
+        lane(libraryEvent.getLibraryEventId()).execute(() -> {
+            try {
+                sender.accept(libraryEvent);
+            } catch (RuntimeException e) {
+                log.error("Error sending the message for the key: {} from the dispatcher lane, exception is {}",
+                        libraryEvent.getLibraryEventId(), e.getMessage());
+            }
+        });
+    }
+
+    public double getQueueDepthSkew() {
+        long totalDepth = 0;
+        long maxDepth = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            int depth = lane.getQueue().size();
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        return totalDepth == 0 ? 1.0 : maxDepth * (double) lanes.length / totalDepth;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+
+    private ThreadPoolExecutor lane(Integer key) {
+        int hash = key != null ? key.hashCode() : nextLaneForNullKey.getAndIncrement();
+        return lanes[Math.floorMod(hash, lanes.length)];
+    }
+
+}
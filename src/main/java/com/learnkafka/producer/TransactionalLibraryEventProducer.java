@@ -0,0 +1,159 @@
+package com.learnkafka.producer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.learnkafka.admission.AdmissionRejectedException;
+import com.learnkafka.admission.InFlightBudget;
+import com.learnkafka.config.AdmissionControlConfig;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.metrics.LibraryEventMetrics;
+import com.learnkafka.serializer.LibraryEventSerializer;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends a group of library events in one Kafka transaction with an idempotent producer, so either all of them
+ * become visible to {@code read_committed} consumers or none do, and producer retries cannot duplicate them.
+ * <p>
+ * The transactional producer factory is private to this class rather than a bean, so Spring Boot keeps
+ * auto-configuring the non-transactional template that {@link LibraryEventProducer} uses.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.transactions", name = "enabled", havingValue = "true")
+@Slf4j
+public class TransactionalLibraryEventProducer {
+
+    static final String ENDPOINT_TRANSACTIONAL = "transactional";
+
+    @Value("${library-events.transactions.transaction-id-prefix:library-events-tx-}")
+    private String transactionIdPrefix;
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    @Autowired
+    private LibraryEventSerializer libraryEventSerializer;
+
+    @Autowired
+    private ObjectProvider<DefaultKafkaProducerFactoryCustomizer> producerFactoryCustomizers;
+
+    @Autowired
+    private LibraryEventMetrics libraryEventMetrics;
+
+    @Autowired(required = false)
+    @Qualifier(AdmissionControlConfig.SYNCHRONOUS_BUDGET)
+    private InFlightBudget synchronousInFlightBudget;
+
+    private DefaultKafkaProducerFactory<Integer, byte[]> producerFactory;
+
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    @PostConstruct
+    public void init() {
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties();
+        producerProperties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        producerProperties.put(ProducerConfig.ACKS_CONFIG, "all");
+
+        producerFactory = new DefaultKafkaProducerFactory<>(producerProperties);
+        producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+        producerFactoryCustomizers.orderedStream().forEach(producerFactoryCustomizer -> producerFactoryCustomizer.customize(producerFactory));
+
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setDefaultTopic(kafkaProperties.getTemplate().getDefaultTopic());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        producerFactory.destroy();
+    }
+
+
+    /**
+     * Sends the events in order and commits them with a single transaction. Blocks until the commit completes;
+     * if any send or the commit fails the transaction is aborted and the exception is rethrown. With admission control
+     * enabled the group is charged to the synchronous budget per event and serialized size until then.
+     */
+    public List<SendResult<Integer, byte[]>> sendLibraryEventsInTransaction(List<LibraryEvent> libraryEvents)
+            throws ExecutionException, InterruptedException {
+
+        List<byte[]> values = new ArrayList<>(libraryEvents.size());
+        long bytes = 0;
+        for (LibraryEvent libraryEvent : libraryEvents) {
+            byte[] value = libraryEventSerializer.serialize(kafkaTemplate.getDefaultTopic(), libraryEvent);
+            values.add(value);
+            bytes += value.length;
+        }
+
+        if (synchronousInFlightBudget == null) {
+            return sendInTransaction(libraryEvents, values);
+        }
+        if (!synchronousInFlightBudget.tryAcquire(libraryEvents.size(), bytes)) {
+            throw new AdmissionRejectedException(synchronousInFlightBudget.getName());
+        }
+        try {
+            return sendInTransaction(libraryEvents, values);
+        } finally {
+            synchronousInFlightBudget.release(libraryEvents.size(), bytes);
+        }
+    }
+
+
+    private List<SendResult<Integer, byte[]>> sendInTransaction(List<LibraryEvent> libraryEvents, List<byte[]> values)
+            throws ExecutionException, InterruptedException {
+
+        List<Timer.Sample> samples = new ArrayList<>(libraryEvents.size());
+        libraryEvents.forEach(libraryEvent -> samples.add(libraryEventMetrics.startSend(ENDPOINT_TRANSACTIONAL)));
+
+        List<ListenableFuture<SendResult<Integer, byte[]>>> listenableFutures;
+        try {
+            listenableFutures = kafkaTemplate.executeInTransaction(operations -> {
+                List<ListenableFuture<SendResult<Integer, byte[]>>> futures = new ArrayList<>(libraryEvents.size());
+                for (int i = 0; i < libraryEvents.size(); i++) {
+                    futures.add(operations.send(new ProducerRecord<>(kafkaTemplate.getDefaultTopic(), libraryEvents.get(i).getLibraryEventId(),
+                            values.get(i))));
+                }
+                return futures;
+            });
+        } catch (RuntimeException e) {
+            log.error("Transaction of {} library events aborted, exception is {}", libraryEvents.size(), e.getMessage());
+            for (int i = 0; i < libraryEvents.size(); i++) {
+                libraryEventMetrics.recordFailure(samples.get(i), ENDPOINT_TRANSACTIONAL, libraryEvents.get(i), e);
+            }
+            throw e;
+        }
+
+        // the commit flushed every send, so these futures are already complete
+        List<SendResult<Integer, byte[]>> sendResults = new ArrayList<>(listenableFutures.size());
+        for (int i = 0; i < listenableFutures.size(); i++) {
+            SendResult<Integer, byte[]> sendResult = listenableFutures.get(i).get();
+            libraryEventMetrics.recordSuccess(samples.get(i), ENDPOINT_TRANSACTIONAL, libraryEvents.get(i), sendResult.getRecordMetadata());
+            sendResults.add(sendResult);
+        }
+
+        log.info("Committed a transaction of {} library events", sendResults.size());
+        return sendResults;
+    }
+
+}
@@ -0,0 +1,498 @@
+package com.learnkafka.retry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retries asynchronous sends that Kafka failed after the producer's own {@code retries} were used up, with
+ * exponential backoff and jitter, and publishes records that still cannot be sent to a dead-letter topic.
+ * <p>
+ * Backoffs wait on a {@link HashedWheelTimer}, and retry decisions and retried sends run on a single retry thread,
+ * so request threads never wait for a retry. Every keyed send is tracked per key until it completes, so the
+ * bookkeeping is bounded by the records in flight: the sequences of the records of the key the producer still has,
+ * and the highest acknowledged one. While a key has a record waiting to be retried, later records of the key are held
+ * back and sent after it, oldest first, up to {@code max-pending} records in total. A failed record is only retried
+ * once no later record of its key is still in flight, and is abandoned as {@code superseded} as soon as a later one
+ * has been acknowledged, so a stale UPDATE cannot overwrite a newer one, even when the newer one was sent before the
+ * failure was known. Retries are also limited by a per-second {@link RetryBudget}. A record ends up on the dead-letter topic when its
+ * error is not retriable, its attempts are exhausted, the budget is spent, or it was superseded. The dead-letter
+ * record carries the original headers plus the standard Spring Kafka {@code kafka_dlt-*} headers, the number of
+ * attempts and the reason.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.retry", name = "enabled", havingValue = "true")
+@Slf4j
+public class LibraryEventRetryScheduler {
+
+    public static final String ATTEMPTS_HEADER = "library-events-retry-attempts";
+
+    public static final String DEAD_LETTER_REASON_HEADER = "library-events-dead-letter-reason";
+
+    static final String REASON_NOT_RETRIABLE = "not-retriable";
+
+    static final String REASON_EXHAUSTED = "exhausted";
+
+    static final String REASON_BUDGET = "budget";
+
+    static final String REASON_SUPERSEDED = "superseded";
+
+    @Value("${library-events.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${library-events.retry.initial-backoff-ms:100}")
+    private long initialBackoffMs;
+
+    @Value("${library-events.retry.max-backoff-ms:10000}")
+    private long maxBackoffMs;
+
+    @Value("${library-events.retry.multiplier:2.0}")
+    private double multiplier;
+
+    @Value("${library-events.retry.jitter:0.2}")
+    private double jitter;
+
+    @Value("${library-events.retry.retries-per-second:100}")
+    private double retriesPerSecond;
+
+    @Value("${library-events.retry.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${library-events.retry.dead-letter-topic:library-events.DLT}")
+    private String deadLetterTopic;
+
+    @Autowired
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private HashedWheelTimer wheelTimer;
+
+    private ExecutorService retryExecutor;
+
+    private RetryBudget retryBudget;
+
+    private final Map<Integer, KeyState> keyStates = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequences = new AtomicLong();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private Counter succeededRetries;
+
+    private Counter failedRetries;
+
+    private final Map<String, Counter> deadLetters = new ConcurrentHashMap<>();
+
+
+    @PostConstruct
+    public void init() {
+        wheelTimer = new HashedWheelTimer(runnable -> daemonThread(runnable, "library-events-retry-wheel"), 10, TimeUnit.MILLISECONDS, 512);
+        retryExecutor = Executors.newSingleThreadExecutor(runnable -> daemonThread(runnable, "library-events-retry"));
+        retryBudget = new RetryBudget(retriesPerSecond, System::nanoTime);
+
+        succeededRetries = meterRegistry.counter("library.events.retry.attempts", "outcome", "success");
+        failedRetries = meterRegistry.counter("library.events.retry.attempts", "outcome", "failure");
+        for (String reason : new String[] { REASON_NOT_RETRIABLE, REASON_EXHAUSTED, REASON_BUDGET, REASON_SUPERSEDED }) {
+            deadLetters.put(reason, meterRegistry.counter("library.events.retry.dead.letters", "reason", reason));
+        }
+        Gauge.builder("library.events.retry.pending", pending, AtomicInteger::get)
+                .description("Library events waiting for a retry or held behind a retry of the same key")
+                .register(meterRegistry);
+        Gauge.builder("library.events.retry.keys", keyStates, Map::size)
+                .description("Keys with a library event in flight or waiting for a retry")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        wheelTimer.stop();
+        retryExecutor.shutdown();
+        retryExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Sends the record with {@code sender} and retries it when the returned future fails. The returned future
+     * completes once the record is acknowledged, or fails once it has been sent to the dead-letter topic.
+     * Exceptions thrown by the first {@code sender} call are not retried and propagate to the caller.
+     *
+     * @throws RejectedExecutionException when the record would have to be held and {@code max-pending} records
+     *         are already waiting
+     */
+    public ListenableFuture<SendResult<Integer, byte[]>> send(ProducerRecord<Integer, byte[]> producerRecord,
+            Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender) {
+
+        RetryTask retryTask = new RetryTask(producerRecord, sender, sequences.incrementAndGet());
+        Integer key = producerRecord.key();
+        if (key == null) {
+            attempt(retryTask, sender.apply(producerRecord));
+            return retryTask.outcome;
+        }
+
+        boolean[] held = new boolean[1];
+        keyStates.compute(key, (k, state) -> {
+            KeyState current = state != null ? state : new KeyState();
+            if (current.hasWaiting()) {
+                if (pending.get() >= maxPending) {
+                    throw new RejectedExecutionException("Too many library events waiting for a retry");
+                }
+                manage(retryTask);
+                current.waiting.add(retryTask);
+                held[0] = true;
+            } else {
+                retryTask.phase = Phase.SENDING;
+                current.inFlight.add(retryTask.sequence);
+            }
+            return current;
+        });
+        if (held[0]) {
+            return retryTask.outcome;
+        }
+
+        ListenableFuture<SendResult<Integer, byte[]>> listenableFuture;
+        try {
+            listenableFuture = sender.apply(producerRecord);
+        } catch (RuntimeException e) {
+            KeyState keyState = keyStates.computeIfPresent(key, (k, state) -> {
+                state.inFlight.remove(retryTask.sequence);
+                return state.isIdle() ? null : state;
+            });
+            if (keyState != null && keyState.hasWaiting()) {
+                retryExecutor.execute(() -> advance(key));
+            }
+            throw e;
+        }
+        attempt(retryTask, listenableFuture);
+        return retryTask.outcome;
+    }
+
+
+    private void attempt(RetryTask retryTask, ListenableFuture<SendResult<Integer, byte[]>> listenableFuture) {
+        retryTask.attempts++;
+        listenableFuture.addCallback(result -> onSuccess(retryTask, result), ex -> retryExecutor.execute(() -> onFailure(retryTask, ex)));
+    }
+
+    private void attemptOnRetryThread(RetryTask retryTask) {
+        try {
+            attempt(retryTask, retryTask.sender.apply(retryTask.producerRecord));
+        } catch (RuntimeException e) {
+            retryTask.attempts++;
+            onFailure(retryTask, e);
+        }
+    }
+
+    /**
+     * Runs on the thread completing the send. Only hands over to the retry thread when the key has a record waiting.
+     */
+    private void onSuccess(RetryTask retryTask, SendResult<Integer, byte[]> result) {
+        if (retryTask.attempts > 1) {
+            succeededRetries.increment();
+        }
+        if (retryTask.managed) {
+            pending.decrementAndGet();
+        }
+
+        Integer key = retryTask.key();
+        boolean waiting = false;
+        if (key != null) {
+            KeyState keyState = keyStates.computeIfPresent(key, (k, state) -> {
+                state.inFlight.remove(retryTask.sequence);
+                state.maxAcknowledgedSequence = Math.max(state.maxAcknowledgedSequence, retryTask.sequence);
+                if (state.active == retryTask) {
+                    state.active = null;
+                }
+                return state.isIdle() ? null : state;
+            });
+            waiting = keyState != null && keyState.hasWaiting();
+        }
+
+        retryTask.outcome.set(result);
+        if (waiting) {
+            retryExecutor.execute(() -> advance(key));
+        }
+    }
+
+    private void onFailure(RetryTask retryTask, Throwable ex) {
+        retryTask.lastException = ex;
+        retryTask.phase = Phase.FAILED;
+        if (retryTask.attempts > 1) {
+            failedRetries.increment();
+        }
+
+        Integer key = retryTask.key();
+        if (key == null) {
+            manage(retryTask);
+            scheduleRetry(retryTask);
+            return;
+        }
+        keyStates.compute(key, (k, state) -> {
+            KeyState current = state != null ? state : new KeyState();
+            current.inFlight.remove(retryTask.sequence);
+            if (current.active != retryTask) {
+                current.waiting.add(retryTask);
+            }
+            return current;
+        });
+        manage(retryTask);
+        advance(key);
+    }
+
+    /**
+     * Moves the oldest waiting record of the key along, on the retry thread: a failed record is scheduled for a retry,
+     * and a record whose backoff is over, or that was held, is sent once no later record of the key is in flight, or
+     * abandoned if a later one has been acknowledged.
+     */
+    private void advance(Integer key) {
+        RetryTask[] next = new RetryTask[1];
+        keyStates.computeIfPresent(key, (k, state) -> {
+            if (state.active == null) {
+                state.active = state.waiting.poll();
+            }
+            RetryTask active = state.active;
+            if (active == null) {
+                return state.isIdle() ? null : state;
+            }
+            if (active.phase == Phase.FAILED) {
+                if (state.maxAcknowledgedSequence > active.sequence) {
+                    active.phase = Phase.SUPERSEDED;
+                }
+                next[0] = active;
+            } else if (active.phase == Phase.HELD || active.phase == Phase.READY) {
+                if (state.maxAcknowledgedSequence > active.sequence) {
+                    active.phase = Phase.SUPERSEDED;
+                    next[0] = active;
+                } else if (state.inFlight.higher(active.sequence) == null) {
+                    active.phase = Phase.SENDING;
+                    state.inFlight.add(active.sequence);
+                    next[0] = active;
+                }
+            }
+            return state;
+        });
+
+        RetryTask retryTask = next[0];
+        if (retryTask == null) {
+            return;
+        }
+        switch (retryTask.phase) {
+            case FAILED:
+                scheduleRetry(retryTask);
+                break;
+            case SUPERSEDED:
+                deadLetter(retryTask, REASON_SUPERSEDED);
+                break;
+            default:
+                attemptOnRetryThread(retryTask);
+                break;
+        }
+    }
+
+    private void scheduleRetry(RetryTask retryTask) {
+        if (!isRetriable(retryTask.lastException)) {
+            deadLetter(retryTask, REASON_NOT_RETRIABLE);
+        } else if (retryTask.attempts >= maxAttempts) {
+            deadLetter(retryTask, REASON_EXHAUSTED);
+        } else if (!retryBudget.tryAcquire()) {
+            deadLetter(retryTask, REASON_BUDGET);
+        } else {
+            retryTask.phase = Phase.BACKOFF;
+            wheelTimer.newTimeout(timeout -> retryExecutor.execute(() -> retry(retryTask)), backoffMs(retryTask.attempts), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void retry(RetryTask retryTask) {
+        retryTask.phase = Phase.READY;
+        if (retryTask.key() == null) {
+            attemptOnRetryThread(retryTask);
+        } else {
+            advance(retryTask.key());
+        }
+    }
+
+    /**
+     * Completes the bookkeeping of a dead-lettered record, then its outcome, and hands the key over to the next waiting
+     * record, if any.
+     */
+    private void finish(RetryTask retryTask, Throwable ex) {
+        if (retryTask.managed) {
+            pending.decrementAndGet();
+        }
+
+        Integer key = retryTask.key();
+        if (key != null) {
+            keyStates.computeIfPresent(key, (k, state) -> {
+                if (state.active == retryTask) {
+                    state.active = null;
+                }
+                return state.isIdle() ? null : state;
+            });
+        }
+
+        retryTask.outcome.setException(ex);
+        if (key != null) {
+            retryExecutor.execute(() -> advance(key));
+        }
+    }
+
+    private void deadLetter(RetryTask retryTask, String reason) {
+        ProducerRecord<Integer, byte[]> producerRecord = retryTask.producerRecord;
+        Throwable ex = retryTask.lastException;
+
+        Headers headers = new RecordHeaders(producerRecord.headers().toArray());
+        headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, producerRecord.topic().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, ex.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, String.valueOf(ex.getMessage()).getBytes(StandardCharsets.UTF_8));
+        headers.add(ATTEMPTS_HEADER, String.valueOf(retryTask.attempts).getBytes(StandardCharsets.UTF_8));
+        headers.add(DEAD_LETTER_REASON_HEADER, reason.getBytes(StandardCharsets.UTF_8));
+
+        log.error("Sending the message for the key: {} to {} after {} attempts ({}), exception is {}",
+                producerRecord.key(), deadLetterTopic, retryTask.attempts, reason, ex.getMessage());
+        deadLetters.computeIfAbsent(reason, key -> meterRegistry.counter("library.events.retry.dead.letters", "reason", key)).increment();
+        try {
+            kafkaTemplate.send(new ProducerRecord<>(deadLetterTopic, null, producerRecord.key(), producerRecord.value(), headers))
+                    .addCallback(result -> { }, dltEx -> log.error("Error sending the message for the key: {} to {}, exception is {}",
+                            producerRecord.key(), deadLetterTopic, dltEx.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Error sending the message for the key: {} to {}, exception is {}", producerRecord.key(), deadLetterTopic, e.getMessage());
+        }
+
+        finish(retryTask, new KafkaException("Sent to " + deadLetterTopic + " after " + retryTask.attempts
+                + " attempts (" + reason + ")", ex));
+    }
+
+    private long backoffMs(int attempts) {
+        double backoffMs = Math.min(maxBackoffMs, initialBackoffMs * Math.pow(multiplier, attempts - 1));
+        return (long) (backoffMs * (1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private void manage(RetryTask retryTask) {
+        if (!retryTask.managed) {
+            retryTask.managed = true;
+            pending.incrementAndGet();
+        }
+    }
+
+    private static boolean isRetriable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+
+    private enum Phase {
+        /** held behind a retry of the same key, never sent */
+        HELD,
+        /** handed to the producer */
+        SENDING,
+        /** failed, waiting for the retry decision */
+        FAILED,
+        /** waiting for its backoff */
+        BACKOFF,
+        /** backoff over, waiting for later records of the key in flight */
+        READY,
+        /** a later record of the key was acknowledged */
+        SUPERSEDED
+    }
+
+    private static final class RetryTask {
+
+        private final ProducerRecord<Integer, byte[]> producerRecord;
+
+        private final Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender;
+
+        private final long sequence;
+
+        private final SettableListenableFuture<SendResult<Integer, byte[]>> outcome = new SettableListenableFuture<>();
+
+        private volatile int attempts;
+
+        private volatile boolean managed;
+
+        private volatile Phase phase = Phase.HELD;
+
+        private Throwable lastException;
+
+        private RetryTask(ProducerRecord<Integer, byte[]> producerRecord,
+                Function<ProducerRecord<Integer, byte[]>, ListenableFuture<SendResult<Integer, byte[]>>> sender, long sequence) {
+            this.producerRecord = producerRecord;
+            this.sender = sender;
+            this.sequence = sequence;
+        }
+
+        private Integer key() {
+            return producerRecord.key();
+        }
+
+    }
+
+    /**
+     * Records of one key that are in flight or waiting; only changed inside {@code keyStates.compute}, so updates
+     * of one key are atomic.
+     */
+    private static final class KeyState {
+
+        private final NavigableSet<Long> inFlight = new TreeSet<>();
+
+        private RetryTask active;
+
+        private final PriorityQueue<RetryTask> waiting = new PriorityQueue<>((left, right) -> Long.compare(left.sequence, right.sequence));
+
+        private long maxAcknowledgedSequence;
+
+        private boolean hasWaiting() {
+            return active != null || !waiting.isEmpty();
+        }
+
+        private boolean isIdle() {
+            return inFlight.isEmpty() && !hasWaiting();
+        }
+
+    }
+
+}
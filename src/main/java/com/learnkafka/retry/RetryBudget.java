@@ -0,0 +1,40 @@
+package com.learnkafka.retry;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting how many retries per second {@link LibraryEventRetryScheduler} may start, so a broker
+ * outage cannot turn into a retry storm once it recovers. Not thread safe; only used from the retry thread.
+ */
+class RetryBudget {
+
+    private final double retriesPerSecond;
+
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+
+    RetryBudget(double retriesPerSecond, LongSupplier nanoClock) {
+        this.retriesPerSecond = retriesPerSecond;
+        this.nanoClock = nanoClock;
+        this.tokens = retriesPerSecond;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+
+    boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(retriesPerSecond, tokens + (now - lastRefillNanos) * retriesPerSecond / 1_000_000_000d);
+        lastRefillNanos = now;
+
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.learnkafka.serializer;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.learnkafka.domain.LibraryEvent;
+
+/**
+ * Writes a {@link LibraryEvent} straight to UTF-8 JSON bytes through a pre-built {@link ObjectWriter},
+ * skipping the intermediate String produced by {@code writeValueAsString} and the re-encoding done by
+ * {@code StringSerializer}. Jackson recycles its own output buffers, so no buffer is kept here.
+ * <p>
+ * The application template is a {@code KafkaTemplate<Integer, byte[]>}: the producer calls {@link #serialize} itself
+ * so the same bytes can also be written as the HTTP response, and Kafka only sees a {@code ByteArraySerializer}.
+ * Implementing {@link Serializer} keeps the class usable as a value serializer of its own.
+ */
+public class LibraryEventSerializer implements Serializer<LibraryEvent> {
+
+    private final ObjectWriter objectWriter;
+
+
+    public LibraryEventSerializer(ObjectMapper objectMapper) {
+        this.objectWriter = objectMapper.writerFor(LibraryEvent.class);
+    }
+
+
+    @Override
+    public byte[] serialize(String topic, LibraryEvent libraryEvent) {
+        if (libraryEvent == null) {
+            return null;
+        }
+
+        try {
+            return objectWriter.writeValueAsBytes(libraryEvent);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Error serializing LibraryEvent with libraryEventId " + libraryEvent.getLibraryEventId(), e);
+        }
+    }
+
+}
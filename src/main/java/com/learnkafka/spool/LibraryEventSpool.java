@@ -0,0 +1,197 @@
+package com.learnkafka.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.kafka.common.header.Header;
+
+import com.learnkafka.domain.LibraryEventType;
+
+/**
+ * Durable FIFO of serialized library events, stored as a chain of memory-mapped {@link SpoolSegment} files
+ * in one directory. Disk usage is bounded by {@code segmentSize * maxSegments}; segments are deleted once
+ * every record in them has been committed, and the spool picks up where it left off after a restart.
+ * <p>
+ * Durability: an appended record is in the OS page cache as soon as {@link #append} returns, so it survives a crash
+ * or kill of the JVM. It only survives an OS crash or power loss once {@link #force()} has written it to disk, which
+ * happens when its segment fills up, on {@link #close()}, and whenever the owner calls {@link #force()}.
+ * <p>
+ * Guarded by a {@link ReentrantLock} rather than {@code synchronized}: appends run on request threads and create
+ * segment files, which would pin the carrier thread when those are virtual threads.
+ */
+public class LibraryEventSpool implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final Deque<SpoolSegment> segments = new ArrayDeque<>();
+
+    private long nextSegmentNumber;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean empty;
+
+
+    public LibraryEventSpool(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+
+        Files.createDirectories(directory);
+        for (Path path : listSegmentFiles()) {
+            segments.addLast(SpoolSegment.open(path));
+            nextSegmentNumber = segmentNumber(path) + 1;
+        }
+        deleteDrainedSegments();
+        empty = computeEmpty();
+    }
+
+
+    public boolean append(Integer key, byte[] value) throws IOException {
+        return append(key, null, new Header[0], value);
+    }
+
+    public boolean append(Integer key, LibraryEventType libraryEventType, Header[] headers, byte[] value) throws IOException {
+        lock.lock();
+        try {
+            SpoolSegment activeSegment = segments.peekLast();
+            if (activeSegment == null || !activeSegment.append(key, libraryEventType, headers, value)) {
+                deleteDrainedSegments();
+                if (SpoolSegment.HEADER_SIZE + SpoolSegment.recordSize(headers, value) > segmentSize || segments.size() >= maxSegments) {
+                    return false;
+                }
+
+                if (activeSegment != null) {
+                    activeSegment.force();
+                }
+                activeSegment = SpoolSegment.create(directory.resolve(segmentName(nextSegmentNumber++)), segmentSize);
+                segments.addLast(activeSegment);
+                activeSegment.append(key, libraryEventType, headers, value);
+            }
+
+            empty = false;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<SpooledRecord> peek(int maxRecords) {
+        lock.lock();
+        try {
+            List<SpooledRecord> records = new ArrayList<>();
+            for (SpoolSegment segment : segments) {
+                SpooledRecord record;
+                int position = segment.getReadPosition();
+                while (records.size() < maxRecords && (record = segment.read(position)) != null) {
+                    records.add(record);
+                    position = record.getNextPosition();
+                }
+                if (records.size() == maxRecords) {
+                    break;
+                }
+            }
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void commit(List<SpooledRecord> records) throws IOException {
+        lock.lock();
+        try {
+            for (SpooledRecord record : records) {
+                record.getSegment().commit(record.getNextPosition());
+            }
+            deleteDrainedSegments();
+            empty = computeEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void force() {
+        lock.lock();
+        try {
+            for (SpoolSegment segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (SpoolSegment segment : segments) {
+                segment.close();
+            }
+            segments.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void deleteDrainedSegments() throws IOException {
+        while (segments.size() > 1 && segments.peekFirst().isFullyRead()) {
+            segments.removeFirst().delete();
+        }
+    }
+
+    private boolean computeEmpty() {
+        return segments.stream().allMatch(SpoolSegment::isFullyRead);
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String segmentName(long segmentNumber) {
+        return String.format("%s%019d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumber(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.learnkafka.spool;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.producer.LibraryEventProducer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps asynchronous library events that could not be sent in a {@link LibraryEventSpool} and replays them,
+ * oldest first, from a background thread once Kafka accepts sends again. The same thread forces the spool to disk
+ * every {@code force-interval-ms}, which bounds what an OS crash or power loss can take with it.
+ * <p>
+ * Records keep their headers and event type and are replayed through {@link LibraryEventProducer#replay}, so they
+ * pass the circuit breaker and go to the same pooled producer or priority lane as a live send would.
+ * <p>
+ * Ordering: while the spool has a backlog new events are spooled behind it, so those keep their order. An event
+ * whose send failed after it was handed to the producer is spooled only when its failure is reported, by which time
+ * later events for the same key may already have been acknowledged, so their order in the topic is reversed.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.spool", name = "enabled", havingValue = "true")
+@Slf4j
+public class LibraryEventSpooler {
+
+    @Value("${library-events.spool.directory:${java.io.tmpdir}/library-events-spool}")
+    private String directory;
+
+    @Value("${library-events.spool.segment-size:16777216}")
+    private int segmentSize;
+
+    @Value("${library-events.spool.max-segments:64}")
+    private int maxSegments;
+
+    @Value("${library-events.spool.drain-interval-ms:1000}")
+    private long drainIntervalMs;
+
+    @Value("${library-events.spool.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    @Value("${library-events.spool.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    @Value("${library-events.spool.force-interval-ms:1000}")
+    private long forceIntervalMs;
+
+    @Autowired
+    private KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    // resolved on first replay, LibraryEventProducer depends on the spooler
+    @Autowired
+    private ObjectProvider<LibraryEventProducer> libraryEventProducer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private LibraryEventSpool libraryEventSpool;
+
+    private ScheduledExecutorService drainer;
+
+    private Counter spooledCounter;
+
+    private Counter replayedCounter;
+
+    private Counter droppedCounter;
+
+
+    @PostConstruct
+    public void init() throws IOException {
+        libraryEventSpool = new LibraryEventSpool(Paths.get(directory), segmentSize, maxSegments);
+
+        spooledCounter = meterRegistry.counter("library.events.spool.records", "outcome", "spooled");
+        replayedCounter = meterRegistry.counter("library.events.spool.records", "outcome", "replayed");
+        droppedCounter = meterRegistry.counter("library.events.spool.records", "outcome", "dropped");
+        Gauge.builder("library.events.spool.segments", libraryEventSpool, LibraryEventSpool::getSegmentCount)
+                .description("Spool segment files on disk")
+                .register(meterRegistry);
+
+        if (!libraryEventSpool.isEmpty()) {
+            log.info("Recovered a non-empty library event spool from {}", directory);
+        }
+
+        drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-events-spool-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(this::drain, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+        drainer.scheduleWithFixedDelay(libraryEventSpool::force, forceIntervalMs, forceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        drainer.shutdown();
+        drainer.awaitTermination(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        libraryEventSpool.close();
+    }
+
+
+    public boolean hasBacklog() {
+        return !libraryEventSpool.isEmpty();
+    }
+
+    public void spool(LibraryEventType libraryEventType, ProducerRecord<Integer, byte[]> producerRecord) {
+        Integer key = producerRecord.key();
+        try {
+            if (libraryEventSpool.append(key, libraryEventType, producerRecord.headers().toArray(), producerRecord.value())) {
+                spooledCounter.increment();
+                return;
+            }
+            log.error("Library event spool is full, dropping the message for the key: {}", key);
+        } catch (IOException e) {
+            log.error("Error spooling the message for the key: {}, exception is {}", key, e.getMessage());
+        }
+        droppedCounter.increment();
+    }
+
+
+    void drain() {
+        try {
+            List<SpooledRecord> spooledRecords;
+            while (!(spooledRecords = libraryEventSpool.peek(drainBatchSize)).isEmpty()) {
+                replay(spooledRecords);
+                libraryEventSpool.commit(spooledRecords);
+                replayedCounter.increment(spooledRecords.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Replaying spooled library events failed, retrying in {} ms: {}", drainIntervalMs, e.getMessage());
+        }
+    }
+
+    private void replay(List<SpooledRecord> spooledRecords) throws Exception {
+        List<ListenableFuture<SendResult<Integer, byte[]>>> listenableFutures = new ArrayList<>(spooledRecords.size());
+        for (SpooledRecord spooledRecord : spooledRecords) {
+            ProducerRecord<Integer, byte[]> producerRecord = new ProducerRecord<>(kafkaTemplate.getDefaultTopic(), null,
+                    spooledRecord.getKey(), spooledRecord.getValue(), Arrays.asList(spooledRecord.getHeaders()));
+            listenableFutures.add(libraryEventProducer.getObject().replay(spooledRecord.getLibraryEventType(), producerRecord));
+        }
+
+        for (ListenableFuture<SendResult<Integer, byte[]>> listenableFuture : listenableFutures) {
+            listenableFuture.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+package com.learnkafka.spool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import com.learnkafka.domain.LibraryEventType;
+
+/**
+ * One memory-mapped, append-only spool file.
+ * <p>
+ * Layout: an 8 byte header ({@code int} magic, {@code int} committed read position) followed by records of
+ * {@code int length | byte hasKey | int key | byte eventType | int headersLength | byte[headersLength] headers |
+ * byte[length] value | int crc32}, where {@code eventType} is the {@link LibraryEventType} ordinal or {@code -1} and
+ * the headers are {@code short count} times {@code short keyLength | key | int valueLength | value}. The length is
+ * written last, so a record torn by a crash reads as the end of the segment.
+ * <p>
+ * The mapping is released as soon as the segment is closed or deleted, through the JDK's
+ * {@code Unsafe.invokeCleaner}, so deleted segments do not keep disk space and address space until a GC; where
+ * that is not available the mapping is left to the garbage collector. The segment must not be used afterwards.
+ */
+class SpoolSegment implements Closeable {
+
+    static final int HEADER_SIZE = 8;
+
+    static final int RECORD_OVERHEAD = 4 + 1 + 4 + 1 + 4 + 4;
+
+    private static final int MAGIC = 0x4c455332;
+
+    private static final int KEY_OFFSET = 5;
+
+    private static final int EVENT_TYPE_OFFSET = 9;
+
+    private static final int HEADERS_LENGTH_OFFSET = 10;
+
+    private static final int HEADERS_OFFSET = 14;
+
+    private static final LibraryEventType[] EVENT_TYPES = LibraryEventType.values();
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int READ_POSITION_OFFSET = 4;
+
+    private static final Consumer<MappedByteBuffer> UNMAPPER = unmapper();
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private int readPosition;
+
+    private int writePosition;
+
+    private boolean dirty;
+
+
+    private SpoolSegment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+
+    static SpoolSegment create(Path path, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SpoolSegment segment = new SpoolSegment(path, channel, channel.map(MapMode.READ_WRITE, 0, size));
+        segment.buffer.putInt(MAGIC_OFFSET, MAGIC);
+        segment.buffer.putInt(READ_POSITION_OFFSET, HEADER_SIZE);
+        segment.readPosition = HEADER_SIZE;
+        segment.writePosition = HEADER_SIZE;
+        return segment;
+    }
+
+    static SpoolSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            channel.close();
+            throw new IOException("Spool segment " + path + " is truncated");
+        }
+
+        SpoolSegment segment = new SpoolSegment(path, channel, channel.map(MapMode.READ_WRITE, 0, channel.size()));
+        if (segment.buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            channel.close();
+            throw new IOException("File " + path + " is not a spool segment");
+        }
+
+        segment.writePosition = segment.recoverWritePosition();
+        segment.readPosition = Math.min(Math.max(segment.buffer.getInt(READ_POSITION_OFFSET), HEADER_SIZE), segment.writePosition);
+        return segment;
+    }
+
+    static int recordSize(Header[] headers, byte[] value) {
+        return RECORD_OVERHEAD + encodedHeadersLength(headers) + value.length;
+    }
+
+
+    boolean append(Integer key, LibraryEventType libraryEventType, Header[] headers, byte[] value) {
+        byte[] encodedHeaders = encodeHeaders(headers);
+        int position = writePosition;
+        if ((long) position + RECORD_OVERHEAD + encodedHeaders.length + value.length > buffer.capacity()) {
+            return false;
+        }
+
+        buffer.put(position + 4, key == null ? (byte) 0 : (byte) 1);
+        buffer.putInt(position + KEY_OFFSET, key == null ? 0 : key);
+        buffer.put(position + EVENT_TYPE_OFFSET, libraryEventType == null ? (byte) -1 : (byte) libraryEventType.ordinal());
+        buffer.putInt(position + HEADERS_LENGTH_OFFSET, encodedHeaders.length);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADERS_OFFSET);
+        view.put(encodedHeaders);
+        view.put(value);
+        int crcPosition = position + HEADERS_OFFSET + encodedHeaders.length + value.length;
+        buffer.putInt(crcPosition, checksum(position, crcPosition));
+        buffer.putInt(position, value.length);
+
+        writePosition = crcPosition + 4;
+        dirty = true;
+        return true;
+    }
+
+    SpooledRecord read(int position) {
+        if (position >= writePosition) {
+            return null;
+        }
+
+        int length = buffer.getInt(position);
+        Integer key = buffer.get(position + 4) == 1 ? buffer.getInt(position + KEY_OFFSET) : null;
+        byte eventType = buffer.get(position + EVENT_TYPE_OFFSET);
+        int headersLength = buffer.getInt(position + HEADERS_LENGTH_OFFSET);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADERS_OFFSET);
+        Header[] headers = decodeHeaders(view);
+        byte[] value = new byte[length];
+        view.get(value);
+
+        return new SpooledRecord(this, key, eventType < 0 ? null : EVENT_TYPES[eventType], headers, value,
+                position + RECORD_OVERHEAD + headersLength + length);
+    }
+
+    void commit(int position) {
+        readPosition = position;
+        buffer.putInt(READ_POSITION_OFFSET, position);
+        dirty = true;
+    }
+
+    /**
+     * Writes appended records and the committed read position through to the storage device.
+     */
+    void force() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    int getReadPosition() {
+        return readPosition;
+    }
+
+    boolean isFullyRead() {
+        return readPosition == writePosition;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void delete() throws IOException {
+        UNMAPPER.accept(buffer);
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        UNMAPPER.accept(buffer);
+        channel.close();
+    }
+
+
+    private int recoverWritePosition() {
+        int position = HEADER_SIZE;
+        while (position + RECORD_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            int headersLength = buffer.getInt(position + HEADERS_LENGTH_OFFSET);
+            long crcPosition = (long) position + HEADERS_OFFSET + headersLength + length;
+            if (length <= 0 || headersLength < 0 || crcPosition + 4 > buffer.capacity()
+                    || buffer.getInt((int) crcPosition) != checksum(position, (int) crcPosition)) {
+                break;
+            }
+            position = (int) crcPosition + 4;
+        }
+
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+        return position;
+    }
+
+    private int checksum(int position, int crcPosition) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.limit(crcPosition);
+
+        CRC32 crc = new CRC32();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    private static int encodedHeadersLength(Header[] headers) {
+        int length = 2;
+        for (Header header : headers) {
+            length += 2 + header.key().getBytes(StandardCharsets.UTF_8).length + 4 + (header.value() == null ? 0 : header.value().length);
+        }
+        return length;
+    }
+
+    private static byte[] encodeHeaders(Header[] headers) {
+        ByteBuffer encoded = ByteBuffer.allocate(encodedHeadersLength(headers));
+        encoded.putShort((short) headers.length);
+        for (Header header : headers) {
+            byte[] key = header.key().getBytes(StandardCharsets.UTF_8);
+            encoded.putShort((short) key.length);
+            encoded.put(key);
+            encoded.putInt(header.value() == null ? -1 : header.value().length);
+            if (header.value() != null) {
+                encoded.put(header.value());
+            }
+        }
+        return encoded.array();
+    }
+
+    private static Header[] decodeHeaders(ByteBuffer view) {
+        Header[] headers = new Header[view.getShort()];
+        for (int i = 0; i < headers.length; i++) {
+            byte[] key = new byte[view.getShort()];
+            view.get(key);
+            int valueLength = view.getInt();
+            byte[] value = null;
+            if (valueLength >= 0) {
+                value = new byte[valueLength];
+                view.get(value);
+            }
+            headers[i] = new RecordHeader(new String(key, StandardCharsets.UTF_8), value);
+        }
+        return headers;
+    }
+
+    private static Consumer<MappedByteBuffer> unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> {
+                try {
+                    invokeCleaner.invoke(unsafe, buffer);
+                } catch (ReflectiveOperationException e) {
+                    // left to the garbage collector
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return buffer -> {
+            };
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.learnkafka.spool;
+
+import org.apache.kafka.common.header.Header;
+
+import com.learnkafka.domain.LibraryEventType;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+public class SpooledRecord {
+
+    @Getter(AccessLevel.PACKAGE)
+    private final SpoolSegment segment;
+
+    private final Integer key;
+
+    private final LibraryEventType libraryEventType;
+
+    private final Header[] headers;
+
+    private final byte[] value;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final int nextPosition;
+
+}
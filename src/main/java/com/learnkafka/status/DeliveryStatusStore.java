@@ -0,0 +1,163 @@
+package com.learnkafka.status;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.learnkafka.domain.DeliveryStatus;
+import com.learnkafka.domain.DeliveryStatusResult;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers the outcome of asynchronous sends under a tracking id, so clients can stay on the asynchronous
+ * endpoints and poll for the acknowledgement instead of blocking on the synchronous one.
+ * <p>
+ * The store is bounded: entries are kept in insertion order and the oldest are evicted once there are more than
+ * {@code max-entries} or they are older than {@code ttl-ms}. Eviction runs on {@link #track}, and
+ * {@link #get} never returns an expired entry.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library-events.delivery-status", name = "enabled", havingValue = "true")
+public class DeliveryStatusStore {
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int maxEntries;
+
+    private final long ttlMs;
+
+    private final LongSupplier clock;
+
+
+    @Autowired
+    public DeliveryStatusStore(@Value("${library-events.delivery-status.max-entries:100000}") int maxEntries,
+            @Value("${library-events.delivery-status.ttl-ms:600000}") long ttlMs, MeterRegistry meterRegistry) {
+        this(maxEntries, ttlMs, System::currentTimeMillis);
+
+        Gauge.builder("library.events.delivery.status.entries", size, AtomicInteger::get)
+                .description("Tracked asynchronous sends held by the delivery status store")
+                .register(meterRegistry);
+    }
+
+    DeliveryStatusStore(int maxEntries, long ttlMs, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+
+    /**
+     * Starts tracking a send and returns its tracking id. The status is {@link DeliveryStatus#PENDING} until the
+     * producer reports the outcome of the send.
+     */
+    public String track(Integer libraryEventId) {
+        String trackingId = UUID.randomUUID().toString();
+
+        entries.put(trackingId, new Entry(clock.getAsLong(), DeliveryStatusResult.builder()
+                .trackingId(trackingId)
+                .libraryEventId(libraryEventId)
+                .status(DeliveryStatus.PENDING)
+                .build()));
+        insertionOrder.add(trackingId);
+        size.incrementAndGet();
+
+        evict();
+        return trackingId;
+    }
+
+    public void acknowledged(String trackingId, RecordMetadata recordMetadata) {
+        update(trackingId, status -> status.toBuilder()
+                .status(DeliveryStatus.ACKNOWLEDGED)
+                .topic(recordMetadata.topic())
+                .partition(recordMetadata.partition())
+                .offset(recordMetadata.hasOffset() ? recordMetadata.offset() : null)
+                .build());
+    }
+
+    public void failed(String trackingId, Throwable ex) {
+        update(trackingId, status -> status.toBuilder()
+                .status(DeliveryStatus.FAILED)
+                .error(ex.getClass().getSimpleName() + ": " + ex.getMessage())
+                .build());
+    }
+
+    /**
+     * Marks the send as handed to the {@link com.learnkafka.spool.LibraryEventSpooler}. The spooler replays the record
+     * later and that outcome is not tracked.
+     */
+    public void spooled(String trackingId) {
+        update(trackingId, status -> status.toBuilder().status(DeliveryStatus.SPOOLED).build());
+    }
+
+    /**
+     * Returns the status of the send, or {@code null} when the tracking id is unknown or has been evicted.
+     */
+    public DeliveryStatusResult get(String trackingId) {
+        Entry entry = entries.get(trackingId);
+        if (entry == null || isExpired(entry, clock.getAsLong())) {
+            return null;
+        }
+        return entry.status;
+    }
+
+
+    private void update(String trackingId, UnaryOperator<DeliveryStatusResult> updater) {
+        if (trackingId == null) {
+            return;
+        }
+        Entry entry = entries.get(trackingId);
+        if (entry != null) {
+            entry.status = updater.apply(entry.status);
+        }
+    }
+
+    private void evict() {
+        long now = clock.getAsLong();
+        String oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            Entry entry = entries.get(oldest);
+            if (size.get() <= maxEntries && entry != null && !isExpired(entry, now)) {
+                return;
+            }
+            if (insertionOrder.remove(oldest) && entries.remove(oldest) != null) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdMillis > ttlMs;
+    }
+
+
+    private static final class Entry {
+
+        private final long createdMillis;
+
+        private volatile DeliveryStatusResult status;
+
+        private Entry(long createdMillis, DeliveryStatusResult status) {
+            this.createdMillis = createdMillis;
+            this.status = status;
+        }
+
+    }
+
+}
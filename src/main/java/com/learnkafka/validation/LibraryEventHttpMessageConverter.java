@@ -0,0 +1,70 @@
+package com.learnkafka.validation;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.learnkafka.domain.LibraryEvent;
+
+/**
+ * Reads {@code @RequestBody LibraryEvent} arguments with {@link LibraryEventReader}, which validates the event while
+ * parsing it. It never claims to write, so responses are still written by the Jackson converter.
+ */
+public class LibraryEventHttpMessageConverter implements HttpMessageConverter<LibraryEvent> {
+
+    private static final List<MediaType> SUPPORTED_MEDIA_TYPES = Collections.unmodifiableList(Arrays.asList(
+            MediaType.APPLICATION_JSON, new MediaType("application", "*+json")));
+
+    private final LibraryEventReader libraryEventReader;
+
+
+    public LibraryEventHttpMessageConverter(LibraryEventReader libraryEventReader) {
+        this.libraryEventReader = libraryEventReader;
+    }
+
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        if (LibraryEvent.class != clazz) {
+            return false;
+        }
+        if (mediaType == null) {
+            return true;
+        }
+        return SUPPORTED_MEDIA_TYPES.stream().anyMatch(supportedMediaType -> supportedMediaType.includes(mediaType));
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return SUPPORTED_MEDIA_TYPES;
+    }
+
+    @Override
+    public LibraryEvent read(Class<? extends LibraryEvent> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return libraryEventReader.read(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    public void write(LibraryEvent libraryEvent, MediaType contentType, HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("LibraryEventHttpMessageConverter does not write library events");
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.learnkafka.validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+
+/**
+ * Reads a {@link LibraryEvent} straight from a {@link JsonParser} and checks the {@code @NotNull}/{@code @NotBlank}
+ * constraints of {@link LibraryEvent} and {@link Book} while doing so, without databind or a reflective validator.
+ * <p>
+ * Accepts the same input as the default {@code ObjectMapper} of the application: unknown properties are ignored,
+ * numbers in strings and scalars in string fields are coerced. Constraint violations are reported as a
+ * {@link LibraryEventValidationException} whose message equals the one produced for {@code @Valid}, e.g.
+ * {@code "book.bookAuthor-must not be blank, book.bookId-must not be null"}. Malformed JSON is reported as a
+ * {@link com.fasterxml.jackson.core.JsonProcessingException}.
+ */
+public class LibraryEventReader {
+
+    private static final String MUST_NOT_BE_NULL = "-must not be null";
+
+    private static final String MUST_NOT_BE_BLANK = "-must not be blank";
+
+    private final JsonFactory jsonFactory;
+
+
+    public LibraryEventReader(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+
+    public JsonParser createParser(InputStream body) throws IOException {
+        return jsonFactory.createParser(body);
+    }
+
+    public LibraryEvent read(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return parser.nextToken() == null ? null : readValue(parser);
+        }
+    }
+
+    public LibraryEvent read(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return parser.nextToken() == null ? null : readValue(parser);
+        }
+    }
+
+    /**
+     * Reads the library event starting at the current token of the parser, which is left on the closing token of
+     * the event. The whole event is consumed before a {@link LibraryEventValidationException} is thrown, so the
+     * caller can go on with the next value.
+     */
+    public LibraryEvent readValue(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(parser, "LibraryEvent");
+
+        LibraryEvent libraryEvent = new LibraryEvent();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+            case "libraryEventId":
+                libraryEvent.setLibraryEventId(readInteger(parser));
+                break;
+            case "libraryEventType":
+                libraryEvent.setLibraryEventType(readLibraryEventType(parser));
+                break;
+            case "book":
+                libraryEvent.setBook(readBook(parser));
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+
+        validate(libraryEvent);
+        return libraryEvent;
+    }
+
+
+    private Book readBook(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expectStartObject(parser, "Book");
+
+        Book book = new Book();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+            case "bookId":
+                book.setBookId(readInteger(parser));
+                break;
+            case "bookName":
+                book.setBookName(readString(parser));
+                break;
+            case "bookAuthor":
+                book.setBookAuthor(readString(parser));
+                break;
+            default:
+                parser.skipChildren();
+            }
+        }
+        return book;
+    }
+
+    private void validate(LibraryEvent libraryEvent) {
+        Book book = libraryEvent.getBook();
+        if (book == null) {
+            throw new LibraryEventValidationException("book" + MUST_NOT_BE_NULL, libraryEvent);
+        }
+
+        List<String> errors = Collections.emptyList();
+        if (book.getBookId() == null) {
+            errors = addError(errors, "book.bookId" + MUST_NOT_BE_NULL);
+        }
+        if (isBlank(book.getBookName())) {
+            errors = addError(errors, "book.bookName" + MUST_NOT_BE_BLANK);
+        }
+        if (isBlank(book.getBookAuthor())) {
+            errors = addError(errors, "book.bookAuthor" + MUST_NOT_BE_BLANK);
+        }
+
+        if (!errors.isEmpty()) {
+            Collections.sort(errors);
+            throw new LibraryEventValidationException(String.join(", ", errors), libraryEvent);
+        }
+    }
+
+    private static List<String> addError(List<String> errors, String error) {
+        List<String> result = errors.isEmpty() ? new ArrayList<>(3) : errors;
+        result.add(error);
+        return result;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static Integer readInteger(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+        case VALUE_NULL:
+            return null;
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            return parser.getIntValue();
+        case VALUE_STRING:
+            String text = parser.getText().trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(text);
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Cannot deserialize value of type `java.lang.Integer` from String \"" + text
+                        + "\": not a valid `java.lang.Integer` value");
+            }
+        default:
+            throw new JsonParseException(parser, "Cannot deserialize value of type `java.lang.Integer` from " + parser.currentToken());
+        }
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!parser.currentToken().isScalarValue()) {
+            throw new JsonParseException(parser, "Cannot deserialize value of type `java.lang.String` from " + parser.currentToken());
+        }
+        return parser.getText();
+    }
+
+    private static LibraryEventType readLibraryEventType(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        String text = parser.getValueAsString();
+        try {
+            return LibraryEventType.valueOf(text);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new JsonParseException(parser, "Cannot deserialize value of type `com.learnkafka.domain.LibraryEventType` from "
+                    + (text != null ? "String \"" + text + "\"" : parser.currentToken()) + ": not one of the values accepted for Enum class: [NEW, UPDATE]");
+        }
+    }
+
+    private static void expectStartObject(JsonParser parser, String typeName) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Cannot deserialize value of type `" + typeName + "` from " + parser.currentToken());
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.learnkafka.validation;
+
+import com.learnkafka.domain.LibraryEvent;
+
+/**
+ * Thrown by {@link LibraryEventReader} when a library event violates the constraints on
+ * {@link com.learnkafka.domain.LibraryEvent} and {@link com.learnkafka.domain.Book}. The message has the same
+ * format as the Bean Validation errors reported by {@link com.learnkafka.controller.advice.LibraryEventsControllerAdvice}.
+ */
+public class LibraryEventValidationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LibraryEvent libraryEvent;
+
+    public LibraryEventValidationException(String message, LibraryEvent libraryEvent) {
+        super(message);
+        this.libraryEvent = libraryEvent;
+    }
+
+    /**
+     * The event as it was read, for callers that report on individual events.
+     */
+    public LibraryEvent getLibraryEvent() {
+        return libraryEvent;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.learnkafka.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class AdmissionControlInterceptorTest {
+
+    InFlightBudget inFlightBudget = new InFlightBudget("synchronous", 1, 10_000);
+
+    AdmissionControlInterceptor admissionControlInterceptor = new AdmissionControlInterceptor(inFlightBudget, 1024);
+
+    @Test
+    void testPreHandle_shouldRejectWhenBudgetIsExhausted() {
+        // given
+        MockHttpServletRequest firstRequest = createRequest();
+        assertTrue(admissionControlInterceptor.preHandle(firstRequest, new MockHttpServletResponse(), null));
+        MockHttpServletRequest secondRequest = createRequest();
+
+        // when
+        AdmissionRejectedException exception = assertThrows(AdmissionRejectedException.class,
+                () -> admissionControlInterceptor.preHandle(secondRequest, new MockHttpServletResponse(), null));
+
+        // then
+        assertEquals("The synchronous in-flight budget is exhausted", exception.getMessage());
+        assertEquals(1, inFlightBudget.getInFlightEvents());
+    }
+
+    @Test
+    void testAfterCompletion_shouldReleaseTheBudgetOnce() {
+        // given
+        MockHttpServletRequest request = createRequest();
+        admissionControlInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // when
+        admissionControlInterceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        admissionControlInterceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        // then
+        assertEquals(0, inFlightBudget.getInFlightEvents());
+        assertEquals(0, inFlightBudget.getInFlightBytes());
+    }
+
+    private MockHttpServletRequest createRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/synchronous-libraryevent");
+        request.setContent("{}".getBytes());
+        return request;
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.learnkafka.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class ClientRateLimiterTest {
+
+    AtomicLong nanoClock = new AtomicLong(1_000_000_000L);
+
+    ClientRateLimiter clientRateLimiter = new ClientRateLimiter(new RateLimit(10, 10_000, 1), 60_000, 2, nanoClock::get);
+
+    @Test
+    void testTryAcquire_shouldAdmitTheBurstAndThenRefillAtTheRate() {
+        // given
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, clientRateLimiter.tryAcquire("scanner", 1, 100));
+        }
+
+        // when
+        long waitNanos = clientRateLimiter.tryAcquire("scanner", 1, 100);
+
+        // then
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), waitNanos);
+        nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, clientRateLimiter.tryAcquire("scanner", 1, 100));
+    }
+
+    @Test
+    void testTryAcquire_shouldKeepClientsApart() {
+        // given
+        for (int i = 0; i < 10; i++) {
+            clientRateLimiter.tryAcquire("scanner", 1, 100);
+        }
+
+        // when
+        long waitNanos = clientRateLimiter.tryAcquire("tenant", 1, 100);
+
+        // then
+        assertEquals(0, waitNanos);
+        assertTrue(clientRateLimiter.tryAcquire("scanner", 1, 100) > 0);
+    }
+
+    @Test
+    void testTryAcquire_unknownClient_shouldShareTheAnonymousBucket() {
+        // given
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, clientRateLimiter.tryAcquire(null, 1, 100));
+        }
+
+        // when
+        long waitNanos = clientRateLimiter.tryAcquire(ClientRateLimiter.ANONYMOUS_CLIENT_ID, 1, 100);
+
+        // then
+        assertTrue(waitNanos > 0);
+    }
+
+    @Test
+    void testTryAcquire_shouldLimitBytesAndGiveBackTheEvent() {
+        // given
+        assertEquals(0, clientRateLimiter.tryAcquire("scanner", 1, 9_000));
+
+        // when
+        long waitNanos = clientRateLimiter.tryAcquire("scanner", 1, 2_000);
+
+        // then
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), waitNanos);
+        for (int i = 0; i < 9; i++) {
+            assertEquals(0, clientRateLimiter.tryAcquire("scanner", 1, 0));
+        }
+    }
+
+    @Test
+    void testTryAcquire_shouldAdmitOversizedRequestWhenTheBucketIsFull() {
+        // when
+        long waitNanos = clientRateLimiter.tryAcquire("scanner", 1, 50_000);
+
+        // then
+        assertEquals(0, waitNanos);
+        assertTrue(clientRateLimiter.tryAcquire("scanner", 1, 1) > 0);
+    }
+
+    @Test
+    void testSetClientLimit_shouldApplyToExistingBuckets() {
+        // given
+        for (int i = 0; i < 10; i++) {
+            clientRateLimiter.tryAcquire("scanner", 1, 100);
+        }
+
+        // when
+        clientRateLimiter.setClientLimit("scanner", new RateLimit(0, 0, 1));
+
+        // then
+        assertEquals(0, clientRateLimiter.tryAcquire("scanner", 1, 100));
+        clientRateLimiter.removeClientLimit("scanner");
+        assertTrue(clientRateLimiter.tryAcquire("scanner", 1, 100) > 0);
+    }
+
+    @Test
+    void testEvictIdleBuckets_shouldOnlyEvictBucketsIdleForTheTimeout() {
+        // given
+        clientRateLimiter.tryAcquire("scanner", 1, 100);
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        clientRateLimiter.tryAcquire("tenant", 1, 100);
+        nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        // when
+        clientRateLimiter.evictIdleBuckets();
+
+        // then
+        assertEquals(1, clientRateLimiter.getBucketCount());
+    }
+
+    @Test
+    void testPreHandle_shouldAnswerTooManyRequestsPerClientHeader() throws Exception {
+        // given
+        ClientRateLimitInterceptor clientRateLimitInterceptor = new ClientRateLimitInterceptor(clientRateLimiter, List.of("X-Api-Key"), 1024);
+        clientRateLimiter.setClientLimit("scanner", new RateLimit(1, 0, 1));
+        assertTrue(clientRateLimitInterceptor.preHandle(createRequest("scanner"), new MockHttpServletResponse(), null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // when
+        boolean admitted = clientRateLimitInterceptor.preHandle(createRequest("scanner"), response, null);
+
+        // then
+        assertFalse(admitted);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(clientRateLimitInterceptor.preHandle(createRequest("tenant"), new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void testTryAcquire_shouldShareTheOverflowBucketOnceMaxBucketsIsReached() {
+        // given
+        clientRateLimiter.tryAcquire("scanner", 1, 100);
+        clientRateLimiter.tryAcquire("tenant", 1, 100);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, clientRateLimiter.tryAcquire("client-" + i, 1, 100));
+        }
+
+        // when
+        long waitNanos = clientRateLimiter.tryAcquire("client-10", 1, 100);
+
+        // then
+        assertTrue(waitNanos > 0);
+        assertEquals(2, clientRateLimiter.getBucketCount());
+    }
+
+    @Test
+    void testPreHandle_shouldNotTrustUnknownClientHeaders() throws Exception {
+        // given
+        ClientRateLimitInterceptor clientRateLimitInterceptor = new ClientRateLimitInterceptor(clientRateLimiter, List.of("X-Api-Key"), 1024);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(clientRateLimitInterceptor.preHandle(createRequest("rotated-" + i), new MockHttpServletResponse(), null));
+        }
+        MockHttpServletRequest request = createRequest("rotated-10");
+
+        // when
+        boolean admitted = clientRateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // then
+        assertFalse(admitted);
+        assertEquals(request.getRemoteAddr(), request.getAttribute(ClientRateLimitInterceptor.CLIENT_ID_ATTRIBUTE));
+        assertEquals(1, clientRateLimiter.getBucketCount());
+    }
+
+
+    private MockHttpServletRequest createRequest(String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/asynchronous-libraryevent");
+        request.addHeader("X-Api-Key", apiKey);
+        request.setContent(new byte[100]);
+        return request;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.learnkafka.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InFlightBudgetTest {
+
+    @Test
+    void testTryAcquire_shouldRejectWhenEventBudgetIsExhausted() {
+        // given
+        InFlightBudget inFlightBudget = new InFlightBudget("test", 2, 10_000);
+
+        // when
+        assertTrue(inFlightBudget.tryAcquire(1, 100));
+        assertTrue(inFlightBudget.tryAcquire(1, 100));
+
+        // then
+        assertFalse(inFlightBudget.tryAcquire(1, 100));
+        inFlightBudget.release(1, 100);
+        assertTrue(inFlightBudget.tryAcquire(1, 100));
+    }
+
+    @Test
+    void testTryAcquire_shouldRejectWhenByteBudgetIsExhaustedAndRollBackTheEventCount() {
+        // given
+        InFlightBudget inFlightBudget = new InFlightBudget("test", 10, 1_000);
+        assertTrue(inFlightBudget.tryAcquire(1, 800));
+
+        // when
+        boolean admitted = inFlightBudget.tryAcquire(1, 300);
+
+        // then
+        assertFalse(admitted);
+        assertEquals(1, inFlightBudget.getInFlightEvents());
+        assertEquals(800, inFlightBudget.getInFlightBytes());
+    }
+
+    @Test
+    void testTryAcquire_shouldAdmitOversizedRequestWhenIdle() {
+        // given
+        InFlightBudget inFlightBudget = new InFlightBudget("test", 10, 1_000);
+
+        // when
+        boolean admitted = inFlightBudget.tryAcquire(1, 5_000);
+
+        // then
+        assertTrue(admitted);
+        assertFalse(inFlightBudget.tryAcquire(1, 1));
+    }
+
+    @Test
+    void testTryAcquirePermit_shouldChargeEveryEventAndReleaseOnlyOnce() {
+        // given
+        InFlightBudget inFlightBudget = new InFlightBudget("test", 10, 10_000);
+        Runnable permit = inFlightBudget.tryAcquirePermit(3, 300);
+
+        // when
+        permit.run();
+        permit.run();
+
+        // then
+        assertEquals(0, inFlightBudget.getInFlightEvents());
+        assertEquals(0, inFlightBudget.getInFlightBytes());
+    }
+
+    @Test
+    void testTryAcquirePermit_shouldReturnNullWhenTheBudgetIsExhausted() {
+        // given
+        InFlightBudget inFlightBudget = new InFlightBudget("test", 2, 10_000);
+        inFlightBudget.tryAcquirePermit(2, 100);
+
+        // when
+        Runnable permit = inFlightBudget.tryAcquirePermit(1, 100);
+
+        // then
+        assertNull(permit);
+        assertEquals(2, inFlightBudget.getInFlightEvents());
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.learnkafka.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.learnkafka.domain.DeliveryStatus;
+import com.learnkafka.domain.DeliveryStatusResult;
+import com.learnkafka.status.DeliveryStatusStore;
+
+@WebMvcTest(controllers = DeliveryStatusController.class,
+        properties = { "library-events.delivery-status.enabled=true", "library-events.delivery-status.max-batch-size=2" })
+@AutoConfigureMockMvc
+class DeliveryStatusControllerUnitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DeliveryStatusStore deliveryStatusStore;
+
+    @Test
+    void testGetDeliveryStatus_shouldReturnTrackedStatus() throws Exception {
+        // given
+        when(deliveryStatusStore.get("abc")).thenReturn(DeliveryStatusResult.builder()
+                .trackingId("abc")
+                .status(DeliveryStatus.ACKNOWLEDGED)
+                .partition(1)
+                .offset(7L)
+                .build());
+
+        // when
+        mockMvc.perform(get("/v1/libraryevent/status/abc"))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ACKNOWLEDGED"))
+                .andExpect(jsonPath("$.offset").value(7));
+    }
+
+    @Test
+    void testGetDeliveryStatus_shouldReturnNotFoundForUnknownTrackingId() throws Exception {
+        mockMvc.perform(get("/v1/libraryevent/status/unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value("UNKNOWN"));
+    }
+
+    @Test
+    void testGetDeliveryStatuses_shouldLookUpEveryTrackingId() throws Exception {
+        // given
+        when(deliveryStatusStore.get("abc")).thenReturn(DeliveryStatusResult.builder()
+                .trackingId("abc")
+                .status(DeliveryStatus.PENDING)
+                .build());
+
+        // when
+        mockMvc.perform(get("/v1/libraryevent/status").param("ids", "abc,unknown"))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("PENDING"))
+                .andExpect(jsonPath("$[1].trackingId").value("unknown"))
+                .andExpect(jsonPath("$[1].status").value("UNKNOWN"));
+    }
+
+    @Test
+    void testGetDeliveryStatuses_shouldRejectTooManyTrackingIds() throws Exception {
+        mockMvc.perform(get("/v1/libraryevent/status").param("ids", "a,b,c"))
+                .andExpect(status().isBadRequest());
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.learnkafka.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.producer.LibraryEventProducer;
+
+@WebMvcTest(LibraryEventsBulkController.class)
+@AutoConfigureMockMvc
+class LibraryEventsBulkControllerUnitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LibraryEventProducer libraryEventProducer;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testPostBulkLibraryEvents_shouldSendValidEventsAndRejectInvalidOnes() throws Exception {
+        // given
+        LibraryEvent validLibraryEvent = createLibraryEvent(createBook());
+        LibraryEvent invalidLibraryEvent = createLibraryEvent(Book.builder()
+                .bookId(null)
+                .bookAuthor(null)
+                .bookName("Kafka Using Spring Boot")
+                .build());
+        String jsonLibraryEvents = "[" + objectMapper.writeValueAsString(validLibraryEvent) + ","
+                + objectMapper.writeValueAsString(invalidLibraryEvent) + "]";
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/bulk")
+                .content(jsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].error").value("book.bookAuthor-must not be blank, book.bookId-must not be null"));
+
+        verify(libraryEventProducer, times(1)).sendAsynchronusLibraryEvent(isA(LibraryEvent.class), any(), any(), any());
+    }
+
+    @Test
+    void testPostBulkLibraryEvents_shouldReadNewlineDelimitedJson() throws Exception {
+        // given
+        String jsonLibraryEvent = objectMapper.writeValueAsString(createLibraryEvent(createBook()));
+        String ndjsonLibraryEvents = jsonLibraryEvent + "\n" + jsonLibraryEvent + "\n";
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/bulk")
+                .content(ndjsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_NDJSON_VALUE))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("ACCEPTED"));
+
+        verify(libraryEventProducer, times(2)).sendAsynchronusLibraryEvent(isA(LibraryEvent.class), any(), any(), any());
+    }
+
+    @Test
+    void testPutBulkLibraryEvents_shouldRejectEventsWithoutLibraryEventId() throws Exception {
+        // given
+        String jsonLibraryEvents = "[" + objectMapper.writeValueAsString(createLibraryEvent(createBook())) + "]";
+
+        // when
+        mockMvc.perform(put("/v1/libraryevents/bulk")
+                .content(jsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("REJECTED"))
+                .andExpect(jsonPath("$[0].error").value("Please pass the LibraryEventId"));
+    }
+
+    @Test
+    void testPostBulkLibraryEvents_rejectedSend_shouldFailOnlyThatItem() throws Exception {
+        // given
+        String jsonLibraryEvent = objectMapper.writeValueAsString(createLibraryEvent(createBook()));
+        String jsonLibraryEvents = "[" + jsonLibraryEvent + "," + jsonLibraryEvent + "," + jsonLibraryEvent + "]";
+        doNothing()
+                .doThrow(new RejectedExecutionException("Too many library events waiting for a retry"))
+                .doNothing()
+                .when(libraryEventProducer).sendAsynchronusLibraryEvent(isA(LibraryEvent.class), any(), any(), any());
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/bulk")
+                .content(jsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].error").value("Too many library events waiting for a retry"))
+                .andExpect(jsonPath("$[2].status").value("ACCEPTED"));
+    }
+
+    private LibraryEvent createLibraryEvent(Book book) {
+        return LibraryEvent.builder()
+                .libraryEventId(null)
+                .book(book)
+                .build();
+    }
+
+    private Book createBook() {
+        return Book.builder()
+                .bookId(123)
+                .bookName("Kafka Using Spring Boot")
+                .bookAuthor("Aleksandar Grahovac")
+                .build();
+    }
+
+}
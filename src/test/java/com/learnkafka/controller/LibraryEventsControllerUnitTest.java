@@ -1,13 +1,35 @@
 package com.learnkafka.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -16,11 +38,19 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learnkafka.domain.Book;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.id.LibraryEventIdGenerator;
 import com.learnkafka.producer.LibraryEventProducer;
+import com.learnkafka.producer.StripedLibraryEventDispatcher;
+import com.learnkafka.status.DeliveryStatusStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @WebMvcTest(LibraryEventsController.class)
 @AutoConfigureMockMvc
@@ -29,11 +59,22 @@ class LibraryEventsControllerUnitTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private LibraryEventsController libraryEventsController;
+
     @MockBean
     private LibraryEventProducer libraryEventProducer;
 
+    @MockBean
+    private LibraryEventIdGenerator libraryEventIdGenerator;
+
     ObjectMapper objectMapper = new ObjectMapper();
 
+    @BeforeEach
+    void setUp() {
+        when(libraryEventProducer.serialize(isA(LibraryEvent.class))).thenAnswer(invocation -> objectMapper.writeValueAsBytes(invocation.getArgument(0)));
+    }
+
     @Test
     void testPostLibraryEvent_shouldSendLibraryEventToKafkaBroker() throws Exception {
         // given
@@ -51,6 +92,43 @@ class LibraryEventsControllerUnitTest {
 
     }
 
+    @Test
+    void testPostAsynchronousLibraryEvent_shouldAssignLibraryEventId() throws Exception {
+        // given
+        Book book = createBook();
+        LibraryEvent libraryEvent = createLibraryEvent(book);
+        String jsonLibraryEvent = objectMapper.writeValueAsString(libraryEvent);
+        when(libraryEventIdGenerator.nextId()).thenReturn(42);
+
+        // when
+        mockMvc.perform(post("/v1/asynchronous-libraryevent")
+                .content(jsonLibraryEvent)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isCreated());
+
+        verify(libraryEventProducer).serialize(argThat(event -> Integer.valueOf(42).equals(event.getLibraryEventId())));
+        verify(libraryEventProducer).sendAsynchronusLibraryEvent(argThat(event -> Integer.valueOf(42).equals(event.getLibraryEventId())), any(), any(), any());
+    }
+
+    @Test
+    void testPostAsynchronousLibraryEvent_shouldRejectClientIdInGeneratedRange() throws Exception {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        libraryEvent.setLibraryEventId(LibraryEventIdGenerator.GENERATED_FLAG | 42);
+        String jsonLibraryEvent = objectMapper.writeValueAsString(libraryEvent);
+
+        // when
+        mockMvc.perform(post("/v1/asynchronous-libraryevent")
+                .content(jsonLibraryEvent)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(LibraryEventIdGenerator.GENERATED_RANGE_ERROR));
+
+        verify(libraryEventProducer, never()).sendAsynchronusLibraryEvent(any(), any(), any(), any());
+    }
+
     @Test
     void testPostAsynchronousLibraryEvent_shouldFailValidationOnBook() throws Exception {
         // given
@@ -75,22 +153,49 @@ class LibraryEventsControllerUnitTest {
 
     }
 
-    @SuppressWarnings("unchecked")
     @Test
     void testPostSynchronousLibraryEvent_shouldSendLibraryEventToKafkaBroker() throws Exception {
         // given
         Book book = createBook();
         LibraryEvent libraryEvent = createLibraryEvent(book);
         String jsonLibraryEvent = objectMapper.writeValueAsString(libraryEvent);
+        SettableListenableFuture<SendResult<Integer, byte[]>> settableListenableFuture = new SettableListenableFuture<>();
+        settableListenableFuture.set(null);
 
-        when(libraryEventProducer.sendSynchronousLibraryEventUsingTimeout(libraryEvent)).thenReturn(isA(SendResult.class));
+        when(libraryEventProducer.serialize(isA(LibraryEvent.class))).thenReturn(jsonLibraryEvent.getBytes());
+        when(libraryEventProducer.sendLibraryEventAwaitingAck(isA(LibraryEvent.class), any(), anyLong())).thenReturn(settableListenableFuture);
 
         // when
-        mockMvc.perform(post("/v1/synchronous-libraryevent")
+        MvcResult mvcResult = mockMvc.perform(post("/v1/synchronous-libraryevent")
                 .content(jsonLibraryEvent)
                 .contentType(MediaType.APPLICATION_JSON_VALUE))
-                // then
-                .andExpect(status().isCreated());
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isCreated())
+                .andExpect(content().json(jsonLibraryEvent));
+
+    }
+
+    @Test
+    void testPutSynchronousLibraryEvent_shouldReturnBadRequestWhenLibraryEventIdIsNull() throws Exception {
+        // given
+        Book book = createBook();
+        LibraryEvent libraryEvent = createLibraryEvent(book);
+        String jsonLibraryEvent = objectMapper.writeValueAsString(libraryEvent);
+
+        // when
+        MvcResult mvcResult = mockMvc.perform(put("/v1/synchronous-libraryevent")
+                .content(jsonLibraryEvent)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isBadRequest());
 
     }
 
@@ -151,6 +256,96 @@ class LibraryEventsControllerUnitTest {
 
     }
 
+    @Test
+    void testPostAsynchronousLibraryEvent_shouldSerializeOnTheDispatcherLane() throws Exception {
+        // given
+        Book book = createBook();
+        LibraryEvent libraryEvent = createLibraryEvent(book);
+        libraryEvent.setLibraryEventId(123);
+        String jsonLibraryEvent = objectMapper.writeValueAsString(libraryEvent);
+        Set<String> serializingThreads = ConcurrentHashMap.newKeySet();
+        CountDownLatch sent = new CountDownLatch(1);
+        when(libraryEventProducer.serialize(isA(LibraryEvent.class))).thenAnswer(invocation -> {
+            serializingThreads.add(Thread.currentThread().getName());
+            return jsonLibraryEvent.getBytes();
+        });
+        doAnswer(invocation -> {
+            sent.countDown();
+            return null;
+        }).when(libraryEventProducer).sendAsynchronusLibraryEvent(isA(LibraryEvent.class), any(), any(), any());
+        StripedLibraryEventDispatcher stripedLibraryEventDispatcher = new StripedLibraryEventDispatcher(1, 10, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(libraryEventsController, "stripedLibraryEventDispatcher", stripedLibraryEventDispatcher);
+
+        try {
+            // when
+            mockMvc.perform(post("/v1/asynchronous-libraryevent")
+                    .content(jsonLibraryEvent)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE))
+                    // then
+                    .andExpect(status().isCreated())
+                    .andExpect(content().json("{\"libraryEventId\":123,\"libraryEventType\":\"NEW\",\"book\":{\"bookId\":123}}"));
+
+            assertTrue(sent.await(5, TimeUnit.SECONDS));
+            assertEquals(Collections.singleton("library-events-lane-0"), serializingThreads);
+        } finally {
+            ReflectionTestUtils.setField(libraryEventsController, "stripedLibraryEventDispatcher", null);
+            stripedLibraryEventDispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void testPostAsynchronousLibraryEvent_dispatchRejected_shouldMarkDeliveryFailed() throws Exception {
+        // given
+        String jsonLibraryEvent = objectMapper.writeValueAsString(createLibraryEvent(createBook()));
+        StripedLibraryEventDispatcher stripedLibraryEventDispatcher = mock(StripedLibraryEventDispatcher.class);
+        doThrow(new RejectedExecutionException("Lane 0 is full")).when(stripedLibraryEventDispatcher).dispatch(isA(LibraryEvent.class), any());
+        DeliveryStatusStore deliveryStatusStore = mock(DeliveryStatusStore.class);
+        when(deliveryStatusStore.track(any())).thenReturn("tracking-id");
+        ReflectionTestUtils.setField(libraryEventsController, "stripedLibraryEventDispatcher", stripedLibraryEventDispatcher);
+        ReflectionTestUtils.setField(libraryEventsController, "deliveryStatusStore", deliveryStatusStore);
+
+        try {
+            // when
+            mockMvc.perform(post("/v1/asynchronous-libraryevent")
+                    .content(jsonLibraryEvent)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE))
+                    // then
+                    .andExpect(status().isServiceUnavailable());
+
+            verify(deliveryStatusStore).failed(eq("tracking-id"), isA(RejectedExecutionException.class));
+        } finally {
+            ReflectionTestUtils.setField(libraryEventsController, "stripedLibraryEventDispatcher", null);
+            ReflectionTestUtils.setField(libraryEventsController, "deliveryStatusStore", null);
+        }
+    }
+
+    @Test
+    void testPostAsynchronousLibraryEvent_laneSerializationFails_shouldMarkDeliveryFailed() throws Exception {
+        // given
+        String jsonLibraryEvent = objectMapper.writeValueAsString(createLibraryEvent(createBook()));
+        when(libraryEventProducer.serialize(isA(LibraryEvent.class))).thenThrow(new IllegalStateException("Cannot serialize"));
+        StripedLibraryEventDispatcher stripedLibraryEventDispatcher = new StripedLibraryEventDispatcher(1, 10, new SimpleMeterRegistry());
+        DeliveryStatusStore deliveryStatusStore = mock(DeliveryStatusStore.class);
+        when(deliveryStatusStore.track(any())).thenReturn("tracking-id");
+        ReflectionTestUtils.setField(libraryEventsController, "stripedLibraryEventDispatcher", stripedLibraryEventDispatcher);
+        ReflectionTestUtils.setField(libraryEventsController, "deliveryStatusStore", deliveryStatusStore);
+
+        try {
+            // when
+            mockMvc.perform(post("/v1/asynchronous-libraryevent")
+                    .content(jsonLibraryEvent)
+                    .contentType(MediaType.APPLICATION_JSON_VALUE))
+                    // then
+                    .andExpect(status().isCreated());
+
+            verify(deliveryStatusStore, timeout(5000)).failed(eq("tracking-id"), isA(IllegalStateException.class));
+        } finally {
+            ReflectionTestUtils.setField(libraryEventsController, "stripedLibraryEventDispatcher", null);
+            ReflectionTestUtils.setField(libraryEventsController, "deliveryStatusStore", null);
+            stripedLibraryEventDispatcher.shutdown();
+        }
+    }
+
     private LibraryEvent createLibraryEvent(Book book) {
         return LibraryEvent.builder()
                 .libraryEventId(null)
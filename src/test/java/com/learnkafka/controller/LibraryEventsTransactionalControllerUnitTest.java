@@ -0,0 +1,131 @@
+package com.learnkafka.controller;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.producer.TransactionalLibraryEventProducer;
+
+@WebMvcTest(controllers = LibraryEventsTransactionalController.class, properties = "library-events.transactions.enabled=true")
+@AutoConfigureMockMvc
+class LibraryEventsTransactionalControllerUnitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TransactionalLibraryEventProducer transactionalLibraryEventProducer;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testPostTransactionalLibraryEvents_shouldSendAllEventsInOneTransaction() throws Exception {
+        // given
+        LibraryEvent newLibraryEvent = createLibraryEvent(123, LibraryEventType.NEW, createBook());
+        LibraryEvent updateLibraryEvent = createLibraryEvent(123, null, createBook());
+        String jsonLibraryEvents = objectMapper.writeValueAsString(Arrays.asList(newLibraryEvent, updateLibraryEvent));
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/transactional")
+                .content(jsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].libraryEventType").value("NEW"))
+                .andExpect(jsonPath("$[1].libraryEventType").value("UPDATE"));
+
+        verify(transactionalLibraryEventProducer, times(1)).sendLibraryEventsInTransaction(anyList());
+    }
+
+    @Test
+    void testPostTransactionalLibraryEvents_shouldRejectWholeGroupWhenOneEventIsInvalid() throws Exception {
+        // given
+        LibraryEvent validLibraryEvent = createLibraryEvent(123, LibraryEventType.NEW, createBook());
+        LibraryEvent invalidLibraryEvent = createLibraryEvent(null, LibraryEventType.UPDATE, createBook());
+        String jsonLibraryEvents = objectMapper.writeValueAsString(Arrays.asList(validLibraryEvent, invalidLibraryEvent));
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/transactional")
+                .content(jsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("libraryEvents[1]: Please pass the LibraryEventId"));
+
+        verify(transactionalLibraryEventProducer, never()).sendLibraryEventsInTransaction(anyList());
+    }
+
+    @Test
+    void testPostTransactionalLibraryEvents_shouldReportTheFirstConstraintViolationWithItsIndex() throws Exception {
+        // given
+        LibraryEvent validLibraryEvent = createLibraryEvent(123, LibraryEventType.NEW, createBook());
+        LibraryEvent invalidLibraryEvent = createLibraryEvent(123, LibraryEventType.UPDATE, Book.builder()
+                .bookId(null)
+                .bookName("Kafka Using Spring Boot")
+                .bookAuthor(null)
+                .build());
+        String jsonLibraryEvents = objectMapper.writeValueAsString(Arrays.asList(validLibraryEvent, invalidLibraryEvent));
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/transactional")
+                .content(jsonLibraryEvents)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("libraryEvents[1]: book.bookAuthor-must not be blank, book.bookId-must not be null"));
+
+        verify(transactionalLibraryEventProducer, never()).sendLibraryEventsInTransaction(anyList());
+    }
+
+    @Test
+    void testPostTransactionalLibraryEvents_shouldRejectABodyThatIsNotAnArray() throws Exception {
+        // given
+        String jsonLibraryEvent = objectMapper.writeValueAsString(createLibraryEvent(123, LibraryEventType.NEW, createBook()));
+
+        // when
+        mockMvc.perform(post("/v1/libraryevents/transactional")
+                .content(jsonLibraryEvent)
+                .contentType(MediaType.APPLICATION_JSON_VALUE))
+                // then
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Please pass a JSON array of LibraryEvents"));
+
+        verify(transactionalLibraryEventProducer, never()).sendLibraryEventsInTransaction(anyList());
+    }
+
+    private LibraryEvent createLibraryEvent(Integer libraryEventId, LibraryEventType libraryEventType, Book book) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .libraryEventType(libraryEventType)
+                .book(book)
+                .build();
+    }
+
+    private Book createBook() {
+        return Book.builder()
+                .bookId(456)
+                .bookName("Kafka Using Spring Boot")
+                .bookAuthor("Aleksandar Grahovac")
+                .build();
+    }
+
+}
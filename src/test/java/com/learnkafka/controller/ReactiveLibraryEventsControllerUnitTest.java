@@ -0,0 +1,109 @@
+package com.learnkafka.controller;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.producer.ReactiveLibraryEventProducer;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+@WebFluxTest(ReactiveLibraryEventsController.class)
+class ReactiveLibraryEventsControllerUnitTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveLibraryEventProducer reactiveLibraryEventProducer;
+
+    @Test
+    void testPostAsynchronusLibraryEvent_shouldSendLibraryEventToKafkaBroker() {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        when(reactiveLibraryEventProducer.sendAsynchronusLibraryEvent(isA(LibraryEvent.class))).thenReturn(Mono.empty());
+
+        // when
+        webTestClient.post()
+                .uri("/v1/asynchronous-libraryevent")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(libraryEvent)
+                .exchange()
+                // then
+                .expectStatus().isCreated();
+
+        verify(reactiveLibraryEventProducer).sendAsynchronusLibraryEvent(isA(LibraryEvent.class));
+    }
+
+    @Test
+    void testPostAsynchronusLibraryEventWithProducerRecord_shouldAnswerOnlyOnceTheProducerHasCapacity() {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        Sinks.Empty<Void> capacity = Sinks.empty();
+        when(reactiveLibraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(isA(LibraryEvent.class)))
+                .thenReturn(capacity.asMono());
+        Mono.delay(Duration.ofMillis(200)).subscribe(tick -> capacity.tryEmitEmpty());
+        long startNanos = System.nanoTime();
+
+        // when
+        webTestClient.post()
+                .uri("/v1/asynchronous-libraryevent-producerrecord")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(libraryEvent)
+                .exchange()
+                // then
+                .expectStatus().isCreated();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).toMillis() >= 200);
+    }
+
+    @Test
+    void testPostAsynchronousLibraryEvent_shouldFailValidationOnBook() {
+        // given
+        String expectedErrorMessage = "book.bookAuthor-must not be blank, book.bookId-must not be null";
+        LibraryEvent libraryEvent = createLibraryEvent(Book.builder()
+                .bookId(null)
+                .bookAuthor(null)
+                .bookName("Kafka Using Spring Boot")
+                .build());
+
+        // when
+        webTestClient.post()
+                .uri("/v1/asynchronous-libraryevent")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(libraryEvent)
+                .exchange()
+                // then
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo(expectedErrorMessage);
+    }
+
+    private LibraryEvent createLibraryEvent(Book book) {
+        return LibraryEvent.builder()
+                .libraryEventId(null)
+                .book(book)
+                .build();
+    }
+
+    private Book createBook() {
+        return Book.builder()
+                .bookId(123)
+                .bookName("Kafka Using Spring Boot")
+                .bookAuthor("Aleksandar Grahovac")
+                .build();
+    }
+
+}
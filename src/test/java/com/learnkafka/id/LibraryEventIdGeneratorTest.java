@@ -0,0 +1,184 @@
+package com.learnkafka.id;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class LibraryEventIdGeneratorTest {
+
+    AtomicLong clock = new AtomicLong(1000_000L);
+
+    @Test
+    void testNextId_shouldPackTimeWorkerIdAndSequence() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(5, 3, 8, 900, 0, clock::get);
+
+        // when
+        int first = libraryEventIdGenerator.nextId();
+        int second = libraryEventIdGenerator.nextId();
+
+        // then
+        assertEquals(LibraryEventIdGenerator.GENERATED_FLAG | (100 << 11) | (5 << 8), first);
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    void testNextId_shouldStartBeyondWhatAPreviousRunMayHaveBorrowed() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(0, 3, 2, 0, 2, clock::get);
+
+        // when
+        int first = libraryEventIdGenerator.nextId();
+
+        // then
+        assertEquals(LibraryEventIdGenerator.GENERATED_FLAG | (1002 << 5), first);
+    }
+
+    @Test
+    void testNextId_shouldBorrowFromNextSecondWhenSequenceIsExhausted() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(0, 3, 2, 0, 1, clock::get);
+        clock.addAndGet(1000);
+
+        // when
+        int last = 0;
+        for (int i = 0; i < 5; i++) {
+            last = libraryEventIdGenerator.nextId();
+        }
+
+        // then
+        assertEquals(LibraryEventIdGenerator.GENERATED_FLAG | (1002 << 5), last);
+    }
+
+    @Test
+    void testNextId_shouldRejectRatherThanBorrowMoreThanMaxBorrowSeconds() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(0, 3, 2, 0, 1, clock::get);
+        clock.addAndGet(1000);
+        for (int i = 0; i < 8; i++) {
+            libraryEventIdGenerator.nextId();
+        }
+
+        // when
+        assertThrows(LibraryEventIdExhaustedException.class, libraryEventIdGenerator::nextId);
+
+        // then
+        clock.addAndGet(1000);
+        assertEquals(LibraryEventIdGenerator.GENERATED_FLAG | (1003 << 5), libraryEventIdGenerator.nextId());
+    }
+
+    @Test
+    void testNextId_shouldStayUniqueAndWithinTheBorrowLimitUnderSustainedRate() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(0, 3, 2, 0, 1, clock::get);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        int rejected = 0;
+
+        // when
+        for (int second = 0; second < 100; second++) {
+            for (int i = 0; i < 10; i++) {
+                try {
+                    int id = libraryEventIdGenerator.nextId();
+                    assertTrue((id & ~LibraryEventIdGenerator.GENERATED_FLAG) >>> 5 <= clock.get() / 1000 + 1);
+                    assertTrue(ids.add(id));
+                } catch (LibraryEventIdExhaustedException e) {
+                    rejected++;
+                }
+            }
+            clock.addAndGet(1000);
+        }
+
+        // then
+        assertEquals(400, ids.size());
+        assertEquals(1000 - 400, rejected);
+    }
+
+    @Test
+    void testNextId_shouldRejectInsteadOfWrappingTheTimeField() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(0, 3, 19, 746, 0, clock::get);
+        int first = libraryEventIdGenerator.nextId();
+
+        // when
+        clock.addAndGet(1000);
+        int last = libraryEventIdGenerator.nextId();
+        clock.addAndGet(1000);
+
+        // then
+        assertEquals(LibraryEventIdGenerator.GENERATED_FLAG | (254 << 22), first);
+        assertEquals(LibraryEventIdGenerator.GENERATED_FLAG | (255 << 22), last);
+        assertThrows(LibraryEventIdExhaustedException.class, libraryEventIdGenerator::nextId);
+    }
+
+    @Test
+    void testNextId_shouldKeepIncreasingWhenClockMovesBackwards() {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(1, 3, 8, 0, 1, clock::get);
+        int first = libraryEventIdGenerator.nextId();
+
+        // when
+        clock.addAndGet(-5000);
+        int second = libraryEventIdGenerator.nextId();
+
+        // then
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    void testNextId_shouldBePositiveAndUniqueAcrossThreads() throws Exception {
+        // given
+        LibraryEventIdGenerator libraryEventIdGenerator = new LibraryEventIdGenerator(7, 3, 17, System.currentTimeMillis() / 1000, 1,
+                System::currentTimeMillis);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        // when
+        for (int thread = 0; thread < 8; thread++) {
+            executorService.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(libraryEventIdGenerator.nextId());
+                }
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        // then
+        assertEquals(80_000, ids.size());
+        assertTrue(ids.stream().allMatch(id -> id >= 0 && LibraryEventIdGenerator.isGenerated(id)));
+    }
+
+    @Test
+    void testConstructor_shouldRejectWorkerIdOutsideWorkerBits() {
+        assertThrows(IllegalArgumentException.class, () -> new LibraryEventIdGenerator(8, 3, 8, 0, 1, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new LibraryEventIdGenerator(0, 12, 12, 0, 1, clock::get));
+    }
+
+    @Test
+    void testConstructor_shouldRejectAnEpochWhoseTimeFieldHasRunOut() {
+        assertThrows(IllegalArgumentException.class, () -> new LibraryEventIdGenerator(0, 3, 8, 0, 1, () -> TimeUnit.DAYS.toMillis(13)));
+        assertThrows(IllegalArgumentException.class, () -> new LibraryEventIdGenerator(0, 3, 19, 745, 1, clock::get));
+    }
+
+    @Test
+    void testConstructor_shouldRequireWorkerId() {
+        assertThrows(IllegalStateException.class, () -> new LibraryEventIdGenerator(null, 1, 3, "2026-01-01T00:00:00Z", 300));
+    }
+
+    @Test
+    void testIsGenerated_shouldLeaveTheLowerHalfToClients() {
+        assertFalse(LibraryEventIdGenerator.isGenerated(LibraryEventIdGenerator.GENERATED_FLAG - 1));
+        assertTrue(LibraryEventIdGenerator.isGenerated(LibraryEventIdGenerator.GENERATED_FLAG));
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.learnkafka.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LibraryEventMetricsTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    LibraryEventMetrics libraryEventMetrics = new LibraryEventMetrics(meterRegistry);
+
+    LibraryEvent libraryEvent = LibraryEvent.builder()
+            .libraryEventId(1)
+            .libraryEventType(LibraryEventType.NEW)
+            .build();
+
+    @Test
+    void testRecordSuccess_shouldRecordLatencyPayloadSizeAndPartition() {
+        // given
+        Timer.Sample firstSample = libraryEventMetrics.startSend("asynchronous");
+        Timer.Sample secondSample = libraryEventMetrics.startSend("asynchronous");
+        assertEquals(2, meterRegistry.get("library.events.send.inflight").tag("endpoint", "asynchronous").gauge().value());
+
+        // when
+        libraryEventMetrics.recordSuccess(firstSample, "asynchronous", libraryEvent, recordMetadata(1, 100));
+        libraryEventMetrics.recordSuccess(secondSample, "asynchronous", libraryEvent, recordMetadata(1, 300));
+
+        // then
+        Timer sendTimer = meterRegistry.get("library.events.send")
+                .tags("endpoint", "asynchronous", "type", "NEW", "outcome", "success", "exception", "none")
+                .timer();
+        assertEquals(2, sendTimer.count());
+        assertEquals(400, meterRegistry.get("library.events.payload.size").tags("endpoint", "asynchronous", "type", "NEW").summary().totalAmount());
+        assertEquals(2, meterRegistry.get("library.events.partition.records").tags("topic", "library-events", "partition", "1").counter().count());
+        assertEquals(0, meterRegistry.get("library.events.send.inflight").tag("endpoint", "asynchronous").gauge().value());
+    }
+
+    @Test
+    void testRecordFailure_shouldTagTheExceptionAndReuseTheTimer() {
+        // given
+        libraryEventMetrics.recordFailure(libraryEventMetrics.startSend("synchronous"), "synchronous", libraryEvent, new IllegalStateException());
+        Timer failureTimer = meterRegistry.get("library.events.send").tags("outcome", "failure", "exception", "IllegalStateException").timer();
+
+        // when
+        libraryEventMetrics.recordFailure(libraryEventMetrics.startSend("synchronous"), "synchronous", libraryEvent, new IllegalStateException());
+
+        // then
+        assertSame(failureTimer, meterRegistry.get("library.events.send").tags("outcome", "failure").timer());
+        assertEquals(2, failureTimer.count());
+        assertEquals(1, meterRegistry.find("library.events.send").timers().size());
+    }
+
+
+    private RecordMetadata recordMetadata(int partition, int serializedValueSize) {
+        return new RecordMetadata(new TopicPartition("library-events", partition), 0, 0, 0, 0L, 4, serializedValueSize);
+    }
+
+}
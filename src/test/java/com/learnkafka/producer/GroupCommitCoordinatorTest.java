@@ -0,0 +1,214 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroupCommitCoordinatorTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    BlockingQueue<SettableListenableFuture<SendResult<Integer, byte[]>>> sends = new LinkedBlockingQueue<>();
+
+    GroupCommitCoordinator groupCommitCoordinator = new GroupCommitCoordinator(256, 50, 2000, 1, 100, meterRegistry);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        groupCommitCoordinator.shutdown();
+    }
+
+    @Test
+    void testSubmit_shouldCommitSendsArrivingDuringAnInFlightBatchTogether() throws Exception {
+        // given
+        groupCommitCoordinator.start();
+        ListenableFuture<SendResult<Integer, byte[]>> first = groupCommitCoordinator.submit(producerRecord(1), this::send);
+        SettableListenableFuture<SendResult<Integer, byte[]>> firstSend = sends.poll(1, TimeUnit.SECONDS);
+        List<ListenableFuture<SendResult<Integer, byte[]>>> followers = new ArrayList<>();
+        for (int i = 2; i <= 4; i++) {
+            followers.add(groupCommitCoordinator.submit(producerRecord(i), this::send));
+        }
+
+        // when
+        SendResult<Integer, byte[]> firstResult = new SendResult<>(producerRecord(1), null);
+        firstSend.set(firstResult);
+
+        // then
+        assertSame(firstResult, first.get(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            sends.poll(1, TimeUnit.SECONDS).set(null);
+        }
+        for (ListenableFuture<SendResult<Integer, byte[]>> follower : followers) {
+            follower.get(1, TimeUnit.SECONDS);
+        }
+        DistributionSummary batchSizes = meterRegistry.get("library.events.group.commit.batch.size").summary();
+        assertEquals(2, batchSizes.count());
+        assertEquals(4, batchSizes.totalAmount());
+    }
+
+    @Test
+    void testSubmit_shouldFailOnlyTheSendWhoseSenderThrows() throws Exception {
+        // given
+        groupCommitCoordinator.start();
+        IllegalStateException exception = new IllegalStateException("Producer closed");
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> failed = groupCommitCoordinator.submit(producerRecord(1), record -> {
+            throw exception;
+        });
+        ListenableFuture<SendResult<Integer, byte[]>> next = groupCommitCoordinator.submit(producerRecord(2), this::send);
+
+        // then
+        ExecutionException executionException = assertThrows(ExecutionException.class,
+                () -> failed.get(1, TimeUnit.SECONDS));
+        assertSame(exception, executionException.getCause());
+        sends.poll(1, TimeUnit.SECONDS).set(null);
+        next.get(1, TimeUnit.SECONDS);
+        assertTrue(next.isDone());
+    }
+
+    @Test
+    void testSubmit_shouldNotHoldLaterSendsBehindASlowAcknowledgement() throws Exception {
+        // given
+        groupCommitCoordinator = new GroupCommitCoordinator(256, 50, 2000, 1, 20, 100, meterRegistry);
+        groupCommitCoordinator.start();
+        groupCommitCoordinator.submit(producerRecord(1), this::send);
+        SettableListenableFuture<SendResult<Integer, byte[]>> slowSend = sends.poll(1, TimeUnit.SECONDS);
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> next = groupCommitCoordinator.submit(producerRecord(2), this::send);
+
+        // then
+        SettableListenableFuture<SendResult<Integer, byte[]>> nextSend = sends.poll(1, TimeUnit.SECONDS);
+        nextSend.set(null);
+        next.get(1, TimeUnit.SECONDS);
+        assertEquals(1, meterRegistry.get("library.events.group.commit.ack.wait.timeouts").counter().count());
+
+        // the batch committed without a permit must not release one: the next batch takes the only permit again
+        slowSend.set(null);
+        groupCommitCoordinator.submit(producerRecord(3), this::send);
+        sends.poll(1, TimeUnit.SECONDS);
+        groupCommitCoordinator.submit(producerRecord(4), this::send);
+        sends.poll(1, TimeUnit.SECONDS);
+        assertEquals(2, meterRegistry.get("library.events.group.commit.ack.wait.timeouts").counter().count());
+    }
+
+    @Test
+    void testSubmit_shouldDropSendsWhoseCallerStoppedWaiting() throws Exception {
+        // given
+        groupCommitCoordinator.start();
+        groupCommitCoordinator.submit(producerRecord(1), this::send);
+        SettableListenableFuture<SendResult<Integer, byte[]>> slowSend = sends.poll(1, TimeUnit.SECONDS);
+        ListenableFuture<SendResult<Integer, byte[]>> expired = groupCommitCoordinator.submit(producerRecord(2), 10, this::send);
+
+        // when
+        Thread.sleep(50);
+        slowSend.set(null);
+
+        // then
+        ExecutionException executionException = assertThrows(ExecutionException.class, () -> expired.get(1, TimeUnit.SECONDS));
+        assertTrue(executionException.getCause() instanceof TimeoutException);
+        assertNull(sends.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get("library.events.group.commit.expired").counter().count());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testStart_shouldCreateItsOwnProducerWithLingerFloorAndCappedMaxBlock() throws Exception {
+        // given
+        DefaultKafkaProducerFactory<Integer, byte[]> producerFactory = mock(DefaultKafkaProducerFactory.class);
+        DefaultKafkaProducerFactory<Integer, byte[]> groupCommitProducerFactory = mock(DefaultKafkaProducerFactory.class);
+        KafkaTemplate<Integer, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+        configs.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 60_000);
+        configs.put(ProducerConfig.CLIENT_ID_CONFIG, "library-events-producer");
+        when(producerFactory.getConfigurationProperties()).thenReturn(configs);
+        when(producerFactory.copyWithConfigurationOverride(any())).thenReturn(groupCommitProducerFactory);
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        ReflectionTestUtils.setField(groupCommitCoordinator, "producerFactory", producerFactory);
+        ReflectionTestUtils.setField(groupCommitCoordinator, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(groupCommitCoordinator, "lingerMs", 5L);
+        ReflectionTestUtils.setField(groupCommitCoordinator, "maxBlockMs", 100L);
+
+        // when
+        groupCommitCoordinator.start();
+
+        // then
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put(ProducerConfig.LINGER_MS_CONFIG, 5L);
+        overrides.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 100L);
+        overrides.put(ProducerConfig.CLIENT_ID_CONFIG, "library-events-producer-group-commit");
+        verify(producerFactory).copyWithConfigurationOverride(overrides);
+        verify(producerFactory, never()).updateConfigs(any());
+        assertSame(groupCommitProducerFactory, groupCommitCoordinator.kafkaTemplate().getProducerFactory());
+        assertEquals("library-events", groupCommitCoordinator.kafkaTemplate().getDefaultTopic());
+        groupCommitCoordinator.shutdown();
+        verify(groupCommitProducerFactory).destroy();
+        verify(producerFactory, never()).destroy();
+    }
+
+    @Test
+    void testAdaptWindow_shouldGrowWhileWaitingGathersSendsAndCloseWhenItDoesNot() {
+        // given
+        groupCommitCoordinator.start();
+
+        // when / then
+        groupCommitCoordinator.adaptWindow(1, 1);
+        assertEquals(0, groupCommitCoordinator.getWindowNanos());
+        groupCommitCoordinator.adaptWindow(3, 3);
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50), groupCommitCoordinator.getWindowNanos());
+        for (int i = 0; i < 10; i++) {
+            groupCommitCoordinator.adaptWindow(3, 8);
+        }
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(2000), groupCommitCoordinator.getWindowNanos());
+        groupCommitCoordinator.adaptWindow(256, 256);
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), groupCommitCoordinator.getWindowNanos());
+        for (int i = 0; i < 10; i++) {
+            groupCommitCoordinator.adaptWindow(1, 1);
+        }
+        assertEquals(0, groupCommitCoordinator.getWindowNanos());
+    }
+
+
+    private ListenableFuture<SendResult<Integer, byte[]>> send(ProducerRecord<Integer, byte[]> producerRecord) {
+        SettableListenableFuture<SendResult<Integer, byte[]>> future = new SettableListenableFuture<>();
+        sends.add(future);
+        return future;
+    }
+
+    private ProducerRecord<Integer, byte[]> producerRecord(int key) {
+        return new ProducerRecord<>("library-events", key, new byte[] { (byte) key });
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.metrics.KafkaMetricsAutoConfiguration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LibraryEventProducerPoolTest {
+
+    LibraryEventProducerPool libraryEventProducerPool = new LibraryEventProducerPool(producerProperties(), "library-events", 4,
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        libraryEventProducerPool.destroy();
+    }
+
+    @Test
+    void testKafkaTemplate_shouldUseSameProducerForSameLibraryEventId() {
+        // given
+        KafkaTemplate<Integer, byte[]> kafkaTemplate = libraryEventProducerPool.kafkaTemplate(123);
+
+        // when / then
+        for (int i = 0; i < 10; i++) {
+            assertSame(kafkaTemplate, libraryEventProducerPool.kafkaTemplate(123));
+        }
+        assertEquals("library-events", kafkaTemplate.getDefaultTopic());
+    }
+
+    @Test
+    void testKafkaTemplate_shouldSpreadNullKeysOverAllProducers() {
+        // given
+        Set<KafkaTemplate<Integer, byte[]>> kafkaTemplates = new HashSet<>();
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            kafkaTemplates.add(libraryEventProducerPool.kafkaTemplate(null));
+        }
+
+        // then
+        assertEquals(4, kafkaTemplates.size());
+    }
+
+    @Test
+    void testKafkaTemplate_shouldSplitBufferMemoryBetweenProducers() {
+        // when
+        Map<String, Object> configurationProperties = libraryEventProducerPool.kafkaTemplate(1).getProducerFactory().getConfigurationProperties();
+
+        // then
+        assertEquals(16 * 1024 * 1024L / 5, configurationProperties.get(ProducerConfig.BUFFER_MEMORY_CONFIG));
+        assertEquals("library-events-producer-1", configurationProperties.get(ProducerConfig.CLIENT_ID_CONFIG));
+    }
+
+    @Test
+    void testPool_shouldShrinkDefaultProducerToItsShareOfBufferMemory() {
+        // given
+        DefaultKafkaProducerFactory<Integer, byte[]> defaultProducerFactory = new DefaultKafkaProducerFactory<>(producerProperties());
+
+        // when
+        LibraryEventProducerPool pool = new LibraryEventProducerPool(producerProperties(), "library-events", 4, defaultProducerFactory,
+                Collections.emptyList(), new LiveProducers(), new SimpleMeterRegistry());
+
+        // then
+        assertEquals(16 * 1024 * 1024L / 5, defaultProducerFactory.getConfigurationProperties().get(ProducerConfig.BUFFER_MEMORY_CONFIG));
+        pool.destroy();
+    }
+
+    @Test
+    void testAvailableBufferMemory_shouldSumOpenPoolProducersOnly() {
+        // given
+        LiveProducers liveProducers = new LiveProducers();
+        LibraryEventProducerPool pool = new LibraryEventProducerPool(producerProperties(), "library-events", 4, null,
+                Collections.emptyList(), liveProducers, new SimpleMeterRegistry());
+        liveProducers.producerAdded("pool-0", producerWithAvailableBuffer("library-events-producer-0-1", 1000));
+        liveProducers.producerAdded("pool-1", producerWithAvailableBuffer("library-events-producer-1-1", 2000));
+        liveProducers.producerAdded("default", producerWithAvailableBuffer("library-events-producer-1", 4000));
+
+        // when
+        double availableBufferMemory = pool.getAvailableBufferMemory();
+
+        // then
+        assertEquals(3000, availableBufferMemory);
+        pool.destroy();
+    }
+
+    @Test
+    void testPool_shouldApplyMicrometerProducerListenerCustomizer() {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        // when
+        LibraryEventProducerPool pool = new LibraryEventProducerPool(producerProperties(), "library-events", 4, null,
+                Collections.singletonList(new KafkaMetricsAutoConfiguration().kafkaProducerMetrics(meterRegistry)), new LiveProducers(),
+                meterRegistry);
+
+        // then
+        for (int i = 0; i < pool.getSize(); i++) {
+            DefaultKafkaProducerFactory<Integer, byte[]> producerFactory =
+                    (DefaultKafkaProducerFactory<Integer, byte[]>) pool.kafkaTemplate(i).getProducerFactory();
+            assertTrue(producerFactory.getListeners().stream().anyMatch(MicrometerProducerListener.class::isInstance));
+        }
+        pool.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Producer<Object, Object> producerWithAvailableBuffer(String clientId, double availableBytes) {
+        MetricName metricName = new MetricName("buffer-available-bytes", "producer-metrics", "",
+                Collections.singletonMap("client-id", clientId));
+        Metric metric = mock(Metric.class);
+        doReturn(availableBytes).when(metric).metricValue();
+        Producer<Object, Object> producer = mock(Producer.class);
+        doReturn(Collections.singletonMap(metricName, metric)).when(producer).metrics();
+        return producer;
+    }
+
+    private Map<String, Object> producerProperties() {
+        Map<String, Object> producerProperties = new HashMap<>();
+        producerProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        producerProperties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, IntegerSerializer.class);
+        producerProperties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        producerProperties.put(ProducerConfig.BUFFER_MEMORY_CONFIG, String.valueOf(16 * 1024 * 1024));
+        return producerProperties;
+    }
+
+}
@@ -1,27 +1,48 @@
 package com.learnkafka.producer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.SettableListenableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learnkafka.domain.Book;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.metrics.LibraryEventMetrics;
+import com.learnkafka.serializer.LibraryEventSerializer;
+import com.learnkafka.spool.LibraryEventSpooler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 public class LibraryEventProducerUnitTest {
@@ -30,10 +51,13 @@ public class LibraryEventProducerUnitTest {
     LibraryEventProducer libraryEventProducer;
 
     @Mock
-    KafkaTemplate<Integer, String> kafkaTemplate;
+    KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    @Spy
+    LibraryEventMetrics libraryEventMetrics = new LibraryEventMetrics(new SimpleMeterRegistry());
 
     @Spy
-    ObjectMapper objectMapper = new ObjectMapper();
+    LibraryEventSerializer libraryEventSerializer = new LibraryEventSerializer(new ObjectMapper());
 
 
     @SuppressWarnings("unchecked")
@@ -61,25 +85,190 @@ public class LibraryEventProducerUnitTest {
         // given
         Book book = createBook();
         LibraryEvent libraryEvent = createLibraryEvent(book);
-        String record = objectMapper.writeValueAsString(libraryEvent);
-        SettableListenableFuture<SendResult<Integer, String>> settableListenableFuture = new SettableListenableFuture<>();
+        SettableListenableFuture<SendResult<Integer, byte[]>> settableListenableFuture = new SettableListenableFuture<>();
         
-        ProducerRecord<Integer, String> producerRecord = 
-                new ProducerRecord<Integer, String>("library-events", libraryEvent.getLibraryEventId(), record);
+        ProducerRecord<Integer, byte[]> producerRecord = 
+                new ProducerRecord<Integer, byte[]>("library-events", libraryEvent.getLibraryEventId(), libraryEventProducer.serialize(libraryEvent));
         RecordMetadata recordMetadata = new RecordMetadata(new TopicPartition("library-events", 1), 1, 1, 342, (int) System.currentTimeMillis(), 1);
-        SendResult<Integer, String> sendResult = new SendResult<Integer, String>(producerRecord, recordMetadata);
+        SendResult<Integer, byte[]> sendResult = new SendResult<Integer, byte[]>(producerRecord, recordMetadata);
         settableListenableFuture.set(sendResult);
 
         when(kafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(settableListenableFuture);
 
         // when
-        ListenableFuture<SendResult<Integer, String>> actualListenableFuture = libraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent);
+        ListenableFuture<SendResult<Integer, byte[]>> actualListenableFuture = libraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(libraryEvent);
 
         // then
-        SendResult<Integer, String> actualResult = actualListenableFuture.get();
+        SendResult<Integer, byte[]> actualResult = actualListenableFuture.get();
         assertEquals(actualResult.getRecordMetadata().partition(), 1);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendLibraryEventAwaitingAck_shouldSendThePreSerializedValue() throws Exception {
+        // given
+        Book book = createBook();
+        LibraryEvent libraryEvent = createLibraryEvent(book);
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> producerRecordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        when(kafkaTemplate.send(producerRecordCaptor.capture())).thenReturn(new SettableListenableFuture<>());
+
+        // when
+        libraryEventProducer.sendLibraryEventAwaitingAck(libraryEvent, value);
+
+        // then
+        assertSame(value, producerRecordCaptor.getValue().value());
+        assertEquals("{\"libraryEventId\":null,\"libraryEventType\":null,\"book\":{\"bookId\":123,\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Aleksandar Grahovac\"}}",
+                new String(value, StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldSpoolTheValueWhenKafkaFailsTheSend() {
+        // given
+        LibraryEventSpooler libraryEventSpooler = mock(LibraryEventSpooler.class);
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventSpooler", libraryEventSpooler);
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        libraryEvent.setLibraryEventId(7);
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        SettableListenableFuture<SendResult<Integer, byte[]>> settableListenableFuture = new SettableListenableFuture<>();
+        settableListenableFuture.setException(new TimeoutException("Expiring 1 record(s)"));
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        when(kafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(settableListenableFuture);
+
+        // when
+        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value);
+
+        // then
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> producerRecordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(libraryEventSpooler).spool(isNull(), producerRecordCaptor.capture());
+        assertEquals(7, producerRecordCaptor.getValue().key());
+        assertSame(value, producerRecordCaptor.getValue().value());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldSpoolWhenTheProducerRejectsTheRecord() {
+        // given
+        LibraryEventSpooler libraryEventSpooler = mock(LibraryEventSpooler.class);
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventSpooler", libraryEventSpooler);
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        when(kafkaTemplate.send(isA(ProducerRecord.class))).thenThrow(new TimeoutException("Topic library-events not present in metadata"));
+
+        // when
+        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value);
+
+        // then
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> producerRecordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(libraryEventSpooler).spool(isNull(), producerRecordCaptor.capture());
+        assertSame(value, producerRecordCaptor.getValue().value());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldSpoolBehindAnExistingBacklog() {
+        // given
+        LibraryEventSpooler libraryEventSpooler = mock(LibraryEventSpooler.class);
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventSpooler", libraryEventSpooler);
+        when(libraryEventSpooler.hasBacklog()).thenReturn(true);
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+
+        // when
+        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value);
+
+        // then
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> producerRecordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(libraryEventSpooler).spool(isNull(), producerRecordCaptor.capture());
+        assertSame(value, producerRecordCaptor.getValue().value());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testReplay_shouldPassTheCircuitBreakerAndLeaveFailedRecordsInTheSpool() {
+        // given
+        LibraryEventSpooler libraryEventSpooler = mock(LibraryEventSpooler.class);
+        ProducerCircuitBreaker producerCircuitBreaker = mock(ProducerCircuitBreaker.class);
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventSpooler", libraryEventSpooler);
+        ReflectionTestUtils.setField(libraryEventProducer, "producerCircuitBreaker", producerCircuitBreaker);
+        ProducerRecord<Integer, byte[]> producerRecord = libraryEventProducer.buildProducerRecord(7, "replayed".getBytes(StandardCharsets.UTF_8), "library-events");
+        SettableListenableFuture<SendResult<Integer, byte[]>> settableListenableFuture = new SettableListenableFuture<>();
+        settableListenableFuture.setException(new TimeoutException("Expiring 1 record(s)"));
+        when(kafkaTemplate.send(producerRecord)).thenReturn(settableListenableFuture);
+
+        // when
+        libraryEventProducer.replay(LibraryEventType.UPDATE, producerRecord);
+
+        // then
+        verify(producerCircuitBreaker).acquirePermission();
+        verify(producerCircuitBreaker).onFailure(any(), isA(TimeoutException.class));
+        verify(libraryEventSpooler, never()).spool(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testReplay_shouldReleaseTheCircuitBreakerPermitWhenTheRecordItselfFails() {
+        // given
+        ProducerCircuitBreaker producerCircuitBreaker = mock(ProducerCircuitBreaker.class);
+        ReflectionTestUtils.setField(libraryEventProducer, "producerCircuitBreaker", producerCircuitBreaker);
+        ProducerRecord<Integer, byte[]> producerRecord = libraryEventProducer.buildProducerRecord(7, "replayed".getBytes(StandardCharsets.UTF_8), "library-events");
+        SettableListenableFuture<SendResult<Integer, byte[]>> settableListenableFuture = new SettableListenableFuture<>();
+        settableListenableFuture.setException(new RecordTooLargeException("The message is 2000000 bytes"));
+        when(kafkaTemplate.send(producerRecord)).thenReturn(settableListenableFuture);
+
+        // when
+        libraryEventProducer.replay(LibraryEventType.UPDATE, producerRecord);
+
+        // then
+        verify(producerCircuitBreaker).release(any());
+        verify(producerCircuitBreaker, never()).onFailure(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldRunOnCompletionOnlyOnceKafkaAcknowledges() {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        SettableListenableFuture<SendResult<Integer, byte[]>> settableListenableFuture = new SettableListenableFuture<>();
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        when(kafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(settableListenableFuture);
+        AtomicBoolean completed = new AtomicBoolean();
+
+        // when
+        libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value, null, () -> completed.set(true));
+
+        // then
+        assertFalse(completed.get());
+        RecordMetadata recordMetadata = new RecordMetadata(new TopicPartition("library-events", 1), 1, 1, 342, 1, 1);
+        settableListenableFuture.set(new SendResult<>(new ProducerRecord<>("library-events", null, value), recordMetadata));
+        assertTrue(completed.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldRunOnCompletionWhenTheProducerRejectsTheRecord() {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent(createBook());
+        byte[] value = libraryEventProducer.serialize(libraryEvent);
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        when(kafkaTemplate.send(isA(ProducerRecord.class))).thenThrow(new TimeoutException("Topic library-events not present in metadata"));
+        AtomicBoolean completed = new AtomicBoolean();
+
+        // when
+        assertThrows(TimeoutException.class,
+                () -> libraryEventProducer.sendAsynchronusLibraryEvent(libraryEvent, value, null, () -> completed.set(true)));
+
+        // then
+        assertTrue(completed.get());
+    }
+
 
     private LibraryEvent createLibraryEvent(Book book) {
         return LibraryEvent.builder()
@@ -0,0 +1,61 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.serializer.LibraryEventSerializer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class LibraryEventProducerWarmUpTest {
+
+    @InjectMocks
+    LibraryEventProducerWarmUp libraryEventProducerWarmUp;
+
+    @Mock
+    KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    @Spy
+    LibraryEventProducer libraryEventProducer = new LibraryEventProducer();
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testRun_shouldFetchMetadataAndNeverSendToKafka() throws Exception {
+        // given
+        ReflectionTestUtils.setField(libraryEventProducerWarmUp, "iterations", 100);
+        ReflectionTestUtils.setField(libraryEventProducerWarmUp, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(libraryEventProducer, "libraryEventSerializer", new LibraryEventSerializer(new ObjectMapper()));
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        when(kafkaTemplate.partitionsFor("library-events")).thenReturn(Collections.emptyList());
+        libraryEventProducerWarmUp.init();
+
+        // when
+        libraryEventProducerWarmUp.run(null);
+
+        // then
+        verify(kafkaTemplate).partitionsFor("library-events");
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        assertEquals(1, meterRegistry.get("library.events.warmup").tag("step", "dry-run").timer().count());
+    }
+
+}
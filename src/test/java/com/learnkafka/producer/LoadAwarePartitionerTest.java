@@ -0,0 +1,100 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LoadAwarePartitionerTest {
+
+    private static final String TOPIC = "library-events";
+
+    private static final int PARTITIONS = 3;
+
+    LoadAwarePartitioner loadAwarePartitioner = new LoadAwarePartitioner();
+
+    IntegerSerializer integerSerializer = new IntegerSerializer();
+
+    Cluster cluster;
+
+    @BeforeEach
+    void setUp() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            partitions.add(new PartitionInfo(TOPIC, partition, node, new Node[] { node }, new Node[] { node }));
+        }
+        cluster = new Cluster("cluster", Collections.singletonList(node), partitions, Collections.emptySet(), Collections.emptySet());
+
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(LoadAwarePartitioner.HOT_KEYS_CONFIG, "7, 8");
+        configs.put(LoadAwarePartitioner.HOT_KEY_PARTITIONS_CONFIG, "3");
+        loadAwarePartitioner.configure(configs);
+    }
+
+    @Test
+    void testPartition_shouldHashKeysLikeDefaultPartitioner() {
+        // given
+        DefaultPartitioner defaultPartitioner = new DefaultPartitioner();
+
+        for (int key = 0; key < 100; key++) {
+            byte[] keyBytes = integerSerializer.serialize(TOPIC, key);
+
+            // when
+            int partition = loadAwarePartitioner.partition(TOPIC, key, keyBytes, null, new byte[10], cluster);
+
+            // then
+            assertEquals(defaultPartitioner.partition(TOPIC, key, keyBytes, null, new byte[10], cluster), partition);
+        }
+    }
+
+    @Test
+    void testPartition_shouldSendNullKeysToLeastLoadedPartition() {
+        // given
+        byte[] keyBytes = integerSerializer.serialize(TOPIC, 1);
+        int hotPartition = loadAwarePartitioner.partition(TOPIC, 1, keyBytes, null, new byte[1000], cluster);
+
+        // when
+        Set<Integer> nullKeyPartitions = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            nullKeyPartitions.add(loadAwarePartitioner.partition(TOPIC, null, null, null, new byte[10], cluster));
+        }
+
+        // then
+        assertEquals(2, nullKeyPartitions.size());
+        assertFalse(nullKeyPartitions.contains(hotPartition));
+    }
+
+    @Test
+    void testPartition_shouldSpreadHotKeysOverConfiguredPartitions() {
+        // given
+        byte[] keyBytes = integerSerializer.serialize(TOPIC, 7);
+
+        // when
+        Set<Integer> hotKeyPartitions = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            hotKeyPartitions.add(loadAwarePartitioner.partition(TOPIC, 7, keyBytes, null, new byte[10], cluster));
+        }
+
+        // then
+        assertEquals(PARTITIONS, hotKeyPartitions.size());
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            assertEquals(100, loadAwarePartitioner.load(TOPIC, partition));
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.learnkafka.domain.LibraryEventType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PriorityLaneSchedulerTest {
+
+    List<ProducerRecord<Integer, byte[]>> sentRecords = Collections.synchronizedList(new ArrayList<>());
+
+    List<SettableListenableFuture<?>> sentFutures = Collections.synchronizedList(new ArrayList<>());
+
+    Map<LibraryEventType, KafkaTemplate<Integer, byte[]>> kafkaTemplates = new EnumMap<>(LibraryEventType.class);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    PriorityLaneScheduler priorityLaneScheduler;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (priorityLaneScheduler != null) {
+            priorityLaneScheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmit_shouldShareSendsByWeightAndRouteToLaneTopic() {
+        // given
+        priorityLaneScheduler = createScheduler(3, 1000, 1, 1000, 100, true);
+        for (int i = 0; i < 4; i++) {
+            priorityLaneScheduler.submit(LibraryEventType.UPDATE, producerRecord(100 + i));
+            priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(i));
+        }
+
+        // when
+        priorityLaneScheduler.start();
+
+        // then
+        verify(kafkaTemplates.get(LibraryEventType.UPDATE), timeout(1000).times(4)).send(any(ProducerRecord.class));
+        List<String> firstTopics = sentRecords.subList(0, 4).stream().map(ProducerRecord::topic).collect(Collectors.toList());
+        assertEquals(3, Collections.frequency(firstTopics, "new-events"));
+        assertEquals(1, Collections.frequency(firstTopics, "update-events"));
+    }
+
+    @Test
+    void testSubmit_shouldNotLetLaneAtInFlightCapBlockOtherLanes() {
+        // given
+        priorityLaneScheduler = createScheduler(1, 1000, 1, 1, 100, false);
+        priorityLaneScheduler.start();
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            priorityLaneScheduler.submit(LibraryEventType.UPDATE, producerRecord(100 + i));
+            priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(i));
+        }
+
+        // then
+        verify(kafkaTemplates.get(LibraryEventType.NEW), timeout(1000).times(3)).send(any(ProducerRecord.class));
+        verify(kafkaTemplates.get(LibraryEventType.UPDATE), after(100).times(1)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void testSubmit_shouldRejectWhenLaneQueueIsFull() {
+        // given
+        priorityLaneScheduler = createScheduler(1, 1000, 1, 1000, 1, true);
+        priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(1));
+
+        // when / then
+        assertThrows(RejectedExecutionException.class, () -> priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(2)));
+    }
+
+    @Test
+    void testSubmit_shouldKeepNewAndUpdateOfOneKeyInOrder() throws Exception {
+        // given
+        priorityLaneScheduler = createScheduler(1, 1, 1, 1000, 100, false);
+        priorityLaneScheduler.start();
+        priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(1));
+        verify(kafkaTemplates.get(LibraryEventType.NEW), timeout(1000)).send(any(ProducerRecord.class));
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> newSend = priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(7));
+        ListenableFuture<SendResult<Integer, byte[]>> updateSend = priorityLaneScheduler.submit(LibraryEventType.UPDATE, producerRecord(7));
+        priorityLaneScheduler.submit(LibraryEventType.UPDATE, producerRecord(8));
+        verify(kafkaTemplates.get(LibraryEventType.UPDATE), timeout(1000)).send(any(ProducerRecord.class));
+        acknowledgeUntilDone(updateSend);
+
+        // then
+        assertTrue(newSend.isDone());
+        List<String> key7Topics = sentRecords.stream()
+                .filter(producerRecord -> producerRecord.key() == 7)
+                .map(ProducerRecord::topic)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("new-events", "update-events"), key7Topics);
+        verify(kafkaTemplates.get(LibraryEventType.UPDATE), never()).send(argThat((ProducerRecord<Integer, byte[]> producerRecord) -> producerRecord.key() == 7));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSubmit_shouldKeepNewLatencyFlatWhileUpdateBufferIsFull() throws Exception {
+        // given
+        AtomicReference<Double> updateBufferAvailable = new AtomicReference<>(0.0);
+        CountDownLatch bufferFreed = new CountDownLatch(1);
+        priorityLaneScheduler = createScheduler(1, 1000, 1, 1000, 1000, true);
+        KafkaTemplate<Integer, byte[]> updateTemplate = kafkaTemplates.get(LibraryEventType.UPDATE);
+        MetricName bufferAvailableBytes = new MetricName("buffer-available-bytes", "producer-metrics", "", Collections.emptyMap());
+        doReturn(Collections.singletonMap(bufferAvailableBytes, new Metric() {
+
+            @Override
+            public MetricName metricName() {
+                return bufferAvailableBytes;
+            }
+
+            @Override
+            public Object metricValue() {
+                return updateBufferAvailable.get();
+            }
+
+        })).when(updateTemplate).metrics();
+        doAnswer(invocation -> {
+            // a send into a full buffer blocks for up to max.block.ms
+            bufferFreed.await();
+            SettableListenableFuture<?> future = new SettableListenableFuture<>();
+            future.set(null);
+            return future;
+        }).when(updateTemplate).send(any(ProducerRecord.class));
+        priorityLaneScheduler.start();
+        newSendP99Millis(200);
+        double baselineP99Millis = newSendP99Millis(200);
+
+        try {
+            // when
+            List<ListenableFuture<SendResult<Integer, byte[]>>> updateSends = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                updateSends.add(priorityLaneScheduler.submit(LibraryEventType.UPDATE, producerRecord(1000 + i)));
+            }
+            double burstP99Millis = newSendP99Millis(200);
+
+            // then
+            assertTrue(burstP99Millis < baselineP99Millis + 50, "NEW p99 " + burstP99Millis + " ms during the UPDATE burst, "
+                    + baselineP99Millis + " ms before");
+            verify(updateTemplate, never()).send(any(ProducerRecord.class));
+
+            updateBufferAvailable.set(32.0 * 1024 * 1024);
+            bufferFreed.countDown();
+            for (ListenableFuture<SendResult<Integer, byte[]>> updateSend : updateSends) {
+                updateSend.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            bufferFreed.countDown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private PriorityLaneScheduler createScheduler(int newWeight, int newMaxInFlight, int updateWeight, int updateMaxInFlight, int queueCapacity,
+            boolean acknowledge) {
+        Map<LibraryEventType, PriorityLaneSettings> laneSettings = new EnumMap<>(LibraryEventType.class);
+        laneSettings.put(LibraryEventType.NEW, new PriorityLaneSettings(newWeight, 0.5, newMaxInFlight, "new-events"));
+        laneSettings.put(LibraryEventType.UPDATE, new PriorityLaneSettings(updateWeight, 0.5, updateMaxInFlight, "update-events"));
+
+        for (LibraryEventType libraryEventType : LibraryEventType.values()) {
+            KafkaTemplate<Integer, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+            when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+                sentRecords.add(invocation.getArgument(0));
+                SettableListenableFuture<?> future = new SettableListenableFuture<>();
+                if (acknowledge) {
+                    future.set(null);
+                } else {
+                    sentFutures.add(future);
+                }
+                return future;
+            });
+            kafkaTemplates.put(libraryEventType, kafkaTemplate);
+        }
+
+        return new PriorityLaneScheduler(laneSettings, kafkaTemplates, queueCapacity, meterRegistry);
+    }
+
+    /**
+     * Acknowledges every send handed to a producer until {@code future} completes, as a broker would.
+     */
+    private void acknowledgeUntilDone(ListenableFuture<?> future) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!future.isDone() && System.nanoTime() < deadline) {
+            synchronized (sentFutures) {
+                sentFutures.forEach(sentFuture -> sentFuture.set(null));
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Submits NEW sends one after the other and returns the 99th percentile of their submit to acknowledgement time.
+     */
+    private double newSendP99Millis(int sends) throws Exception {
+        long[] latencies = new long[sends];
+        for (int i = 0; i < sends; i++) {
+            long submittedNanos = System.nanoTime();
+            priorityLaneScheduler.submit(LibraryEventType.NEW, producerRecord(i)).get(1, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - submittedNanos;
+        }
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(sends * 0.99) - 1] / 1e6;
+    }
+
+    private ProducerRecord<Integer, byte[]> producerRecord(Integer key) {
+        return new ProducerRecord<>("library-events", key, new byte[] { 1 });
+    }
+
+}
@@ -0,0 +1,229 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SuppressWarnings("unchecked")
+class ProducerAutoTunerTest {
+
+    ProducerAutoTuner producerAutoTuner = new ProducerAutoTuner();
+
+    DefaultKafkaProducerFactory<Integer, byte[]> producerFactory = mock(DefaultKafkaProducerFactory.class);
+
+    DefaultKafkaProducerFactory<Integer, byte[]> tunedProducerFactory = mock(DefaultKafkaProducerFactory.class);
+
+    KafkaTemplate<Integer, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(producerAutoTuner, "intervalMs", 60_000L);
+        ReflectionTestUtils.setField(producerAutoTuner, "targetP99Ms", 50.0);
+        ReflectionTestUtils.setField(producerAutoTuner, "minSendRate", 10.0);
+        ReflectionTestUtils.setField(producerAutoTuner, "minLingerMs", 0);
+        ReflectionTestUtils.setField(producerAutoTuner, "maxLingerMs", 50);
+        ReflectionTestUtils.setField(producerAutoTuner, "minBatchSize", 16384);
+        ReflectionTestUtils.setField(producerAutoTuner, "maxBatchSize", 262144);
+        ReflectionTestUtils.setField(producerAutoTuner, "compressionType", "lz4");
+        ReflectionTestUtils.setField(producerAutoTuner, "compressionMinBatchBytes", 4096);
+        ReflectionTestUtils.setField(producerAutoTuner, "minReconfigureIntervalMs", 300_000L);
+        ReflectionTestUtils.setField(producerAutoTuner, "producerFactory", producerFactory);
+        ReflectionTestUtils.setField(producerAutoTuner, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(producerAutoTuner, "meterRegistry", meterRegistry);
+        producerAutoTuner.clock = clock::get;
+
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, 8);
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+        when(producerFactory.getConfigurationProperties()).thenReturn(configs);
+        when(producerFactory.copyWithConfigurationOverride(any())).thenReturn(tunedProducerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerAutoTuner.shutdown();
+    }
+
+
+    @Test
+    void tune_belowMinSendRate_keepsProducer() {
+        // given
+        producerAutoTuner.init();
+        clock.addAndGet(300_000L);
+        recordSends("async", 100, 200);
+        batchSizeAvg(1000.0);
+
+        // when
+        producerAutoTuner.tune();
+
+        // then
+        verify(producerFactory, never()).copyWithConfigurationOverride(any());
+        assertSame(kafkaTemplate, producerAutoTuner.kafkaTemplate());
+    }
+
+    @Test
+    void tune_producerMetricsMissing_keepsProducer() {
+        // given
+        producerAutoTuner.init();
+        clock.addAndGet(300_000L);
+        recordSends("async", 1000, 200);
+        doReturn(Collections.emptyMap()).when(kafkaTemplate).metrics();
+
+        // when
+        producerAutoTuner.tune();
+
+        // then
+        verify(producerFactory, never()).copyWithConfigurationOverride(any());
+        assertSame(kafkaTemplate, producerAutoTuner.kafkaTemplate());
+    }
+
+    @Test
+    void tune_p99AboveTarget_swapsInProducerWithShorterLinger() {
+        // given
+        producerAutoTuner.init();
+        clock.addAndGet(300_000L);
+        recordSends("async", 1000, 200);
+        batchSizeAvg(1000.0);
+
+        // when
+        producerAutoTuner.tune();
+
+        // then
+        verify(producerFactory).copyWithConfigurationOverride(new ProducerSettings(4, 16384, "none").toConfigs());
+        assertSame(tunedProducerFactory, producerAutoTuner.kafkaTemplate().getProducerFactory());
+        verify(kafkaTemplate).flush();
+        verify(producerFactory, never()).reset();
+        verify(producerFactory, never()).updateConfigs(any());
+        assertEquals(4.0, meterRegistry.get("library.events.tuner.linger").gauge().value());
+        assertEquals(1.0, meterRegistry.get("library.events.tuner.adjustments").counter().count());
+    }
+
+    @Test
+    void tune_withinMinReconfigureInterval_keepsProducer() {
+        // given
+        producerAutoTuner.init();
+        clock.addAndGet(300_000L);
+        recordSends("async", 1000, 200);
+        batchSizeAvg(1000.0);
+        producerAutoTuner.tune();
+
+        // when
+        clock.addAndGet(60_000L);
+        recordSends("async", 1000, 200);
+        producerAutoTuner.tune();
+
+        // then
+        verify(producerFactory, times(1)).copyWithConfigurationOverride(any());
+    }
+
+    @Test
+    void tune_afterSecondSwap_closesThePreviousProducerOnTheNextRun() {
+        // given
+        DefaultKafkaProducerFactory<Integer, byte[]> secondProducerFactory = mock(DefaultKafkaProducerFactory.class);
+        when(producerFactory.copyWithConfigurationOverride(any())).thenReturn(tunedProducerFactory, secondProducerFactory);
+        producerAutoTuner.init();
+        clock.addAndGet(300_000L);
+        recordSends("async", 1000, 200);
+        batchSizeAvg(1000.0);
+        producerAutoTuner.tune();
+        Producer<Integer, byte[]> tunedProducer = mock(Producer.class);
+        doReturn(batchSizeAvgMetrics(1000.0)).when(tunedProducer).metrics();
+        when(tunedProducerFactory.createProducer()).thenReturn(tunedProducer);
+        clock.addAndGet(300_000L);
+        recordSends("async", 1000, 200);
+        producerAutoTuner.tune();
+        verify(tunedProducerFactory, never()).destroy();
+
+        // when
+        producerAutoTuner.tune();
+
+        // then
+        verify(tunedProducerFactory).destroy();
+        verify(producerFactory, never()).destroy();
+        assertSame(secondProducerFactory, producerAutoTuner.kafkaTemplate().getProducerFactory());
+    }
+
+    @Test
+    void tune_transactionalSends_ignored() {
+        // given
+        producerAutoTuner.init();
+        clock.addAndGet(300_000L);
+        recordSends(TransactionalLibraryEventProducer.ENDPOINT_TRANSACTIONAL, 1000, 200);
+        batchSizeAvg(1000.0);
+
+        // when
+        producerAutoTuner.tune();
+
+        // then
+        verify(producerFactory, never()).copyWithConfigurationOverride(any());
+    }
+
+    @Test
+    void init_producerPoolEnabled_tunerIdle() {
+        // given
+        ReflectionTestUtils.setField(producerAutoTuner, "libraryEventProducerPool", mock(LibraryEventProducerPool.class));
+
+        // when
+        producerAutoTuner.init();
+
+        // then
+        assertNull(meterRegistry.find("library.events.tuner.adjustments").counter());
+        assertNull(ReflectionTestUtils.getField(producerAutoTuner, "tuner"));
+    }
+
+
+    private void recordSends(String endpoint, int count, long latencyMs) {
+        Timer timer = Timer.builder("library.events.send")
+                .tags("endpoint", endpoint, "type", "NEW", "outcome", "success", "exception", "none")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        for (int i = 0; i < count; i++) {
+            timer.record(latencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void batchSizeAvg(double value) {
+        doReturn(batchSizeAvgMetrics(value)).when(kafkaTemplate).metrics();
+    }
+
+    private Map<MetricName, Metric> batchSizeAvgMetrics(double value) {
+        MetricName metricName = new MetricName("batch-size-avg", "producer-metrics", "", Collections.emptyMap());
+        Metric metric = mock(Metric.class);
+        when(metric.metricValue()).thenReturn(value);
+        Map<MetricName, Metric> metrics = new HashMap<>();
+        metrics.put(metricName, metric);
+        return metrics;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.errors.NetworkException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.learnkafka.producer.ProducerCircuitBreaker.Phase;
+import com.learnkafka.producer.ProducerCircuitBreaker.State;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProducerCircuitBreakerTest {
+
+    ProducerCircuitBreaker producerCircuitBreaker = new ProducerCircuitBreaker();
+
+    AtomicLong clock = new AtomicLong(1_000_000L);
+
+    LiveProducers liveProducers = new LiveProducers();
+
+    ApplicationEventPublisher applicationEventPublisher = mock(ApplicationEventPublisher.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(producerCircuitBreaker, "windowSize", 10);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "minimumCalls", 4);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "failureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "openDurationMs", 5000L);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "halfOpenProbes", 2);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "checkIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "liveProducers", liveProducers);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "applicationEventPublisher", applicationEventPublisher);
+        ReflectionTestUtils.setField(producerCircuitBreaker, "meterRegistry", new SimpleMeterRegistry());
+        producerCircuitBreaker.clock = clock::get;
+        producerCircuitBreaker.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerCircuitBreaker.shutdown();
+    }
+
+    @Test
+    void testOnFailure_shouldOpenAboveFailureRateAndRejectSends() {
+        // given
+        sendAndSucceed(2);
+
+        // when
+        sendAndFail(2);
+
+        // then
+        assertEquals(State.OPEN, producerCircuitBreaker.getState());
+        ProducerUnavailableException exception = assertThrows(ProducerUnavailableException.class, producerCircuitBreaker::acquirePermission);
+        assertEquals(5000L, exception.getRetryAfterMs());
+        verify(applicationEventPublisher).publishEvent(argThat((AvailabilityChangeEvent<?> event) -> event.getState() == ReadinessState.REFUSING_TRAFFIC));
+    }
+
+    @Test
+    void testOnFailure_shouldStayClosedBelowMinimumCalls() {
+        // when
+        sendAndFail(3);
+
+        // then
+        assertEquals(State.CLOSED, producerCircuitBreaker.getState());
+    }
+
+    @Test
+    void testAcquirePermission_shouldCloseAfterSuccessfulProbes() {
+        // given
+        sendAndFail(4);
+        clock.addAndGet(5000);
+
+        // when
+        Phase firstProbe = producerCircuitBreaker.acquirePermission();
+        Phase secondProbe = producerCircuitBreaker.acquirePermission();
+
+        // then
+        assertEquals(State.HALF_OPEN, producerCircuitBreaker.getState());
+        assertThrows(ProducerUnavailableException.class, producerCircuitBreaker::acquirePermission);
+        producerCircuitBreaker.onSuccess(firstProbe);
+        producerCircuitBreaker.onSuccess(secondProbe);
+        assertEquals(State.CLOSED, producerCircuitBreaker.getState());
+        verify(applicationEventPublisher).publishEvent(argThat((AvailabilityChangeEvent<?> event) -> event.getState() == ReadinessState.ACCEPTING_TRAFFIC));
+    }
+
+    @Test
+    void testOnFailure_shouldReopenWhenProbeFails() {
+        // given
+        sendAndFail(4);
+        clock.addAndGet(5000);
+        Phase probe = producerCircuitBreaker.acquirePermission();
+
+        // when
+        producerCircuitBreaker.onFailure(probe, new TimeoutException("broker down"));
+
+        // then
+        assertEquals(State.OPEN, producerCircuitBreaker.getState());
+    }
+
+    @Test
+    void testOnSuccess_shouldNotCountSendsAdmittedWhileClosedAsProbes() {
+        // given
+        Phase admittedWhileClosed = producerCircuitBreaker.acquirePermission();
+        sendAndFail(4);
+        clock.addAndGet(5000);
+        Phase probe = producerCircuitBreaker.acquirePermission();
+
+        // when
+        producerCircuitBreaker.onSuccess(admittedWhileClosed);
+        producerCircuitBreaker.onSuccess(probe);
+
+        // then
+        assertEquals(State.HALF_OPEN, producerCircuitBreaker.getState());
+        verify(applicationEventPublisher, times(1)).publishEvent(argThat((AvailabilityChangeEvent<?> event) -> event.getState() == ReadinessState.REFUSING_TRAFFIC));
+    }
+
+    @Test
+    void testRelease_shouldGiveTheProbeBackWithoutAnOutcome() {
+        // given
+        sendAndFail(4);
+        clock.addAndGet(5000);
+        Phase firstProbe = producerCircuitBreaker.acquirePermission();
+        producerCircuitBreaker.acquirePermission();
+
+        // when
+        producerCircuitBreaker.release(firstProbe);
+
+        // then
+        assertEquals(State.HALF_OPEN, producerCircuitBreaker.getState());
+        producerCircuitBreaker.acquirePermission();
+        assertThrows(ProducerUnavailableException.class, producerCircuitBreaker::acquirePermission);
+    }
+
+    @Test
+    void testIndicatesUnavailability_shouldOnlyMatchTimeoutsAndBrokerErrors() {
+        assertTrue(ProducerCircuitBreaker.indicatesUnavailability(new KafkaProducerException(null, "send failed", new TimeoutException("Expiring 1 record(s)"))));
+        assertTrue(ProducerCircuitBreaker.indicatesUnavailability(new NetworkException("connection lost")));
+        assertFalse(ProducerCircuitBreaker.indicatesUnavailability(new KafkaProducerException(null, "send failed", new SerializationException("bad record"))));
+        assertFalse(ProducerCircuitBreaker.indicatesUnavailability(new RejectedExecutionException("Priority lane NEW is full")));
+    }
+
+    @Test
+    void testCheck_shouldOpenWhenSendsAreInFlightWithoutBrokerConnection() {
+        // given
+        liveProducers.producerAdded("default", producer("library-events-producer", 0.0));
+        liveProducers.producerAdded("pool-0", producer("library-events-producer-0", 0.0));
+        producerCircuitBreaker.acquirePermission();
+
+        // when
+        producerCircuitBreaker.check();
+
+        // then
+        assertEquals(State.OPEN, producerCircuitBreaker.getState());
+    }
+
+    @Test
+    void testCheck_shouldStayClosedWhileAnotherProducerIsConnected() {
+        // given
+        liveProducers.producerAdded("default", producer("library-events-producer", 0.0));
+        liveProducers.producerAdded("pool-0", producer("library-events-producer-0", 2.0));
+        producerCircuitBreaker.acquirePermission();
+
+        // when
+        producerCircuitBreaker.check();
+
+        // then
+        assertEquals(State.CLOSED, producerCircuitBreaker.getState());
+    }
+
+    @Test
+    void testCheck_shouldStayClosedWithoutOpenProducers() {
+        // given
+        producerCircuitBreaker.acquirePermission();
+
+        // when
+        producerCircuitBreaker.check();
+
+        // then
+        assertEquals(State.CLOSED, producerCircuitBreaker.getState());
+    }
+
+
+    private void sendAndSucceed(int sends) {
+        for (int i = 0; i < sends; i++) {
+            producerCircuitBreaker.onSuccess(producerCircuitBreaker.acquirePermission());
+        }
+    }
+
+    private void sendAndFail(int sends) {
+        for (int i = 0; i < sends; i++) {
+            producerCircuitBreaker.onFailure(producerCircuitBreaker.acquirePermission(), new TimeoutException("broker down"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Producer<Object, Object> producer(String clientId, double connectionCount) {
+        Metric metric = mock(Metric.class);
+        when(metric.metricValue()).thenReturn(connectionCount);
+        Map<MetricName, Metric> metrics = Collections.singletonMap(
+                new MetricName("connection-count", "producer-metrics", "", Collections.singletonMap("client-id", clientId)), metric);
+        Producer<Object, Object> producer = mock(Producer.class);
+        doReturn(metrics).when(producer).metrics();
+        return producer;
+    }
+
+}
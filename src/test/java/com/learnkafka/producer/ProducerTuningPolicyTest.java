@@ -0,0 +1,81 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class ProducerTuningPolicyTest {
+
+    ProducerTuningPolicy producerTuningPolicy = new ProducerTuningPolicy(50, 0, 50, 16384, 262144, "lz4", 4096);
+
+    @Test
+    void testDecide_shouldShortenLingerWhenP99IsAboveTarget() {
+        // given
+        ProducerSettings current = new ProducerSettings(20, 65536, "none");
+
+        // when
+        ProducerSettings next = producerTuningPolicy.decide(current, 80, 1000);
+
+        // then
+        assertEquals(new ProducerSettings(10, 65536, "none"), next);
+    }
+
+    @Test
+    void testDecide_shouldShrinkBatchSizeWhenP99IsAboveTargetWithoutLinger() {
+        // given
+        ProducerSettings current = new ProducerSettings(0, 65536, "none");
+
+        // when
+        ProducerSettings next = producerTuningPolicy.decide(current, 80, 1000);
+
+        // then
+        assertEquals(new ProducerSettings(0, 32768, "none"), next);
+    }
+
+    @Test
+    void testDecide_shouldLengthenLingerWhenBatchesAreSmallAndLatencyIsLow() {
+        // given
+        ProducerSettings current = new ProducerSettings(0, 16384, "none");
+
+        // when
+        ProducerSettings next = producerTuningPolicy.decide(current, 5, 500);
+
+        // then
+        assertEquals(new ProducerSettings(1, 16384, "none"), next);
+    }
+
+    @Test
+    void testDecide_shouldGrowBatchSizeAndEnableCompressionWhenBatchesAreFull() {
+        // given
+        ProducerSettings current = new ProducerSettings(5, 16384, "none");
+
+        // when
+        ProducerSettings next = producerTuningPolicy.decide(current, 5, 15000);
+
+        // then
+        assertEquals(new ProducerSettings(5, 32768, "lz4"), next);
+    }
+
+    @Test
+    void testDecide_shouldStayWithinBounds() {
+        // given
+        ProducerSettings current = new ProducerSettings(50, 262144, "lz4");
+
+        // when
+        ProducerSettings next = producerTuningPolicy.decide(current, 5, 250000);
+
+        // then
+        assertEquals(current, next);
+    }
+
+    @Test
+    void testDecide_shouldKeepSettingsWithoutMeasurements() {
+        // given
+        ProducerSettings current = new ProducerSettings(5, 16384, "none");
+
+        // when / then
+        assertSame(current, producerTuningPolicy.decide(current, Double.NaN, 1000));
+    }
+
+}
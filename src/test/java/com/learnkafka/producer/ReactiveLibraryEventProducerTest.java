@@ -0,0 +1,117 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.metrics.LibraryEventMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderResult;
+
+class ReactiveLibraryEventProducerTest {
+
+    List<Sinks.One<SenderResult<Integer>>> acknowledgements = new ArrayList<>();
+
+    ReactiveLibraryEventProducer reactiveLibraryEventProducer = new ReactiveLibraryEventProducer();
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setUp() {
+        KafkaSender<Integer, LibraryEvent> kafkaSender = mock(KafkaSender.class);
+        when(kafkaSender.send(any())).thenAnswer(invocation -> {
+            Sinks.One<SenderResult<Integer>> acknowledgement = Sinks.one();
+            acknowledgements.add(acknowledgement);
+            return Flux.from(acknowledgement.asMono());
+        });
+        ReflectionTestUtils.setField(reactiveLibraryEventProducer, "kafkaSender", kafkaSender);
+        ReflectionTestUtils.setField(reactiveLibraryEventProducer, "topicName", "library-events");
+        ReflectionTestUtils.setField(reactiveLibraryEventProducer, "maxInFlight", 1);
+        ReflectionTestUtils.setField(reactiveLibraryEventProducer, "libraryEventMetrics", new LibraryEventMetrics(meterRegistry));
+    }
+
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldWaitForTheAcknowledgementBeyondMaxInFlight() throws Exception {
+        // given
+        CompletableFuture<Void> first = reactiveLibraryEventProducer.sendAsynchronusLibraryEvent(createLibraryEvent()).toFuture();
+
+        // when
+        CompletableFuture<Void> second = reactiveLibraryEventProducer.sendAsynchronusLibraryEvent(createLibraryEvent()).toFuture();
+
+        // then
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        acknowledgements.get(1).tryEmitValue(senderResult(2, 42));
+        second.get(1, TimeUnit.SECONDS);
+        assertEquals(1, meterRegistry.get("library.events.send").tag("endpoint", "asynchronous").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void testSendLibraryEventAwaitingAck_shouldCompleteWithTheAcknowledgement() throws Exception {
+        // given
+        CompletableFuture<SenderResult<Integer>> result = reactiveLibraryEventProducer.sendLibraryEventAwaitingAck(createLibraryEvent()).toFuture();
+
+        // when
+        acknowledgements.get(0).tryEmitValue(senderResult(2, 42));
+
+        // then
+        RecordMetadata recordMetadata = result.get(1, TimeUnit.SECONDS).recordMetadata();
+        assertEquals(2, recordMetadata.partition());
+        assertEquals(42, recordMetadata.offset());
+        assertEquals(1, meterRegistry.get("library.events.send").tag("endpoint", "synchronous").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void testSendAsynchronusLibraryEvent_shouldAnswerAtOnceAgainWhenSendsAreAcknowledged() throws Exception {
+        // given
+        reactiveLibraryEventProducer.sendAsynchronusLibraryEvent(createLibraryEvent()).toFuture();
+
+        // when
+        acknowledgements.get(0).tryEmitError(new IllegalStateException("Error calling Kafka"));
+
+        // then
+        assertTrue(reactiveLibraryEventProducer.sendAsynchronusLibraryEventUsingProducerRecord(createLibraryEvent()).toFuture().isDone());
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private SenderResult<Integer> senderResult(int partition, long offset) {
+        SenderResult<Integer> senderResult = mock(SenderResult.class);
+        when(senderResult.recordMetadata()).thenReturn(new RecordMetadata(new TopicPartition("library-events", partition), offset, 0, 0L, 4, 100));
+        return senderResult;
+    }
+
+    private LibraryEvent createLibraryEvent() {
+        return LibraryEvent.builder()
+                .libraryEventId(123)
+                .book(Book.builder()
+                        .bookId(456)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.learnkafka.producer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StripedLibraryEventDispatcherTest {
+
+    StripedLibraryEventDispatcher stripedLibraryEventDispatcher = new StripedLibraryEventDispatcher(4, 1000, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stripedLibraryEventDispatcher.shutdown();
+    }
+
+    @Test
+    void testDispatch_shouldPreserveOrderPerLibraryEventId() throws Exception {
+        // given
+        int keys = 8;
+        int eventsPerKey = 100;
+        Map<Integer, List<Integer>> bookIdsByKey = new ConcurrentHashMap<>();
+        CountDownLatch sent = new CountDownLatch(keys * eventsPerKey);
+
+        // when
+        for (int bookId = 0; bookId < eventsPerKey; bookId++) {
+            for (int key = 0; key < keys; key++) {
+                stripedLibraryEventDispatcher.dispatch(createLibraryEvent(key, bookId), libraryEvent -> {
+                    bookIdsByKey.computeIfAbsent(libraryEvent.getLibraryEventId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(libraryEvent.getBook().getBookId());
+                    sent.countDown();
+                });
+            }
+        }
+
+        // then
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        for (int key = 0; key < keys; key++) {
+            List<Integer> bookIds = bookIdsByKey.get(key);
+            for (int bookId = 0; bookId < eventsPerKey; bookId++) {
+                assertEquals(bookId, bookIds.get(bookId));
+            }
+        }
+    }
+
+    private LibraryEvent createLibraryEvent(Integer libraryEventId, Integer bookId) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .book(Book.builder()
+                        .bookId(bookId)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.learnkafka.retry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LibraryEventRetrySchedulerTest {
+
+    LibraryEventRetryScheduler libraryEventRetryScheduler = new LibraryEventRetryScheduler();
+
+    KafkaTemplate<Integer, byte[]> kafkaTemplate;
+
+    List<String> sentValues = Collections.synchronizedList(new ArrayList<>());
+
+    @SuppressWarnings("unchecked")
+    @BeforeEach
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(new SettableListenableFuture<>());
+
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "maxAttempts", 3);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "maxBackoffMs", 10L);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "multiplier", 2.0);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "jitter", 0.2);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "retriesPerSecond", 1000.0);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "maxPending", 100);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "deadLetterTopic", "library-events.DLT");
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "meterRegistry", new SimpleMeterRegistry());
+        libraryEventRetryScheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        libraryEventRetryScheduler.shutdown();
+    }
+
+    @Test
+    void testSend_shouldRetryUntilAcknowledged() throws Exception {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> outcome = libraryEventRetryScheduler.send(producerRecord(1, "a"),
+                record -> attempts.incrementAndGet() < 3 ? failed(new TimeoutException("broker down")) : acknowledged(record));
+
+        // then
+        assertEquals("a", new String(outcome.get(5, TimeUnit.SECONDS).getProducerRecord().value(), StandardCharsets.UTF_8));
+        assertEquals(3, attempts.get());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSend_shouldSendToDeadLetterTopicWhenAttemptsAreExhausted() {
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> outcome = libraryEventRetryScheduler.send(producerRecord(1, "a"),
+                record -> failed(new TimeoutException("broker down")));
+
+        // then
+        assertThrows(ExecutionException.class, () -> outcome.get(5, TimeUnit.SECONDS));
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> deadLetterCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(1000)).send(deadLetterCaptor.capture());
+        ProducerRecord<Integer, byte[]> deadLetter = deadLetterCaptor.getValue();
+        assertEquals("library-events.DLT", deadLetter.topic());
+        assertEquals(1, deadLetter.key());
+        assertArrayEquals("3".getBytes(StandardCharsets.UTF_8),
+                deadLetter.headers().lastHeader(LibraryEventRetryScheduler.ATTEMPTS_HEADER).value());
+        assertArrayEquals(LibraryEventRetryScheduler.REASON_EXHAUSTED.getBytes(StandardCharsets.UTF_8),
+                deadLetter.headers().lastHeader(LibraryEventRetryScheduler.DEAD_LETTER_REASON_HEADER).value());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSend_shouldNotRetryErrorsThatAreNotRetriable() {
+        // given
+        AtomicInteger attempts = new AtomicInteger();
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> outcome = libraryEventRetryScheduler.send(producerRecord(null, "a"), record -> {
+            attempts.incrementAndGet();
+            return failed(new RecordTooLargeException("too large"));
+        });
+
+        // then
+        assertThrows(ExecutionException.class, () -> outcome.get(5, TimeUnit.SECONDS));
+        assertEquals(1, attempts.get());
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> deadLetterCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(1000)).send(deadLetterCaptor.capture());
+        assertArrayEquals(LibraryEventRetryScheduler.REASON_NOT_RETRIABLE.getBytes(StandardCharsets.UTF_8),
+                deadLetterCaptor.getValue().headers().lastHeader(LibraryEventRetryScheduler.DEAD_LETTER_REASON_HEADER).value());
+    }
+
+    @Test
+    void testSend_shouldHoldLaterRecordsOfKeyBehindRetry() throws Exception {
+        // given
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "initialBackoffMs", 200L);
+        AtomicInteger attempts = new AtomicInteger();
+        ListenableFuture<SendResult<Integer, byte[]>> first = libraryEventRetryScheduler.send(producerRecord(7, "first"), record -> {
+            sentValues.add(new String(record.value(), StandardCharsets.UTF_8));
+            return attempts.incrementAndGet() == 1 ? failed(new TimeoutException("broker down")) : acknowledged(record);
+        });
+        awaitPendingRetry();
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> second = libraryEventRetryScheduler.send(producerRecord(7, "second"), record -> {
+            sentValues.add(new String(record.value(), StandardCharsets.UTF_8));
+            return acknowledged(record);
+        });
+
+        // then
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("first", "first", "second"), sentValues);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSend_shouldSupersedeFailedRecordOnceLaterRecordSentBeforeTheFailureIsAcknowledged() throws Exception {
+        // given
+        SettableListenableFuture<SendResult<Integer, byte[]>> firstSend = new SettableListenableFuture<>();
+        SettableListenableFuture<SendResult<Integer, byte[]>> secondSend = new SettableListenableFuture<>();
+        AtomicInteger firstAttempts = new AtomicInteger();
+        ListenableFuture<SendResult<Integer, byte[]>> first = libraryEventRetryScheduler.send(producerRecord(7, "first"), record -> {
+            firstAttempts.incrementAndGet();
+            return firstSend;
+        });
+        ListenableFuture<SendResult<Integer, byte[]>> second = libraryEventRetryScheduler.send(producerRecord(7, "second"), record -> secondSend);
+
+        // when
+        firstSend.setException(new TimeoutException("broker down"));
+        Thread.sleep(100);
+        assertEquals(1, firstAttempts.get());
+        secondSend.set(new SendResult<>(producerRecord(7, "second"), null));
+
+        // then
+        second.get(5, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, firstAttempts.get());
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> deadLetterCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(1000)).send(deadLetterCaptor.capture());
+        assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), deadLetterCaptor.getValue().value());
+        assertArrayEquals(LibraryEventRetryScheduler.REASON_SUPERSEDED.getBytes(StandardCharsets.UTF_8),
+                deadLetterCaptor.getValue().headers().lastHeader(LibraryEventRetryScheduler.DEAD_LETTER_REASON_HEADER).value());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(libraryEventRetryScheduler, "keyStates")).isEmpty());
+    }
+
+    @Test
+    void testSend_shouldRetryEarlierRecordBeforeLaterRecordOfKeyThatAlsoFailed() throws Exception {
+        // given
+        SettableListenableFuture<SendResult<Integer, byte[]>> firstSend = new SettableListenableFuture<>();
+        SettableListenableFuture<SendResult<Integer, byte[]>> secondSend = new SettableListenableFuture<>();
+        ListenableFuture<SendResult<Integer, byte[]>> first = libraryEventRetryScheduler.send(producerRecord(7, "first"),
+                record -> sendOnce(record, firstSend));
+        ListenableFuture<SendResult<Integer, byte[]>> second = libraryEventRetryScheduler.send(producerRecord(7, "second"),
+                record -> sendOnce(record, secondSend));
+
+        // when
+        firstSend.setException(new TimeoutException("broker down"));
+        secondSend.setException(new TimeoutException("broker down"));
+
+        // then
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("first", "second", "first", "second"), sentValues);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSend_shouldSendToDeadLetterTopicWhenTheRetryBudgetIsSpent() {
+        // given
+        ReflectionTestUtils.setField(libraryEventRetryScheduler, "retryBudget", new RetryBudget(1, System::nanoTime));
+
+        // when
+        ListenableFuture<SendResult<Integer, byte[]>> outcome = libraryEventRetryScheduler.send(producerRecord(null, "a"),
+                record -> failed(new TimeoutException("broker down")));
+
+        // then
+        assertThrows(ExecutionException.class, () -> outcome.get(5, TimeUnit.SECONDS));
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> deadLetterCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(1000)).send(deadLetterCaptor.capture());
+        assertArrayEquals("2".getBytes(StandardCharsets.UTF_8),
+                deadLetterCaptor.getValue().headers().lastHeader(LibraryEventRetryScheduler.ATTEMPTS_HEADER).value());
+        assertArrayEquals(LibraryEventRetryScheduler.REASON_BUDGET.getBytes(StandardCharsets.UTF_8),
+                deadLetterCaptor.getValue().headers().lastHeader(LibraryEventRetryScheduler.DEAD_LETTER_REASON_HEADER).value());
+    }
+
+
+    private ListenableFuture<SendResult<Integer, byte[]>> sendOnce(ProducerRecord<Integer, byte[]> producerRecord,
+            ListenableFuture<SendResult<Integer, byte[]>> firstSend) {
+        String value = new String(producerRecord.value(), StandardCharsets.UTF_8);
+        boolean retry = sentValues.contains(value);
+        sentValues.add(value);
+        return retry ? acknowledged(producerRecord) : firstSend;
+    }
+
+    private void awaitPendingRetry() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (((AtomicInteger) ReflectionTestUtils.getField(libraryEventRetryScheduler, "pending")).get() == 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private ProducerRecord<Integer, byte[]> producerRecord(Integer key, String value) {
+        return new ProducerRecord<>("library-events", key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ListenableFuture<SendResult<Integer, byte[]>> acknowledged(ProducerRecord<Integer, byte[]> producerRecord) {
+        SettableListenableFuture<SendResult<Integer, byte[]>> listenableFuture = new SettableListenableFuture<>();
+        listenableFuture.set(new SendResult<>(producerRecord, null));
+        return listenableFuture;
+    }
+
+    private ListenableFuture<SendResult<Integer, byte[]>> failed(Throwable ex) {
+        SettableListenableFuture<SendResult<Integer, byte[]>> listenableFuture = new SettableListenableFuture<>();
+        listenableFuture.setException(ex);
+        return listenableFuture;
+    }
+
+}
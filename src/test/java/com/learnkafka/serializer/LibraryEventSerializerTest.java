@@ -0,0 +1,63 @@
+package com.learnkafka.serializer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+
+class LibraryEventSerializerTest {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    LibraryEventSerializer libraryEventSerializer = new LibraryEventSerializer(objectMapper);
+
+    @Test
+    void testSerialize_shouldProduceSameBytesAsObjectMapper() throws Exception {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent();
+
+        // when
+        byte[] actualBytes = libraryEventSerializer.serialize("library-events", libraryEvent);
+
+        // then
+        assertArrayEquals(objectMapper.writeValueAsBytes(libraryEvent), actualBytes);
+    }
+
+    @Test
+    void testSerialize_shouldReturnANewArrayPerRecord() {
+        // given
+        LibraryEvent libraryEvent = createLibraryEvent();
+
+        // when
+        byte[] firstBytes = libraryEventSerializer.serialize("library-events", libraryEvent);
+        byte[] secondBytes = libraryEventSerializer.serialize("library-events", libraryEvent);
+
+        // then
+        assertNotSame(firstBytes, secondBytes);
+        assertArrayEquals(firstBytes, secondBytes);
+    }
+
+    @Test
+    void testSerialize_shouldReturnNullForNullLibraryEvent() {
+        assertNull(libraryEventSerializer.serialize("library-events", null));
+    }
+
+    private LibraryEvent createLibraryEvent() {
+        return LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder()
+                        .bookId(456)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Aleksandar Grahovac")
+                        .build())
+                .build();
+    }
+
+}
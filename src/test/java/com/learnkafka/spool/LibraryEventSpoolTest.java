@@ -0,0 +1,122 @@
+package com.learnkafka.spool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.learnkafka.domain.LibraryEventType;
+
+class LibraryEventSpoolTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Test
+    void testPeekAndCommit_shouldReturnRecordsInAppendOrder() throws Exception {
+        // given
+        try (LibraryEventSpool libraryEventSpool = new LibraryEventSpool(spoolDirectory, SEGMENT_SIZE, 4)) {
+            libraryEventSpool.append(1, value("first"));
+            libraryEventSpool.append(null, value("second"));
+
+            // when
+            List<SpooledRecord> spooledRecords = libraryEventSpool.peek(10);
+            libraryEventSpool.commit(spooledRecords);
+
+            // then
+            assertEquals(2, spooledRecords.size());
+            assertEquals(1, spooledRecords.get(0).getKey());
+            assertArrayEquals(value("first"), spooledRecords.get(0).getValue());
+            assertNull(spooledRecords.get(1).getKey());
+            assertArrayEquals(value("second"), spooledRecords.get(1).getValue());
+            assertTrue(libraryEventSpool.isEmpty());
+        }
+    }
+
+    @Test
+    void testOpen_shouldRecoverUncommittedRecordsAfterRestart() throws Exception {
+        // given
+        try (LibraryEventSpool libraryEventSpool = new LibraryEventSpool(spoolDirectory, SEGMENT_SIZE, 4)) {
+            libraryEventSpool.append(1, value("drained"));
+            libraryEventSpool.append(2, LibraryEventType.UPDATE, new Header[] { new RecordHeader("event-source", value("scanner")) }, value("pending"));
+            libraryEventSpool.commit(libraryEventSpool.peek(1));
+        }
+
+        // when
+        try (LibraryEventSpool libraryEventSpool = new LibraryEventSpool(spoolDirectory, SEGMENT_SIZE, 4)) {
+            List<SpooledRecord> spooledRecords = libraryEventSpool.peek(10);
+
+            // then
+            assertFalse(libraryEventSpool.isEmpty());
+            assertEquals(1, spooledRecords.size());
+            assertEquals(2, spooledRecords.get(0).getKey());
+            assertArrayEquals(value("pending"), spooledRecords.get(0).getValue());
+            assertEquals(LibraryEventType.UPDATE, spooledRecords.get(0).getLibraryEventType());
+            assertEquals(1, spooledRecords.get(0).getHeaders().length);
+            assertEquals("event-source", spooledRecords.get(0).getHeaders()[0].key());
+            assertArrayEquals(value("scanner"), spooledRecords.get(0).getHeaders()[0].value());
+        }
+    }
+
+    @Test
+    void testAppend_shouldRollSegmentsAndRejectWhenDiskBudgetIsExhausted() throws Exception {
+        // given
+        byte[] value = new byte[100];
+
+        try (LibraryEventSpool libraryEventSpool = new LibraryEventSpool(spoolDirectory, SEGMENT_SIZE, 2)) {
+            // when
+            for (int i = 0; i < 4; i++) {
+                assertTrue(libraryEventSpool.append(i, value));
+            }
+
+            // then
+            assertEquals(2, libraryEventSpool.getSegmentCount());
+            assertFalse(libraryEventSpool.append(4, value));
+
+            libraryEventSpool.commit(libraryEventSpool.peek(2));
+            assertEquals(1, libraryEventSpool.getSegmentCount());
+            assertTrue(libraryEventSpool.append(4, value));
+            assertEquals(3, libraryEventSpool.peek(10).size());
+        }
+    }
+
+    @Test
+    void testCommit_shouldDeleteDrainedSegmentFilesAndKeepForcedRecords() throws Exception {
+        // given
+        byte[] value = new byte[100];
+        try (LibraryEventSpool libraryEventSpool = new LibraryEventSpool(spoolDirectory, SEGMENT_SIZE, 4)) {
+            for (int i = 0; i < 4; i++) {
+                libraryEventSpool.append(i, value);
+            }
+            libraryEventSpool.force();
+
+            // when
+            libraryEventSpool.commit(libraryEventSpool.peek(3));
+
+            // then
+            try (Stream<Path> segmentFiles = Files.list(spoolDirectory)) {
+                assertEquals(1, segmentFiles.count());
+            }
+            assertEquals(3, libraryEventSpool.peek(10).get(0).getKey());
+        }
+    }
+
+    private byte[] value(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.learnkafka.spool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.producer.LibraryEventProducer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SuppressWarnings("unchecked")
+class LibraryEventSpoolerTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    KafkaTemplate<Integer, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+    LibraryEventProducer libraryEventProducer = mock(LibraryEventProducer.class);
+
+    LibraryEventSpooler libraryEventSpooler = new LibraryEventSpooler();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(libraryEventSpooler, "directory", spoolDirectory.toString());
+        ReflectionTestUtils.setField(libraryEventSpooler, "segmentSize", 256);
+        ReflectionTestUtils.setField(libraryEventSpooler, "maxSegments", 2);
+        ReflectionTestUtils.setField(libraryEventSpooler, "drainIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(libraryEventSpooler, "drainBatchSize", 2);
+        ReflectionTestUtils.setField(libraryEventSpooler, "sendTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(libraryEventSpooler, "forceIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(libraryEventSpooler, "kafkaTemplate", kafkaTemplate);
+        ObjectProvider<LibraryEventProducer> libraryEventProducerProvider = mock(ObjectProvider.class);
+        when(libraryEventProducerProvider.getObject()).thenReturn(libraryEventProducer);
+        ReflectionTestUtils.setField(libraryEventSpooler, "libraryEventProducer", libraryEventProducerProvider);
+        when(kafkaTemplate.getDefaultTopic()).thenReturn("library-events");
+        ReflectionTestUtils.setField(libraryEventSpooler, "meterRegistry", meterRegistry);
+        libraryEventSpooler.init();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        libraryEventSpooler.close();
+    }
+
+    @Test
+    void testDrain_shouldReplaySpooledRecordsOldestFirstWithTheirHeaders() {
+        // given
+        when(libraryEventProducer.replay(any(), any())).thenReturn(acknowledged());
+        for (int i = 1; i <= 3; i++) {
+            libraryEventSpooler.spool(LibraryEventType.UPDATE, producerRecord(i, "event-" + i));
+        }
+
+        // when
+        libraryEventSpooler.drain();
+
+        // then
+        ArgumentCaptor<ProducerRecord<Integer, byte[]>> producerRecordCaptor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(libraryEventProducer, times(3)).replay(eq(LibraryEventType.UPDATE), producerRecordCaptor.capture());
+        for (int i = 1; i <= 3; i++) {
+            ProducerRecord<Integer, byte[]> producerRecord = producerRecordCaptor.getAllValues().get(i - 1);
+            assertEquals("library-events", producerRecord.topic());
+            assertEquals(i, producerRecord.key());
+            assertArrayEquals(value("event-" + i), producerRecord.value());
+            assertArrayEquals(value("scanner"), producerRecord.headers().lastHeader("event-source").value());
+        }
+        assertFalse(libraryEventSpooler.hasBacklog());
+        assertEquals(3, meterRegistry.get("library.events.spool.records").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void testDrain_shouldKeepRecordsWhenReplayFails() {
+        // given
+        SettableListenableFuture<SendResult<Integer, byte[]>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("Error calling Kafka"));
+        when(libraryEventProducer.replay(any(), any())).thenReturn(failed);
+        libraryEventSpooler.spool(LibraryEventType.NEW, producerRecord(1, "event-1"));
+
+        // when
+        libraryEventSpooler.drain();
+
+        // then
+        assertTrue(libraryEventSpooler.hasBacklog());
+        assertEquals(0, meterRegistry.get("library.events.spool.records").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    void testSpool_shouldDropRecordsWhenTheSpoolIsFull() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            libraryEventSpooler.spool(LibraryEventType.NEW, new ProducerRecord<>("library-events", i, new byte[100]));
+        }
+
+        // when
+        libraryEventSpooler.spool(LibraryEventType.NEW, new ProducerRecord<>("library-events", 4, new byte[100]));
+
+        // then
+        assertEquals(4, meterRegistry.get("library.events.spool.records").tag("outcome", "spooled").counter().count());
+        assertEquals(1, meterRegistry.get("library.events.spool.records").tag("outcome", "dropped").counter().count());
+    }
+
+
+    private SettableListenableFuture<SendResult<Integer, byte[]>> acknowledged() {
+        SettableListenableFuture<SendResult<Integer, byte[]>> acknowledged = new SettableListenableFuture<>();
+        acknowledged.set(null);
+        return acknowledged;
+    }
+
+    private ProducerRecord<Integer, byte[]> producerRecord(Integer key, String value) {
+        return new ProducerRecord<>("library-events", null, key, value(value),
+                Collections.singletonList(new RecordHeader("event-source", value("scanner"))));
+    }
+
+    private byte[] value(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
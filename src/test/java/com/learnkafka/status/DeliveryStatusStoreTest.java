@@ -0,0 +1,82 @@
+package com.learnkafka.status;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import com.learnkafka.domain.DeliveryStatus;
+import com.learnkafka.domain.DeliveryStatusResult;
+
+class DeliveryStatusStoreTest {
+
+    AtomicLong clock = new AtomicLong(1_000_000L);
+
+    DeliveryStatusStore deliveryStatusStore = new DeliveryStatusStore(3, 1000, clock::get);
+
+    @Test
+    void testTrack_shouldBePendingUntilAcknowledged() {
+        // given
+        String trackingId = deliveryStatusStore.track(123);
+        assertEquals(DeliveryStatus.PENDING, deliveryStatusStore.get(trackingId).getStatus());
+
+        // when
+        deliveryStatusStore.acknowledged(trackingId, new RecordMetadata(new TopicPartition("library-events", 2), 40, 2, 0, 0, 1));
+
+        // then
+        DeliveryStatusResult deliveryStatusResult = deliveryStatusStore.get(trackingId);
+        assertEquals(DeliveryStatus.ACKNOWLEDGED, deliveryStatusResult.getStatus());
+        assertEquals(123, deliveryStatusResult.getLibraryEventId());
+        assertEquals("library-events", deliveryStatusResult.getTopic());
+        assertEquals(2, deliveryStatusResult.getPartition());
+        assertEquals(42L, deliveryStatusResult.getOffset());
+    }
+
+    @Test
+    void testFailed_shouldKeepTheError() {
+        // given
+        String trackingId = deliveryStatusStore.track(null);
+
+        // when
+        deliveryStatusStore.failed(trackingId, new IllegalStateException("broker down"));
+
+        // then
+        DeliveryStatusResult deliveryStatusResult = deliveryStatusStore.get(trackingId);
+        assertEquals(DeliveryStatus.FAILED, deliveryStatusResult.getStatus());
+        assertEquals("IllegalStateException: broker down", deliveryStatusResult.getError());
+    }
+
+    @Test
+    void testTrack_shouldEvictOldestEntriesAboveMaxEntries() {
+        // given
+        String first = deliveryStatusStore.track(1);
+        String second = deliveryStatusStore.track(2);
+        deliveryStatusStore.track(3);
+
+        // when
+        deliveryStatusStore.track(4);
+
+        // then
+        assertNull(deliveryStatusStore.get(first));
+        assertNotNull(deliveryStatusStore.get(second));
+    }
+
+    @Test
+    void testGet_shouldNotReturnExpiredEntries() {
+        // given
+        String trackingId = deliveryStatusStore.track(1);
+
+        // when
+        clock.addAndGet(1001);
+
+        // then
+        assertNull(deliveryStatusStore.get(trackingId));
+        assertNull(deliveryStatusStore.get("unknown"));
+    }
+
+}
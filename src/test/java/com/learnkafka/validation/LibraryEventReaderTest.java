@@ -0,0 +1,96 @@
+package com.learnkafka.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+
+class LibraryEventReaderTest {
+
+    ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    LibraryEventReader libraryEventReader = new LibraryEventReader(objectMapper.getFactory());
+
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"libraryEventId\":null,\"book\":{\"bookId\":123,\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Aleksandar Grahovac\"}}",
+            "{\"libraryEventId\":1}",
+            "{\"book\":null}",
+            "{\"book\":{}}",
+            "{\"book\":{\"bookId\":123,\"bookName\":\" \",\"bookAuthor\":\"\"}}",
+            "{\"book\":{\"bookId\":null,\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":null}}",
+            "{\"libraryEventId\":\"42\",\"unknown\":{\"a\":[1,2]},\"book\":{\"bookId\":\"7\",\"bookName\":1,\"bookAuthor\":\"Author\"}}" })
+    void testRead_shouldMatchDatabindAndBeanValidation(String json) throws Exception {
+        // given
+        LibraryEvent expectedLibraryEvent = objectMapper.readValue(json, LibraryEvent.class);
+        String expectedErrorMessage = validate(expectedLibraryEvent);
+
+        // when
+        LibraryEvent actualLibraryEvent = null;
+        String actualErrorMessage = null;
+        try {
+            actualLibraryEvent = libraryEventReader.read(json.getBytes(StandardCharsets.UTF_8));
+        } catch (LibraryEventValidationException e) {
+            actualErrorMessage = e.getMessage();
+        }
+
+        // then
+        assertEquals(expectedErrorMessage, actualErrorMessage);
+        if (expectedErrorMessage == null) {
+            assertEquals(expectedLibraryEvent, actualLibraryEvent);
+        }
+    }
+
+    @Test
+    void testRead_shouldReadLibraryEventType() throws Exception {
+        // given
+        String json = "{\"libraryEventType\":\"UPDATE\",\"book\":{\"bookId\":1,\"bookName\":\"Name\",\"bookAuthor\":\"Author\"}}";
+
+        // when
+        LibraryEvent libraryEvent = libraryEventReader.read(json.getBytes(StandardCharsets.UTF_8));
+
+        // then
+        assertEquals(LibraryEventType.UPDATE, libraryEvent.getLibraryEventType());
+    }
+
+    @Test
+    void testRead_shouldReturnNullForNullBody() throws Exception {
+        assertNull(libraryEventReader.read("null".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testRead_shouldRejectMalformedJson() {
+        assertThrows(JsonProcessingException.class,
+                () -> libraryEventReader.read("{\"book\":{\"bookId\":\"abc\"}}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(JsonProcessingException.class,
+                () -> libraryEventReader.read("{\"book\":[]}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(JsonProcessingException.class,
+                () -> libraryEventReader.read("{\"book\":{".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String validate(LibraryEvent libraryEvent) {
+        String errorMessage = validator.validate(libraryEvent).stream()
+                .map(violation -> violation.getPropertyPath() + "-" + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return errorMessage.isEmpty() ? null : errorMessage;
+    }
+
+}